@@ -0,0 +1,98 @@
+/** BlackJackBenchmark.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.bench;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import project.game.Card;
+import project.game.Hand;
+import project.game.Shoe;
+
+/**
+ * Chemins chauds du Black-Jack : valeur d'une main, tirage d'une carte
+ * et construction des paquets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlackJackBenchmark {
+
+	private Shoe shoe;
+
+	/**
+	 * Mains tirées au hasard, évaluées carte par carte.
+	 */
+	@State(Scope.Thread)
+	public static class Hands {
+
+		/**
+		 * Nombre de cartes par main évaluée.
+		 */
+		@Param({"2", "5"})
+		public int handSize;
+
+		private Card[] cards;
+		private int next;
+		private Hand hand;
+
+		@Setup
+		public void setup() {
+			SplittableRandom random = new SplittableRandom(42);
+			cards = new Card[1024];
+			for (int i = 0; i < cards.length; i++) {
+				cards[i] = Card.of(random.nextInt(Card.DECK_SIZE));
+			}
+			hand = new Hand();
+		}
+	}
+
+	@Setup
+	public void setup() {
+		shoe = new Shoe(6, new SplittableRandom(42));
+	}
+
+	/**
+	 * Valeur d'une main construite carte par carte, comme pendant un tour de jeu.
+	 */
+	@Benchmark
+	public int getValue(Hands s) {
+		s.hand.clear();
+		for (int i = 0; i < s.handSize; i++) {
+			s.next = (s.next + 1) & (s.cards.length - 1);
+			s.hand.add(s.cards[s.next]);
+		}
+		return s.hand.getTotal();
+	}
+
+	@Benchmark
+	public Card drawCard() {
+		shoe.shuffleIfNeeded();
+		return shoe.draw();
+	}
+
+	@Benchmark
+	public void shuffle() {
+		shoe.shuffle();
+	}
+
+	@Benchmark
+	public ArrayList<Card> cardSet() {
+		return Card.cardSet(Card.DECK_SIZE, 6, new ArrayList<Card>(6 * Card.DECK_SIZE));
+	}
+}
@@ -0,0 +1,83 @@
+/** MorpionBenchmark.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import project.game.Morpion;
+import project.game.MorpionBoard;
+import project.net.Frame;
+
+/**
+ * Fin de partie et affichage de la grille du Morpion.
+ * isGameOver correspond à la vérification faite après chaque coup,
+ * getGrid à l'affichage envoyé aux deux joueurs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MorpionBenchmark {
+
+	private static final int NB_BOARDS = 64;
+
+	private MorpionBoard[] boards;
+	private Morpion game;
+	private int next;
+
+	/**
+	 * Prépare des grilles à différents stades de parties aléatoires.
+	 */
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		boards = new MorpionBoard[NB_BOARDS];
+		for (int i = 0; i < NB_BOARDS; i++) {
+			MorpionBoard board = new MorpionBoard();
+			int moves = random.nextInt(10);
+			for (int m = 0; m < moves; m++) {
+				int cell;
+				do {
+					cell = random.nextInt(9);
+				} while (board.isOccupied(cell));
+				board.play(m % 2, cell);
+			}
+			boards[i] = board;
+		}
+		game = new Morpion(null, NullConnection.clients(2));
+	}
+
+	private MorpionBoard nextBoard() {
+		next = (next + 1) & (NB_BOARDS - 1);
+		return boards[next];
+	}
+
+	@Benchmark
+	public boolean isGameOver() {
+		MorpionBoard board = nextBoard();
+		return board.hasWon(0) || board.hasWon(1) || board.isFull();
+	}
+
+	@Benchmark
+	public Frame boardFrame() {
+		return nextBoard().frame();
+	}
+
+	@Benchmark
+	public String getGrid() {
+		return game.getGrid();
+	}
+}
@@ -0,0 +1,69 @@
+/** NullConnection.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.bench;
+
+import project.client.ClientManager;
+import project.game.Elo;
+import project.metrics.DisconnectReason;
+import project.net.Connection;
+import project.net.ConnectionListener;
+import project.net.Frame;
+import project.server.IServer;
+import project.server.SessionCache;
+import project.server.ValueStore;
+
+/**
+ * Connexion sans socket pour les benchmarks : les messages sont comptés puis jetés.
+ */
+public class NullConnection implements Connection {
+
+	/**
+	 * Serveur factice pour construire des ClientManager hors du vrai serveur.
+	 */
+	private static final ValueStore WALLETS = ValueStore.inMemory(ClientManager.INITIAL_MONEY);
+	private static final ValueStore RATINGS = ValueStore.inMemory(Elo.INITIAL);
+	private static final SessionCache<ClientManager> SESSIONS = new SessionCache<ClientManager>(0, 0, c -> {});
+
+	public static final IServer NO_SERVER = new IServer() {
+		public void disconnectClient(ClientManager c) {}
+		public void getInQueue(ClientManager cli, String game) {}
+		public void exitQueue(ClientManager cli) {}
+		public boolean proxyJoined(ClientManager cli, long matchId, int seat, String secret) { return false; }
+		public ValueStore getWallets() { return WALLETS; }
+		public ValueStore getRatings() { return RATINGS; }
+		public SessionCache<ClientManager> getSessions() { return SESSIONS; }
+		public void detachClient(ClientManager cli) {}
+	};
+
+	private long bytes;
+
+	public void setListener(ConnectionListener listener) {}
+
+	public void send(Frame frame) {
+		bytes += frame.buffer().remaining();
+	}
+
+	public void setBinary() {}
+	public void cork()      {}
+	public void flush()     {}
+	public void close(DisconnectReason reason) {}
+
+	public boolean isOpen() { return true;  }
+	public long getBytes()  { return bytes; }
+
+	/**
+	 * Créé des clients reliés à des NullConnection.
+	 */
+	public static ClientManager[] clients(int n) {
+		ClientManager[] clients = new ClientManager[n];
+		for (int i = 0; i < n; i++) {
+			clients[i] = new ClientManager(new NullConnection(), NO_SERVER);
+		}
+		return clients;
+	}
+}
@@ -0,0 +1,65 @@
+/** SendMessageBenchmark.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import project.client.ClientManager;
+import project.net.Frame;
+import project.server.SimpleServer;
+
+/**
+ * Diffusion d'un message à plusieurs clients par SimpleServer.sendMessage.
+ * Le serveur est créé sans être lancé (pas de thread d'écoute ni de matchmaking).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SendMessageBenchmark {
+
+	private static final String MESSAGE = "Le joueur 2 a tiré : Queen of Heart (10 points)";
+
+	@Param({"2", "7", "1000"})
+	public int recipients;
+
+	private SimpleServer server;
+	private ClientManager[] clients;
+	private Frame frame;
+
+	@Setup
+	public void setup() {
+		server = SimpleServer.getInstance();
+		clients = NullConnection.clients(recipients);
+		frame = Frame.of(MESSAGE);
+	}
+
+	/**
+	 * Encodage compris, comme pour les messages construits pendant la partie.
+	 */
+	@Benchmark
+	public void sendString() {
+		server.sendMessage(MESSAGE, clients);
+	}
+
+	/**
+	 * Message déjà encodé, comme les messages constants des jeux.
+	 */
+	@Benchmark
+	public void sendFrame() {
+		server.sendMessage(frame, clients);
+	}
+}
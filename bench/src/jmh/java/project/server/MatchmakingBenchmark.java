@@ -0,0 +1,63 @@
+/** MatchmakingBenchmark.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import project.bench.NullConnection;
+import project.client.ClientManager;
+
+/**
+ * Passe de matchmaking sur une grande queue : remplissage, départ de joueurs
+ * puis formation de toutes les tables possibles.
+ * Placé dans project.server pour accéder à GameQueue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MatchmakingBenchmark {
+
+	@Param({"1000", "100000"})
+	public int queueSize;
+
+	@Param({"2", "7"})
+	public int nbPlayers;
+
+	private ClientManager[] waiting;
+
+	@Setup
+	public void setup() {
+		waiting = NullConnection.clients(queueSize);
+	}
+
+	@Benchmark
+	public void matchAll(Blackhole bh) {
+		GameQueue queue = new GameQueue("Black-Jack", nbPlayers);
+		for (ClientManager c : waiting) {
+			queue.add(c);
+		}
+		// Un joueur sur dix quitte la queue avant d'être placé
+		for (int i = 0; i < waiting.length; i += 10) {
+			queue.remove(waiting[i]);
+		}
+		ClientManager[] match;
+		while ((match = queue.pollMatch()) != null) {
+			bh.consume(match);
+		}
+	}
+}
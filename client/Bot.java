@@ -0,0 +1,207 @@
+/** Bot.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Client automatique utilisé par le LoadGenerator.
+ * Répond aux questions du serveur à partir du début de chaque ligne reçue,
+ * et enchaîne les parties jusqu'à l'échéance fixée.
+ */
+class Bot implements Runnable {
+
+	/**
+	 * Délai au-delà duquel un serveur muet est compté comme une erreur.
+	 */
+	private static final int READ_TIMEOUT = 30000;
+
+	/**
+	 * Intervalle de vérification de l'échéance quand le serveur ne dit rien.
+	 */
+	private static final int POLL_INTERVAL = 1000;
+
+	/**
+	 * Test de présence du serveur, auquel le bot répond automatiquement.
+	 */
+	private static final String PING = "#ping";
+	private static final String PONG = "#pong";
+
+	private final int number;
+	private final String host;
+	private final int port;
+	private final String game;
+	private final int nbPlayers;
+	private final long deadline;
+	private final LoadGenerator.Stats stats;
+	private final SplittableRandom random;
+
+	private PrintWriter out;
+	private String column;
+	private boolean inGame;
+	private boolean choosing;
+	private long queuedAt;
+	private long sentAt;
+
+	/**
+	 * Allers-retours mesurés par ce bot, en microsecondes.
+	 */
+	private long[] samples = new long[64];
+	private int nbSamples;
+
+	/**
+	 * @param game "morpion" ou "blackjack"
+	 * @param nbPlayers nombre de joueurs des tables de Black-Jack
+	 * @param deadline heure (System.nanoTime) après laquelle le bot quitte le serveur
+	 */
+	Bot(int number, String host, int port, String game, int nbPlayers, long deadline, LoadGenerator.Stats stats) {
+		this.number    = number;
+		this.host      = host;
+		this.port      = port;
+		this.game      = game;
+		this.nbPlayers = nbPlayers;
+		this.deadline  = deadline;
+		this.stats     = stats;
+		this.random    = new SplittableRandom(number);
+	}
+
+	public void run() {
+		Socket socket = new Socket();
+		try {
+			long start = System.nanoTime();
+			socket.connect(new InetSocketAddress(host, port), READ_TIMEOUT);
+			socket.setSoTimeout(POLL_INTERVAL);
+			stats.connected(System.nanoTime() - start);
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+			String line;
+			long lastRead = System.nanoTime();
+			while (true) {
+				try {
+					line = in.readLine();
+				} catch (SocketTimeoutException e) {
+					if (!inGame && System.nanoTime() - deadline >= 0) {
+						// En queue à l'échéance : plus assez de bots pour remplir la table
+						out.println("leave");
+						out.println("exit");
+						return;
+					}
+					if (System.nanoTime() - lastRead > READ_TIMEOUT * 1000000L) {
+						stats.error();
+						return;
+					}
+					continue;
+				}
+				if (line == null) {
+					break;
+				}
+				lastRead = System.nanoTime();
+				if (line.equals(PING)) {
+					// heartbeat du serveur, hors mesure des allers-retours
+					out.println(PONG);
+					continue;
+				}
+				if (sentAt != 0) {
+					record((System.nanoTime() - sentAt) / 1000);
+					sentAt = 0;
+				}
+				if (!answer(line)) {
+					return;
+				}
+			}
+			// Fermeture par le serveur avant la fin prévue
+			stats.error();
+		} catch (IOException e) {
+			stats.error();
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * Réagit à une ligne du serveur.
+	 * @return false quand le bot a quitté le serveur
+	 */
+	private boolean answer(String line) {
+		if (line.startsWith("Votre nom")) {
+			out.println("bot" + number);
+		} else if (line.startsWith("\t (exit)")) {
+			// Dernière ligne du menu : fin de la partie précédente éventuelle
+			if (inGame) {
+				inGame = false;
+				stats.gamePlayed();
+			}
+			if (System.nanoTime() - deadline >= 0) {
+				out.println("exit");
+				return false;
+			}
+			queuedAt = System.nanoTime();
+			out.println(game.equals("morpion") ? "1" : "2");
+		} else if (line.startsWith("Avec combien")) {
+			out.println(nbPlayers);
+		} else if (line.startsWith("Vous êtes le joueur")) {
+			inGame = true;
+			stats.matched(System.nanoTime() - queuedAt);
+		} else if (line.startsWith("Ligne")) {
+			send(String.valueOf(1 + random.nextInt(3)));
+			column = String.valueOf(1 + random.nextInt(3));
+		} else if (line.startsWith("Colonne")) {
+			send(column);
+		} else if (line.contains("Combien voulez-vous miser")) {
+			out.println("10");
+		} else if (line.startsWith("Quelle action")) {
+			// La réponse part après la liste des actions, terminée par une ligne vide
+			choosing = true;
+		} else if (choosing && line.isEmpty()) {
+			choosing = false;
+			send(random.nextInt(3) == 0 ? "hit" : "stand");
+		} else if (line.startsWith("Voulez-vous continuer")) {
+			out.println("N");
+		} else if (line.startsWith("Erreur de communication")) {
+			stats.error();
+		}
+		return true;
+	}
+
+	/**
+	 * Envoie une action de jeu et démarre la mesure de l'aller-retour.
+	 * Les autres réponses (menu, mise, etc.) ne sont pas mesurées, le serveur
+	 * pouvant attendre les autres joueurs avant de répondre.
+	 */
+	private void send(String msg) {
+		out.println(msg);
+		sentAt = System.nanoTime();
+	}
+
+	private synchronized void record(long micros) {
+		if (nbSamples == samples.length) {
+			samples = Arrays.copyOf(samples, nbSamples * 2);
+		}
+		samples[nbSamples++] = micros;
+	}
+
+	/**
+	 * Allers-retours mesurés jusqu'ici.
+	 */
+	synchronized long[] getSamples() {
+		return Arrays.copyOf(samples, nbSamples);
+	}
+}
@@ -10,12 +10,20 @@ package client;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 public class Client {
 
+	/**
+	 * Test de présence du serveur, auquel le client répond automatiquement.
+	 */
+	private static final String PING = "#ping";
+	private static final String PONG = "#pong";
+
 	private Socket socket;
 	private BufferedReader in;
 	private PrintWriter out;
@@ -36,8 +44,10 @@ public class Client {
 
 		try{
 			socket = s;
-			in  = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-			out = new PrintWriter(socket.getOutputStream(), true);
+			socket.setKeepAlive(true);
+			// Le serveur encode toujours ses messages en UTF-8
+			in  = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
 			sc  = new Scanner(System.in);
 			String entry = null;
 
@@ -87,6 +97,10 @@ public class Client {
 				try{
 					while(in.ready()) {
 						serverMsg = in.readLine();
+						if (PING.equals(serverMsg)) {
+							out.println(PONG);
+							continue;
+						}
 						System.out.println(serverMsg);
 						// message envoyé par le serveur lorsqu'il ferme.
 						if ("Le serveur va close".equals(serverMsg)) {
@@ -0,0 +1,177 @@
+/** LoadGenerator.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package client;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Générateur de charge : ouvre plusieurs connexions simultanées au serveur,
+ * chacune pilotée par un Bot, puis affiche le débit et les temps de réponse.
+ */
+public class LoadGenerator {
+
+	/**
+	 * Taille de pile des threads des bots, suffisante pour des milliers de connexions.
+	 */
+	private static final long BOT_STACK_SIZE = 256 * 1024;
+
+	/**
+	 * Délai laissé aux bots pour finir leur partie après l'échéance.
+	 */
+	private static final long GRACE_DELAY = 10000;
+
+	/**
+	 * Compteurs partagés par tous les bots.
+	 */
+	static class Stats {
+		private final LongAdder connections = new LongAdder();
+		private final LongAdder games       = new LongAdder();
+		private final LongAdder matches     = new LongAdder();
+		private final LongAdder queueWait   = new LongAdder(); // en ns
+		private final LongAdder connectTime = new LongAdder(); // en ns
+		private final LongAdder errors      = new LongAdder();
+
+		void connected(long nanos) {
+			connections.increment();
+			connectTime.add(nanos);
+		}
+
+		/**
+		 * Appelé quand une partie commence.
+		 * @param nanos temps passé dans la queue
+		 */
+		void matched(long nanos) {
+			matches.increment();
+			queueWait.add(nanos);
+		}
+
+		void gamePlayed() { games.increment();  }
+		void error()      { errors.increment(); }
+	}
+
+
+	/**
+	 * Main du générateur de charge
+	 * @param args 0 = nom du serveur, 1 = port, 2 = nombre de clients,
+	 *             3 = jeu ("morpion" ou "blackjack", morpion par défaut),
+	 *             4 = durée en secondes (30 par défaut),
+	 *             5 = nombre de joueurs par table de Black-Jack (2 par défaut)
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 3) {
+			System.out.println("Usage : nom_de_serveur port nb_clients [morpion|blackjack] [durée_s] [joueurs_par_table]");
+			System.exit(1);
+		}
+
+		String host = args[0];
+		int port, nbClients, duration, nbPlayers;
+		String game = args.length > 3 ? args[3].toLowerCase() : "morpion";
+		try {
+			port      = Integer.parseInt(args[1]);
+			nbClients = Integer.parseInt(args[2]);
+			duration  = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+			nbPlayers = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+		} catch (NumberFormatException e) {
+			System.out.println("Erreur dans les arguments : " + e.getMessage());
+			System.exit(2);
+			return;
+		}
+		if (!game.equals("morpion") && !game.equals("blackjack")) {
+			System.out.println(game + " n'est pas un jeu disponible");
+			System.exit(2);
+		}
+
+		// Chaque fin de partie est vue par tous les joueurs de la table
+		int tableSize = game.equals("morpion") ? 2 : nbPlayers;
+		Stats stats = new Stats();
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.SECONDS.toNanos(duration);
+		Bot[] bots = new Bot[nbClients];
+		Thread[] threads = new Thread[nbClients];
+		for (int i = 0; i < nbClients; i++) {
+			bots[i] = new Bot(i, host, port, game, nbPlayers, deadline, stats);
+			threads[i] = new Thread(null, bots[i], "Bot " + i, BOT_STACK_SIZE);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		// Rapport chaque seconde jusqu'à l'échéance
+		long lastConnections = 0, lastGames = 0;
+		while (System.nanoTime() < deadline) {
+			Thread.sleep(1000);
+			long connections = stats.connections.sum();
+			long games = stats.games.sum() / tableSize;
+			System.out.printf("%4ds  connexions/s %6d  parties/s %6d  erreurs %d%n",
+				TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+				connections - lastConnections, games - lastGames, stats.errors.sum());
+			lastConnections = connections;
+			lastGames = games;
+		}
+
+		// Les bots finissent leur partie en cours avant de quitter
+		long end = System.currentTimeMillis() + GRACE_DELAY;
+		int remaining = 0;
+		for (Thread t : threads) {
+			t.join(Math.max(1, end - System.currentTimeMillis()));
+			if (t.isAlive()) {
+				remaining++;
+			}
+		}
+		report(stats, bots, tableSize, System.nanoTime() - start);
+		if (remaining > 0) {
+			System.out.println("Bots encore en partie ou en queue : " + remaining);
+		}
+		System.exit(0);
+	}
+
+	private static void report(Stats stats, Bot[] bots, int tableSize, long elapsed) {
+		long[][] perBot = new long[bots.length][];
+		int total = 0;
+		for (int i = 0; i < bots.length; i++) {
+			perBot[i] = bots[i].getSamples();
+			total += perBot[i].length;
+		}
+		long[] samples = new long[total];
+		int pos = 0;
+		for (long[] s : perBot) {
+			System.arraycopy(s, 0, samples, pos, s.length);
+			pos += s.length;
+		}
+		Arrays.sort(samples);
+
+		double seconds = elapsed / 1e9;
+		long connections = stats.connections.sum();
+		long games = stats.games.sum() / tableSize;
+		long matches = stats.matches.sum();
+		System.out.println("----------------------------------------");
+		System.out.printf("Durée                : %.1f s%n", seconds);
+		System.out.printf("Connexions           : %d (%.1f/s, %.2f ms en moyenne)%n", connections,
+			connections / seconds, connections == 0 ? 0 : stats.connectTime.sum() / 1e6 / connections);
+		System.out.printf("Parties jouées       : %d (%.1f/s)%n", games, games / seconds);
+		System.out.printf("Attente en queue     : %.2f ms en moyenne%n",
+			matches == 0 ? 0 : stats.queueWait.sum() / 1e6 / matches);
+		System.out.printf("Allers-retours       : %d%n", samples.length);
+		if (samples.length > 0) {
+			System.out.printf("  p50 %.3f ms  p90 %.3f ms  p99 %.3f ms  p99.9 %.3f ms  max %.3f ms%n",
+				percentile(samples, 50), percentile(samples, 90), percentile(samples, 99),
+				percentile(samples, 99.9), samples[samples.length - 1] / 1000.0);
+		}
+		System.out.printf("Erreurs              : %d%n", stats.errors.sum());
+	}
+
+	/**
+	 * @param sorted temps en microsecondes, triés
+	 * @return le percentile demandé, en millisecondes
+	 */
+	private static double percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1000.0;
+	}
+}
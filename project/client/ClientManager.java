@@ -7,200 +7,586 @@
 
 package project.client;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+import project.metrics.DisconnectReason;
+import project.net.BinaryProtocol;
+import project.net.Connection;
+import project.net.ConnectionListener;
+import project.net.Frame;
+import project.server.GameTable;
 import project.server.IServer;
-import project.game.*;
 
-public class ClientManager implements Runnable {
+public class ClientManager implements ConnectionListener {
+
+	/**
+	 * Reconnexion après une coupure : "#resume jeton" à la place du nom.
+	 */
+	public static final String RESUME = "#resume ";
+
+	private static final SecureRandom tokens = new SecureRandom();
+
+	/**
+	 * Connexion d'un joueur pas encore revenu dans une partie reprise depuis
+	 * le journal : les messages sont perdus.
+	 */
+	private static final Connection OFFLINE = new Connection() {
+		public void setListener(ConnectionListener listener) {}
+		public void send(Frame frame) {}
+		public void setBinary() {}
+		public void cork()  {}
+		public void flush() {}
+		public void close(DisconnectReason reason) {}
+		public boolean isOpen() { return false; }
+	};
+
+	/**
+	 * Argent d'un nouveau joueur.
+	 */
+	public static final double INITIAL_MONEY = 1000;
 
-	private static long clientId = 0;
+	private static final Frame MENU = Frame.of("A quel jeu voulez-vous jouer ? \n" +
+	                                           "\t (1) Morpion \n" +
+	                                           "\t (2) Black-Jack \n" +
+	                                           "\t (exit) Pour quitter");
+
+	/**
+	 * Etats du client hors partie.
+	 */
+	private enum State { NAME, MENU, BJ_PLAYERS }
+
+	private static final AtomicLong clientId = new AtomicLong();
 	private long id;
 
 	private IServer server;
-	private Socket socket;
-	private BufferedReader in;
-	private PrintWriter out;
-	private IGame game;
+	private volatile Connection connection;
+	private volatile GameTable table;
 	private Thread thread;
 
 	private String name;
+	private State state;
 	private double money;
+	private volatile double rating;
 	private int bet;
-	private boolean isPlaying;
-	private boolean myTurn;
-	private boolean blackJack;
-	private boolean inQueue;
-	private boolean infoReceived;
+	private volatile boolean isPlaying;
+	private volatile boolean myTurn;
+	private volatile boolean inQueue;
+	private volatile long queuedAt;
+
+	/**
+	 * Tailles de table acceptées au Black-Jack.
+	 */
+	private volatile int minPlayers;
+	private volatile int maxPlayers;
+
+	/**
+	 * Jeton donné avec le nom, permettant de reprendre sa place dans une
+	 * partie après une coupure de connexion.
+	 */
+	private String token;
+
+	/**
+	 * Connexion perdue en pleine partie : la place est gardée dans le cache de
+	 * sessions du serveur jusqu'à la reprise ou l'expiration. Modifié sous
+	 * le verrou du client.
+	 */
+	private volatile boolean detached;
+
+	/**
+	 * Fermeture décidée par le serveur : la session n'est pas gardée.
+	 */
+	private volatile boolean killed;
+
+	/**
+	 * Dernier message reçu pendant le tour du joueur, renvoyé à la reprise.
+	 */
+	private volatile Frame lastPrompt;
+
+	/**
+	 * Cluster : relais vers le nœud où se joue la partie (joueur de ce nœud),
+	 * ou true si ce client est lui-même un joueur relayé par un autre nœud.
+	 */
+	private volatile ProxyLink proxy;
+	private boolean proxied;
+
+	/**
+	 * Joueur relayé : son argent a été reçu du coordinateur au lancement de
+	 * la table, et sera renvoyé à son nœud à la fin de la partie.
+	 */
+	private boolean staked;
+
+	/**
+	 * Partie reprise en cours de relecture du journal : les gains et les
+	 * variations de classement déjà enregistrés avant l'arrêt ne sont
+	 * appliqués qu'au joueur, pas aux soldes conservés.
+	 */
+	private volatile boolean replaying;
 
 
 	/**
 	 * Constructeur du gérant de client
-	 * @param s le socket propre au client
+	 * @param connection la connexion propre au client
 	 * @param server le serveur auquel le client appartient
 	 */
-	public ClientManager(Socket s, IServer server) throws IOException {
-		id     = clientId++;
-		socket = s;
-		in  = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-		out = new PrintWriter(socket.getOutputStream(), true);
-		money     = 1000; // Possède 1000 golds par default
+	public ClientManager(Connection connection, IServer server) {
+		id     = clientId.getAndIncrement();
+		this.connection = connection;
+		state  = State.NAME;
+		money     = INITIAL_MONEY;
 		isPlaying = false;
 		inQueue   = false;
 		myTurn    = false;
-		blackJack = false;
-		game      = null;
-		infoReceived = false;
+		table     = null;
 		this.server  = server;
+		connection.setListener(this);
 	}
 
-	public void run() {
-		System.out.println("Client " + id + " connecté");
+	/**
+	 * Joueur d'une partie reprise depuis le journal après un redémarrage du
+	 * serveur. Il est considéré comme coupé : sa place est gardée jusqu'à son
+	 * retour avec son jeton de reprise.
+	 * @param money l'argent du joueur au lancement de la partie ; le solde
+	 * conservé n'est pas modifié, d'autres sessions ont pu le changer depuis
+	 */
+	public static ClientManager restore(IServer server, String name, String token, double money) {
+		ClientManager c = new ClientManager(OFFLINE, server);
+		c.name     = name;
+		c.token    = token;
+		c.money    = money;
+		c.rating   = server.getRatings().get(name);
+		c.state    = State.MENU;
+		c.detached = true;
+		c.replaying = true;
+		return c;
+	}
 
-		try {
-			askName();
-			String msg = "";
-			do {
-				// Déconnection d'urgence
-				if(!isConnected()) {
-					if(game != null)
-						game.emergencyShutDown();
-
-					server.disconnectClient(this);
-				}
+	/**
+	 * La partie reprise a rattrapé le journal : les gains et le classement
+	 * sont de nouveau conservés, et repris depuis leurs soldes.
+	 */
+	public void endReplay() {
+		replaying = false;
+		money  = server.getWallets().get(name);
+		rating = server.getRatings().get(name);
+	}
 
-				if(!inQueue && !infoReceived && !isPlaying) {
-					infoReceived = true;
-					out.println("A quel jeu voulez-vous jouer ? \n" +
-					            "\t (1) Morpion \n" +
-								"\t (2) Black-Jack \n" +
-								"\t (exit) Pour quitter");
-				}
+	public void onOpen() {
+		System.out.println("Client " + id + " connecté");
+		connection.send("Votre nom ?");
+	}
 
-				while(in.ready()) {
-					msg = in.readLine();
-					infoReceived = false;
-				}
+	/**
+	 * Traite une ligne reçue du client.
+	 * Pendant une partie, la ligne est transmise à la table, qui ne la donne
+	 * au jeu que si c'est le tour du joueur.
+	 */
+	public void onLine(String msg) {
+		ProxyLink link = proxy;
+		if (link != null) {
+			link.send(msg);
+			return;
+		}
+		GameTable current = table;
+		if (isPlaying) {
+			if (current != null) {
+				current.input(this, msg);
+			}
+			return;
+		}
+		if (proxied) {
+			// joueur relayé en attente des autres joueurs de sa table
+			return;
+		}
 
-				if(msg.equals("exit")) {
-					socket.close();
-					server.disconnectClient(this);
-				}
+		if (msg.equals("exit")) {
+			connection.close(DisconnectReason.EXIT);
+			return;
+		}
 
-				if(msg.equals("leave") && inQueue) {
-					server.exitQueue(this);
+		switch (state) {
+			case NAME :
+				if (msg.startsWith(ProxyLink.HANDSHAKE)) {
+					acceptProxy(msg);
+				} else if (msg.startsWith(RESUME)) {
+					resume(msg.substring(RESUME.length()).trim());
+				} else {
+					setName(msg);
 				}
-
-				if(!inQueue && msg != "") {
-					server.getInQueue(this, msg);
+				break;
+			case BJ_PLAYERS :
+				// Place le joueur dans la queue du Black-Jack avec les tailles de table acceptées
+				int[] range = parseRange(msg, 2, 7);
+				if (range != null) {
+					minPlayers = range[0];
+					maxPlayers = range[1];
+					state = State.MENU;
+					server.getInQueue(this, "Black-Jack");
 				}
-
-				// Evite que d'anciens messages écrits avant le tour du joueur viennent
-				// entrâver la lecture des messages de celui-ci
-				if(!myTurn) {
-					msg = "";
+				break;
+			case MENU :
+				if (inQueue) {
+					if (msg.equals("leave")) {
+						server.exitQueue(this);
+						showMenu();
+					}
+					break;
 				}
+				switch (msg) {
+					case BinaryProtocol.NEGOTIATE :
+						// Le client passe au protocole binaire, après l'accusé de réception en texte
+						connection.send(BinaryProtocol.ACK);
+						connection.setBinary();
+						break;
+					case "1" : // 1 = Morpion
+						server.getInQueue(this, "Morpion2p");
+						break;
+					case "2" :
+						// Demande au joueur dans quelle room il veut jouer
+						state = State.BJ_PLAYERS;
+						connection.send("Avec combien de joueurs voulez-vous jouer ? (2-7, ou plusieurs tailles, ex : 3-5)");
+						break;
+					default :
+						connection.send("Votre entrée correspond à aucun jeu disponible");
+						showMenu();
+						break;
+				}
+				break;
+		}
+	}
 
-				Thread.sleep(100);
-			} while (msg != null || !msg.equals("exit"));
-			socket.close();
-		} catch (IOException e)          { System.out.println("IOException catched"); }
-		  catch (InterruptedException e) { System.out.println("InterruptedException catched"); }
+	/**
+	 * Déconnexion (normale ou non) : le jeu en cours est interrompu et
+	 * le client est retiré du serveur.
+	 * Une coupure en pleine partie laisse d'abord au joueur le temps de
+	 * revenir : le jeu attend sa réponse jusqu'à l'expiration de la session.
+	 */
+	public void onClose() {
+		ProxyLink link = proxy;
+		if (link != null) {
+			link.close();
+		}
+		if (suspend()) {
+			return;
+		}
+		leave();
+	}
 
+	/**
+	 * Retire définitivement le client : le jeu en cours est interrompu.
+	 */
+	private void leave() {
+		GameTable current = table;
+		if (isPlaying && current != null) {
+			current.disconnect(this);
+		}
+		if (inQueue) {
+			server.exitQueue(this);
+		}
+		server.disconnectClient(this);
 		System.out.println(id + " s'est déconnecté");
 	}
 
+	/**
+	 * Garde la place du joueur dans sa partie après une coupure.
+	 * Les joueurs relayés du cluster et les clients renvoyés par le serveur
+	 * ne sont pas gardés.
+	 * @return false si le client doit être retiré tout de suite
+	 */
+	private boolean suspend() {
+		synchronized (this) {
+			if (!isPlaying || table == null || killed || proxied || token == null) {
+				return false;
+			}
+			detached = true;
+		}
+		System.out.println("Client " + id + " : connexion perdue, place gardée dans " + table.getGame().getInfo());
+		server.getSessions().put(token, this);
+		return true;
+	}
+
+	/**
+	 * Session expirée (ou évincée) du cache : le joueur est retiré et sa
+	 * partie interrompue, comme pour une déconnexion immédiate.
+	 */
+	public void expireSession() {
+		synchronized (this) {
+			if (!detached) {
+				return;
+			}
+			detached = false;
+		}
+		leave();
+	}
+
+	/**
+	 * Reconnexion : la connexion de ce client est transférée à la session
+	 * gardée, qui reprend sa place dans la partie.
+	 */
+	private void resume(String token) {
+		ClientManager session = server.getSessions().take(token);
+		if (session == null || !session.rebind(connection)) {
+			connection.send("Session expirée");
+			connection.send("Votre nom ?");
+			return;
+		}
+		server.detachClient(this);
+		System.out.println("Client " + id + " : reprise de la session de " + session.getName());
+	}
 
-	private void askName() throws IOException {
-		out.println("Votre nom ?");
+	/**
+	 * Reprend la session avec une nouvelle connexion, depuis le thread de
+	 * lecture de cette connexion.
+	 * @return false si la session a pris fin entre-temps
+	 */
+	private boolean rebind(Connection conn) {
+		synchronized (this) {
+			if (!detached) {
+				return false;
+			}
+			detached = false;
+			connection = conn;
+			conn.setListener(this);
+		}
+		GameTable current = table;
+		if (!isPlaying || current == null) {
+			showMenu();
+			return true;
+		}
+		current.resume(this, lastPrompt);
+		return true;
+	}
+
+
+	private void setName(String msg) {
 		// Nom du client (maximum 32 caractères)
-		name = in.readLine();
+		name = msg;
 		if (name.length() > 32) {
 			name = name.substring(0, 32);
 		}
-		if (name.equals("exit")) {
-			socket.close();
-			server.disconnectClient(this);
-		}
 		// info serveur
 		System.out.println("Client " + id + " : " + name);
-		thread.setName(thread.getName().replace("null", name));
+		money = server.getWallets().get(name);
+		rating = server.getRatings().get(name);
+		if (thread != null) {
+			thread.setName(thread.getName().replace("null", name));
+		}
 
-		out.println("Bienvenue " + name + " !");
+		byte[] bytes = new byte[16];
+		tokens.nextBytes(bytes);
+		token = HexFormat.of().formatHex(bytes);
+
+		connection.send("Bienvenue " + name + " !");
+		connection.send("Jeton de reprise : " + token);
+		state = State.MENU;
+		showMenu();
 	}
 
+	/**
+	 * Connexion ouverte par un autre nœud pour y relayer un de ses joueurs :
+	 * "#proxy table place secret nom". Le client attend le lancement de la partie.
+	 * Le secret de la table authentifie le relais ; l'argent du joueur n'est
+	 * pas lu ici mais reçu du coordinateur (voir stake()).
+	 */
+	private void acceptProxy(String msg) {
+		String[] parts = msg.split(" ", 5);
+		try {
+			long matchId = Long.parseLong(parts[1]);
+			int seat = Integer.parseInt(parts[2]);
+			String secret = parts[3];
+			name = parts[4];
+			proxied = true;
+			state = State.MENU;
+			if (!server.proxyJoined(this, matchId, seat, secret)) {
+				System.out.println("Client " + id + " : relais refusé pour la table " + matchId);
+				connection.close();
+			}
+		} catch (RuntimeException e) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Relais accepté par le nœud hôte, avant tout message de la partie.
+	 */
+	public void proxyAccepted(long matchId) {
+		System.out.println("Client " + id + " : " + name + " relayé pour la table " + matchId);
+		connection.send(ProxyLink.ACCEPTED);
+	}
 
 	/**
-	 * Méthode appelant checkNumbersInString pour demander avec combien d'autres
-	 * joueurs le client veut jouer au Black-Jack
+	 * Joueur relayé : argent donné par son propre nœud, au lancement de la table.
 	 */
-	public int askBJPlayers() { return checkNumbersInString(2, 7); }
+	public void stake(double money) {
+		this.money = money;
+		staked = true;
+	}
+
+	private void showMenu() {
+		connection.send(MENU);
+	}
 
 
 	/**
 	 * Méthode permettant de vérifier si un nombre entré est bien un nombre
 	 * et qu'il est situé dans l'intervale donné en paramètre
+	 * @param entry la saisie du client
 	 * @param min la borne inférieure
 	 * @param max la borne supérieure
-	 * @return nb le nombre converti en int
+	 * @return le nombre converti en int, -1 si la saisie est incorrecte
 	 */
-	public int checkNumbersInString(int min, int max) {
-		int nb = 0;
-		try {
-			do{
-				String entry = in.readLine();
-				if(entry.matches("[0-9]+")) {
-					nb = Integer.parseInt(entry);
-					if(nb < min || nb > max)
-						out.println("Erreur, veuillez entrer un nombre entre " + min + " et " + max + " (compris)");
-				}
-				else
-					out.println("Erreur, vous n'avez pas entré un nombre correct");
-			}while(nb < min || nb > max);
-		}catch(IOException e)          { System.out.println("IOException catched"); }
-		 catch(NullPointerException e) { System.out.println("NullPointerException catched"); }
-
+	private int parseNumber(String entry, int min, int max) {
+		if (!entry.matches("[0-9]+")) {
+			connection.send("Erreur, vous n'avez pas entré un nombre correct");
+			return -1;
+		}
+		int nb = Integer.parseInt(entry);
+		if (nb < min || nb > max) {
+			connection.send("Erreur, veuillez entrer un nombre entre " + min + " et " + max + " (compris)");
+			return -1;
+		}
 		return nb;
 	}
 
+	/**
+	 * Lit un nombre ou une plage "a-b" de nombres entre min et max.
+	 * @return {a, b}, null si l'entrée est incorrecte
+	 */
+	private int[] parseRange(String entry, int min, int max) {
+		int sep = entry.indexOf('-');
+		if (sep == -1) {
+			int nb = parseNumber(entry, min, max);
+			return nb == -1 ? null : new int[] {nb, nb};
+		}
+		int from = parseNumber(entry.substring(0, sep).trim(), min, max);
+		if (from == -1) {
+			return null;
+		}
+		int to = parseNumber(entry.substring(sep + 1).trim(), min, max);
+		if (to == -1) {
+			return null;
+		}
+		if (from > to) {
+			connection.send("Erreur, le premier nombre doit être le plus petit");
+			return null;
+		}
+		return new int[] {from, to};
+	}
+
 	/**
 	 * Méthode permettant de recevoir des messages de l'exétérieur destinées uniquement
 	 * au joueur
 	 * @param msg le message que doit recevoir le joueur
 	 */
 	public void receiveMessage(String msg) {
-		out.println(msg);
+		receiveMessage(Frame.of(msg));
+	}
+
+	/**
+	 * Envoie au joueur un message déjà encodé
+	 * @param frame le message, pouvant être partagé avec d'autres joueurs
+	 */
+	public void receiveMessage(Frame frame) {
+		if (myTurn) {
+			lastPrompt = frame;
+		}
+		connection.send(frame);
+	}
+
+	/**
+	 * Regroupe les messages suivants jusqu'au prochain flush()
+	 */
+	public void cork() {
+		connection.cork();
 	}
 
 	/**
-	 * Méthode mettant fin au thread et détruit le GerantClient
+	 * Envoie les messages regroupés depuis cork()
+	 */
+	public void flush() {
+		connection.flush();
+	}
+
+	/**
+	 * Méthode fermant la connexion du client
 	 */
 	public void kill() {
-		thread.interrupt();
+		killed = true;
+		connection.close();
 	}
 
 
 	/**
 	 * Méthode appelée en début de jeu afin de "set" tous les attributs nécessaires
+	 * @param table la table de la partie
 	 */
-	public void startPlaying(IGame game)    {
-		isPlaying = true ;
-		this.game = game;
+	public void startPlaying(GameTable table) {
+		this.table = table;
 		inQueue = false;
+		isPlaying = true ;
 	}
 
 
 	/**
-	 * Méthode appelée en début de jeu afin de "reset" tous les attributs nécessaires
+	 * Méthode appelée en fin de jeu afin de "reset" tous les attributs nécessaires
 	 */
 	public void endPlaying() {
+		synchronized (this) {
+			if (detached) {
+				// Fin de partie pendant la coupure : la session n'est plus utile
+				detached = false;
+				server.getSessions().remove(token, this);
+				isPlaying = false;
+				table = null;
+				server.disconnectClient(this);
+				return;
+			}
+		}
+		if (proxied) {
+			// Fin de partie d'un joueur relayé : son argent retourne à son nœud,
+			// sauf si la table n'a pas été lancée (il garde alors son argent)
+			if (staked) {
+				connection.send(ProxyLink.END + money);
+				connection.flush();
+			}
+			connection.close();
+			return;
+		}
+		if (!isPlaying) {
+			return;
+		}
 		isPlaying = false;
-		game = null;
+		table = null;
 		myTurn = false;
+		lastPrompt = null;
+		if (isConnected()) {
+			showMenu();
+		}
+	}
+
+
+	/**
+	 * Cluster : la partie se joue sur un autre nœud, les messages du joueur y
+	 * sont relayés jusqu'à endProxy().
+	 */
+	public void startProxy(ProxyLink link) {
+		inQueue   = false;
+		myTurn    = false;
+		isPlaying = true;
+		proxy     = link;
+	}
+
+	/**
+	 * Fin d'une partie jouée sur un autre nœud : retour au menu.
+	 * @param money l'argent du joueur à la fin de la partie
+	 */
+	public void endProxy(double money) {
+		proxy = null;
+		// seul le gain est appliqué : une autre session du joueur a pu
+		// modifier son solde pendant la partie
+		this.money = server.getWallets().add(name, money - this.money);
+		endPlaying();
 	}
 
 
@@ -210,28 +596,54 @@ public class ClientManager implements Runnable {
 
 	public void yourTurn()                  { myTurn = true;       }
 	public void standby()                   { myTurn = false;      }
-	public void enterQueue()                { inQueue = true;      }
+	public void enterQueue()                { inQueue = true; queuedAt = System.nanoTime(); }
+	// remis en queue après une table annulée : l'attente continue
+	public void returnToQueue()             { inQueue = true;      }
 	public void exitQueue()                 { inQueue = false;     }
 	public void setThread(Thread t )        { thread = t;          }
-	public void setBlackJack(Boolean state) { blackJack = state;   }
 	public void setBet(int bet)				{ this.bet = bet;      }
-	public void earnMoney(double money)     { this.money += money; }
+	public void earnMoney(double money) {
+		// l'argent d'un joueur relayé est conservé par son propre nœud
+		if (proxied || replaying) {
+			this.money += money;
+		} else {
+			this.money = server.getWallets().add(name, money);
+		}
+	}
+	/**
+	 * Applique une variation du classement, sans écraser celle d'une autre
+	 * session du même joueur.
+	 */
+	public void addRating(double delta) {
+		if (replaying) {
+			rating += delta;
+		} else {
+			rating = server.getRatings().add(name, delta);
+		}
+	}
 
 
 	/**
 	 * Getters
 	 */
 
-	public boolean isConnected()  { return !socket.isClosed(); }
+	/**
+	 * Un joueur coupé en pleine partie reste connecté jusqu'à l'expiration de sa session.
+	 */
+	public boolean isConnected()  { return detached || connection.isOpen(); }
 	public boolean isPlaying()    { return this.isPlaying;  }
+	public boolean isMyTurn()     { return this.myTurn;     }
+	public boolean isProxied()    { return this.proxied;    }
 	public boolean isInQueue()    { return this.inQueue;    }
-	public BufferedReader getBF() { return this.in;         }
-	public Socket getSocket()     { return this.socket;     }
 	public String getName()       { return this.name;       }
+	public String getToken()      { return this.token;      }
 	public long getId()           { return this.id;         }
 	public int getBet()           { return this.bet;        }
-	public boolean getBlackJack() { return this.blackJack;  }
 	public double getMoney()      { return this.money;      }
+	public double getRating()     { return this.rating;     }
+	public long getQueuedAt()     { return this.queuedAt;   }
+	public int getMinPlayers()    { return this.minPlayers; }
+	public int getMaxPlayers()    { return this.maxPlayers; }
 
 
 
@@ -239,8 +651,11 @@ public class ClientManager implements Runnable {
 		String s = String.format("Client %d \"%s\"", id, name);
 		if (inQueue) {
 			s += " en attente d'une partie";
-		} else if (game != null) {
-			s += " joue : " + game.getInfo();
+		} else if (table != null) {
+			s += " joue : " + table.getGame().getInfo();
+		}
+		if (detached) {
+			s += " (connexion perdue)";
 		}
 		return s;
 	}
@@ -0,0 +1,200 @@
+/** ProxyLink.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import project.net.Heartbeat;
+
+/**
+ * Cluster : relaie un joueur de ce serveur vers le nœud où se joue sa partie.
+ * Le relais se présente au nœud hôte comme un client ordinaire, puis recopie
+ * les lignes dans les deux sens jusqu'à la fin de la partie.
+ *
+ * Le relais lit le nœud hôte sur son propre thread. Ses envois sont faits par
+ * le pool d'écrivains du serveur : send() ne bloque donc jamais le thread du
+ * joueur, même si le nœud hôte est lent.
+ */
+public class ProxyLink implements Runnable {
+
+	/**
+	 * Première ligne envoyée au nœud hôte : "#proxy table place secret nom".
+	 * L'argent du joueur n'y figure pas : le nœud hôte le reçoit du coordinateur.
+	 */
+	public static final String HANDSHAKE = "#proxy ";
+	public static final String ACCEPTED  = "#proxy ok";
+
+	/**
+	 * Dernière ligne envoyée par le nœud hôte, suivie de l'argent du joueur.
+	 */
+	public static final String END = "#proxy end ";
+
+	private final ClientManager player;
+	private final String host;
+	private final int port;
+	private final long matchId;
+	private final int seat;
+	private final String secret;
+	private volatile Socket socket;
+	private volatile boolean accepted;
+
+	/**
+	 * Lignes à envoyer au nœud hôte. scheduled : un écrivain s'en occupe.
+	 */
+	private final ConcurrentLinkedQueue<String> outbox;
+	private final AtomicBoolean scheduled;
+	private Executor writers;
+	private volatile PrintWriter out;
+
+	/**
+	 * @param secret le secret de la table, tiré par le coordinateur
+	 */
+	public ProxyLink(ClientManager player, String host, int port, long matchId, int seat, String secret) {
+		this.player  = player;
+		this.host    = host;
+		this.port    = port;
+		this.matchId = matchId;
+		this.seat    = seat;
+		this.secret  = secret;
+		outbox    = new ConcurrentLinkedQueue<String>();
+		scheduled = new AtomicBoolean(false);
+	}
+
+	/**
+	 * Ouvre le relais.
+	 * @param threads crée le thread de lecture du relais
+	 * @param writers le pool d'écrivains du serveur
+	 */
+	public void start(ThreadFactory threads, Executor writers) {
+		this.writers = writers;
+		player.startProxy(this);
+		threads.newThread(this).start();
+	}
+
+	public void run() {
+		double money = player.getMoney();
+		try {
+			socket = new Socket(host, port);
+			if (!player.isConnected()) {
+				// déconnecté pendant l'ouverture du relais
+				throw new IOException("Joueur déconnecté");
+			}
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			post(HANDSHAKE + matchId + " " + seat + " " + secret + " " + player.getName());
+
+			// Les messages d'accueil du nœud hôte ne concernent pas le joueur
+			String line;
+			while ((line = in.readLine()) != null && !line.equals(ACCEPTED)) {
+				answerPing(line);
+			}
+			accepted = true;
+
+			while ((line = in.readLine()) != null) {
+				if (answerPing(line)) {
+					continue;
+				}
+				if (line.startsWith(END)) {
+					money = Double.parseDouble(line.substring(END.length()));
+					break;
+				}
+				player.cork();
+				player.receiveMessage(line);
+				if (!in.ready()) {
+					player.flush();
+				}
+			}
+			if (line == null) {
+				player.receiveMessage("La partie a été interrompue");
+			}
+		} catch (IOException | NumberFormatException e) {
+			player.receiveMessage("La partie a été interrompue");
+		}
+		close();
+		player.flush();
+		player.endProxy(money);
+	}
+
+	/**
+	 * Le nœud hôte surveille le relais comme tout client : le relais répond
+	 * lui-même à ses PING, le joueur étant surveillé par son propre serveur.
+	 * @return true si la ligne était un PING
+	 */
+	private boolean answerPing(String line) {
+		if (line.equals(Heartbeat.PING)) {
+			post(Heartbeat.PONG);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Transmet une ligne du joueur au nœud hôte, sans attendre son envoi.
+	 * Les lignes envoyées avant l'ouverture du relais sont ignorées.
+	 */
+	public void send(String msg) {
+		if (accepted) {
+			post(msg);
+		}
+	}
+
+	/**
+	 * Met la ligne en file et confie son envoi au pool d'écrivains.
+	 */
+	private void post(String line) {
+		outbox.add(line);
+		if (scheduled.compareAndSet(false, true)) {
+			writers.execute(this::write);
+		}
+	}
+
+	/**
+	 * Tâche de l'écrivain : envoie d'un coup les lignes en attente, puis se
+	 * replace dans le pool s'il en est arrivé d'autres. Une erreur d'écriture
+	 * ferme le relais, ce qui termine sa lecture.
+	 */
+	private void write() {
+		String line;
+		while ((line = outbox.poll()) != null) {
+			out.println(line);
+		}
+		out.flush();
+		if (out.checkError()) {
+			outbox.clear();
+			close();
+			return;
+		}
+		scheduled.set(false);
+		if (!outbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+			writers.execute(this::write);
+		}
+	}
+
+	/**
+	 * Ferme le relais : pour le nœud hôte, le joueur s'est déconnecté.
+	 */
+	public void close() {
+		accepted = false;
+		Socket s = socket;
+		if (s != null) {
+			try {
+				s.close();
+			} catch (IOException e) {}
+		}
+	}
+}
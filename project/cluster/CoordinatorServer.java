@@ -0,0 +1,141 @@
+/** CoordinatorServer.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.cluster;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Coordinateur partagé par plusieurs serveurs : expose un LocalCoordinator
+ * aux nœuds connectés en TCP (LoopbackCoordinator).
+ * Peut être lancé seul, ou dans le processus d'un des nœuds.
+ *
+ * Protocole texte, une commande par ligne :
+ *   nœud -> coordinateur : REGISTER id hôte port, WAITING id clé taille ids, CLAIMED id table 1|0 argent
+ *   coordinateur -> nœud : CLAIM table, GO id argent, RELEASE id
+ */
+public class CoordinatorServer implements Runnable {
+
+	private final ServerSocket ss;
+	private final LocalCoordinator coordinator;
+
+	/**
+	 * @param port le port d'écoute, ouvert sur l'interface locale uniquement
+	 */
+	public CoordinatorServer(int port) throws IOException {
+		ss = new ServerSocket();
+		ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		coordinator = new LocalCoordinator();
+	}
+
+	/**
+	 * Démarre l'écoute sur un thread dédié.
+	 */
+	public void start() {
+		Thread t = new Thread(this, "Coordinator listener");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	public void run() {
+		while (true) {
+			try {
+				Socket s = ss.accept();
+				Thread t = new Thread(() -> serve(s), "Coordinator node");
+				t.setDaemon(true);
+				t.start();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Traite les commandes d'un nœud jusqu'à sa déconnexion.
+	 */
+	private void serve(Socket s) {
+		int nodeId = -1;
+		try (Socket socket = s) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] parts = line.split(" ", 2);
+				String[] args = parts.length > 1 ? parts[1].split(" ") : new String[0];
+				try {
+					switch (parts[0]) {
+						case "REGISTER":
+							nodeId = Integer.parseInt(args[0]);
+							coordinator.register(new Node(nodeId, args[1], Integer.parseInt(args[2])), new Remote(out));
+							System.out.println("Coordinateur : nœud " + nodeId + " inscrit (" + args[1] + ":" + args[2] + ")");
+							break;
+						case "WAITING":
+							coordinator.waiting(Integer.parseInt(args[0]), args[1], Integer.parseInt(args[2]),
+								LoopbackCoordinator.decodeIds(args[3]));
+							break;
+						case "CLAIMED":
+							coordinator.claimed(Integer.parseInt(args[0]), Long.parseLong(args[1]), args[2].equals("1"),
+								LoopbackCoordinator.decodeMoney(args[3]));
+							break;
+						default:
+							System.out.println("Coordinateur : commande inconnue " + line);
+							break;
+					}
+				} catch (RuntimeException e) {
+					System.out.println("Coordinateur : commande mal formée " + line);
+				}
+			}
+		} catch (IOException e) {
+			// connexion du nœud perdue
+		}
+		if (nodeId != -1) {
+			coordinator.unregister(nodeId);
+			System.out.println("Coordinateur : nœud " + nodeId + " déconnecté");
+		}
+	}
+
+	/**
+	 * Transmet les décisions du coordinateur à un nœud distant.
+	 */
+	private static class Remote implements MatchCoordinator.Listener {
+		private final PrintWriter out;
+
+		private Remote(PrintWriter out) {
+			this.out = out;
+		}
+
+		public void claim(Match match)   { out.println("CLAIM " + match.encode()); }
+		public void go(Match match)      {
+			double[] money = new double[match.getNbPlayers()];
+			for (int i = 0; i < money.length; i++) {
+				money[i] = match.getMoney(i);
+			}
+			out.println("GO " + match.getId() + " " + LoopbackCoordinator.encodeMoney(money));
+		}
+		public void release(Match match) { out.println("RELEASE " + match.getId()); }
+	}
+
+	/**
+	 * Lance un coordinateur seul.
+	 * @param args 0 = port d'écoute (7000 par défaut)
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7000;
+		System.out.println("Coordinateur en écoute sur le port " + port);
+		new CoordinatorServer(port).run();
+	}
+}
@@ -0,0 +1,265 @@
+/** LocalCoordinator.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.cluster;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Coordinateur en mémoire : forme les tables à partir des joueurs publiés
+ * par les nœuds inscrits dans le même processus.
+ * Sert aussi de cœur au CoordinatorServer, qui l'expose aux nœuds distants.
+ * Les décisions sont transmises aux nœuds par un unique thread, dans l'ordre
+ * où elles sont prises, et jamais sous le verrou du coordinateur.
+ */
+public class LocalCoordinator implements MatchCoordinator {
+
+	/**
+	 * Table en cours de réservation.
+	 */
+	private static class Pending {
+		private final Match match;
+		private final Set<Integer> awaiting;
+		private final Set<Integer> claimed;
+		private final double[] money;
+		private boolean failed;
+
+		private Pending(Match match, Set<Integer> awaiting) {
+			this.match    = match;
+			this.awaiting = awaiting;
+			this.claimed  = new HashSet<Integer>();
+			this.money    = new double[match.getNbPlayers()];
+		}
+	}
+
+	private final Map<Integer, Node> nodes;
+	private final Map<Integer, Listener> listeners;
+
+	/**
+	 * Joueurs en attente par queue puis par nœud, dans leur ordre d'arrivée.
+	 */
+	private final Map<String, TreeMap<Integer, List<Long>>> waiting;
+	private final Map<String, Integer> tableSizes;
+
+	/**
+	 * Joueurs réservés par une table en cours, par nœud.
+	 */
+	private final Map<Integer, Set<Long>> reserved;
+	private final Map<Long, Pending> pending;
+	private final ExecutorService dispatcher;
+	private final SecureRandom random;
+	private long nextMatchId;
+
+	public LocalCoordinator() {
+		nodes      = new HashMap<Integer, Node>();
+		listeners  = new HashMap<Integer, Listener>();
+		waiting    = new HashMap<String, TreeMap<Integer, List<Long>>>();
+		tableSizes = new HashMap<String, Integer>();
+		reserved   = new HashMap<Integer, Set<Long>>();
+		pending    = new HashMap<Long, Pending>();
+		random      = new SecureRandom();
+		nextMatchId = 1;
+		dispatcher = Executors.newSingleThreadExecutor(task -> {
+			Thread t = new Thread(task, "Match coordinator");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public synchronized void register(Node node, Listener listener) {
+		nodes.put(node.getId(), node);
+		listeners.put(node.getId(), listener);
+		reserved.put(node.getId(), new HashSet<Long>());
+	}
+
+	/**
+	 * Retire un nœud (arrêt ou connexion perdue) : ses joueurs ne sont plus
+	 * proposés et les tables en cours de réservation qui le concernent échouent.
+	 */
+	public synchronized void unregister(int nodeId) {
+		nodes.remove(nodeId);
+		listeners.remove(nodeId);
+		reserved.remove(nodeId);
+		for (TreeMap<Integer, List<Long>> byNode : waiting.values()) {
+			byNode.remove(nodeId);
+		}
+		for (Pending p : new ArrayList<Pending>(pending.values())) {
+			if (p.awaiting.contains(nodeId)) {
+				answer(p, nodeId, false, null);
+			}
+		}
+	}
+
+	public synchronized void waiting(int nodeId, String key, int nbPlayers, long[] clientIds) {
+		if (!nodes.containsKey(nodeId)) {
+			return;
+		}
+		tableSizes.put(key, nbPlayers);
+		waiting.computeIfAbsent(key, k -> new TreeMap<Integer, List<Long>>()).put(nodeId, toList(clientIds));
+		tryMatch(key);
+	}
+
+	public synchronized void claimed(int nodeId, long matchId, boolean ok, double[] money) {
+		Pending p = pending.get(matchId);
+		if (p != null && p.awaiting.contains(nodeId)) {
+			answer(p, nodeId, ok, money);
+		}
+	}
+
+	private void answer(Pending p, int nodeId, boolean ok, double[] money) {
+		p.awaiting.remove(nodeId);
+		long[] ids = p.match.clientsOf(nodeId);
+		if (ok && money != null && money.length == ids.length) {
+			p.claimed.add(nodeId);
+			for (int i = 0; i < ids.length; i++) {
+				p.money[p.match.seatOf(nodeId, ids[i])] = money[i];
+			}
+		} else {
+			if (ok) {
+				// réservé sans l'argent de ses joueurs : la table ne peut pas être lancée
+				p.claimed.add(nodeId);
+			}
+			p.failed = true;
+		}
+		if (!p.awaiting.isEmpty()) {
+			return;
+		}
+
+		Match match = p.match;
+		pending.remove(match.getId());
+		for (int seat = 0; seat < match.getNbPlayers(); seat++) {
+			Set<Long> r = reserved.get(match.getSeatNode(seat));
+			if (r != null) {
+				r.removeAll(toList(match.clientsOf(match.getSeatNode(seat))));
+			}
+		}
+		if (!p.failed) {
+			// Les joueurs placés ne doivent plus être proposés, même si un nœud
+			// publie encore une ancienne liste
+			for (Map.Entry<Integer, List<Long>> e : waiting.get(match.getKey()).entrySet()) {
+				e.setValue(without(e.getValue(), toList(match.clientsOf(e.getKey()))));
+			}
+			Match ready = match.withMoney(p.money);
+			for (int nodeId2 : p.claimed) {
+				dispatch(nodeId2, l -> l.go(ready));
+			}
+		} else {
+			for (int nodeId2 : p.claimed) {
+				dispatch(nodeId2, l -> l.release(match));
+			}
+		}
+		tryMatch(match.getKey());
+	}
+
+	/**
+	 * Forme autant de tables que possible pour la queue avec des joueurs de
+	 * plusieurs nœuds. Un nœud ayant assez de joueurs pour une table complète
+	 * la lance lui-même : il n'est pas pris en compte.
+	 */
+	private void tryMatch(String key) {
+		int nbPlayers = tableSizes.get(key);
+		TreeMap<Integer, List<Long>> byNode = waiting.get(key);
+		while (true) {
+			Map<Integer, List<Long>> candidates = new TreeMap<Integer, List<Long>>();
+			int total = 0;
+			int host = -1;
+			for (Map.Entry<Integer, List<Long>> e : byNode.entrySet()) {
+				List<Long> free = without(e.getValue(), reserved.get(e.getKey()));
+				if (free.isEmpty() || free.size() >= nbPlayers) {
+					continue;
+				}
+				candidates.put(e.getKey(), free);
+				total += free.size();
+				if (host == -1 || free.size() > candidates.get(host).size()) {
+					host = e.getKey();
+				}
+			}
+			if (total < nbPlayers) {
+				return;
+			}
+
+			// L'hôte est le nœud qui a le plus de joueurs : le moins de joueurs relayés
+			int[] seatNodes = new int[nbPlayers];
+			long[] seatClients = new long[nbPlayers];
+			int seat = fill(host, candidates.remove(host), seatNodes, seatClients, 0);
+			for (Map.Entry<Integer, List<Long>> e : candidates.entrySet()) {
+				if (seat == nbPlayers) {
+					break;
+				}
+				seat = fill(e.getKey(), e.getValue(), seatNodes, seatClients, seat);
+			}
+
+			Match match = new Match(nextMatchId++, key, nodes.get(host), seatNodes, seatClients, newSecret());
+			Set<Integer> involved = new HashSet<Integer>();
+			for (int i = 0; i < nbPlayers; i++) {
+				involved.add(seatNodes[i]);
+				reserved.get(seatNodes[i]).add(seatClients[i]);
+			}
+			pending.put(match.getId(), new Pending(match, new HashSet<Integer>(involved)));
+			for (int nodeId : involved) {
+				dispatch(nodeId, l -> l.claim(match));
+			}
+		}
+	}
+
+	/**
+	 * @return un secret de table, sans espace pour le protocole texte
+	 */
+	private String newSecret() {
+		byte[] bytes = new byte[16];
+		random.nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	private static int fill(int nodeId, List<Long> ids, int[] seatNodes, long[] seatClients, int seat) {
+		for (int i = 0; i < ids.size() && seat < seatNodes.length; i++, seat++) {
+			seatNodes[seat]   = nodeId;
+			seatClients[seat] = ids.get(i);
+		}
+		return seat;
+	}
+
+	private void dispatch(int nodeId, Consumer<Listener> action) {
+		Listener l = listeners.get(nodeId);
+		if (l != null) {
+			dispatcher.execute(() -> action.accept(l));
+		}
+	}
+
+	private static List<Long> toList(long[] ids) {
+		List<Long> list = new ArrayList<Long>(ids.length);
+		for (long id : ids) {
+			list.add(id);
+		}
+		return list;
+	}
+
+	/**
+	 * @return les ids de la liste qui ne font pas partie de exclude
+	 */
+	private static List<Long> without(List<Long> ids, Collection<Long> exclude) {
+		List<Long> list = new ArrayList<Long>(ids.size());
+		for (long id : ids) {
+			if (exclude == null || !exclude.contains(id)) {
+				list.add(id);
+			}
+		}
+		return list;
+	}
+}
@@ -0,0 +1,166 @@
+/** LoopbackCoordinator.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.cluster;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accès d'un nœud à un CoordinatorServer, par TCP sur la machine locale.
+ * Les décisions reçues sont transmises au Listener depuis le thread de lecture.
+ */
+public class LoopbackCoordinator implements MatchCoordinator {
+
+	private final String host;
+	private final int port;
+	private PrintWriter out;
+
+	/**
+	 * Tables reçues avec CLAIM, en attente de GO ou RELEASE.
+	 */
+	private final ConcurrentHashMap<Long, Match> matches;
+
+	public LoopbackCoordinator(String host, int port) {
+		this.host = host;
+		this.port = port;
+		matches = new ConcurrentHashMap<Long, Match>();
+	}
+
+	public void register(Node node, Listener listener) throws IOException {
+		Socket socket = new Socket(host, port);
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+		send("REGISTER " + node.getId() + " " + node.getHost() + " " + node.getPort());
+
+		Thread reader = new Thread(() -> {
+			try {
+				String line;
+				while ((line = in.readLine()) != null) {
+					receive(line, listener);
+				}
+			} catch (IOException e) {
+				// connexion perdue
+			}
+			System.out.println("Connexion au coordinateur perdue : seules les parties locales sont lancées");
+		}, "Coordinator link");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	private void receive(String line, Listener listener) {
+		int sep = line.indexOf(' ');
+		String command = sep < 0 ? line : line.substring(0, sep);
+		String arg = sep < 0 ? "" : line.substring(sep + 1);
+		try {
+			Match match;
+			switch (command) {
+				case "CLAIM":
+					match = Match.decode(arg);
+					matches.put(match.getId(), match);
+					listener.claim(match);
+					break;
+				case "GO":
+					String[] args = arg.split(" ");
+					match = matches.remove(Long.parseLong(args[0]));
+					if (match != null) {
+						listener.go(match.withMoney(decodeMoney(args[1])));
+					}
+					break;
+				case "RELEASE":
+					match = matches.remove(Long.parseLong(arg));
+					if (match != null) {
+						listener.release(match);
+					}
+					break;
+				default:
+					System.out.println("Message du coordinateur inconnu : " + line);
+					break;
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println("Message du coordinateur mal formé : " + line);
+		}
+	}
+
+	public void waiting(int nodeId, String key, int nbPlayers, long[] clientIds) {
+		send("WAITING " + nodeId + " " + key + " " + nbPlayers + " " + encodeIds(clientIds));
+	}
+
+	public void claimed(int nodeId, long matchId, boolean ok, double[] money) {
+		send("CLAIMED " + nodeId + " " + matchId + " " + (ok ? "1" : "0") + " " + encodeMoney(money));
+	}
+
+	private synchronized void send(String line) {
+		if (out != null) {
+			out.println(line);
+		}
+	}
+
+	/**
+	 * Liste d'ids séparés par des virgules, "-" si elle est vide.
+	 */
+	static String encodeIds(long[] ids) {
+		if (ids.length == 0) {
+			return "-";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < ids.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(ids[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Liste de montants séparés par des virgules, "-" si elle est vide.
+	 */
+	static String encodeMoney(double[] money) {
+		if (money == null || money.length == 0) {
+			return "-";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < money.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(money[i]);
+		}
+		return sb.toString();
+	}
+
+	static double[] decodeMoney(String s) {
+		if (s.equals("-")) {
+			return new double[0];
+		}
+		String[] parts = s.split(",");
+		double[] money = new double[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			money[i] = Double.parseDouble(parts[i]);
+		}
+		return money;
+	}
+
+	static long[] decodeIds(String s) {
+		if (s.equals("-")) {
+			return new long[0];
+		}
+		String[] parts = s.split(",");
+		long[] ids = new long[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			ids[i] = Long.parseLong(parts[i]);
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,162 @@
+/** Match.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.cluster;
+
+import java.util.Arrays;
+
+/**
+ * Table formée par le coordinateur avec des joueurs de plusieurs nœuds.
+ * La partie est lancée sur le nœud hôte ; les joueurs des autres nœuds y
+ * sont relayés.
+ */
+public final class Match {
+
+	private final long id;
+	private final String key;
+	private final Node host;
+	private final int[] seatNodes;
+	private final long[] seatClients;
+
+	/**
+	 * Secret de la table, présenté par les relais au nœud hôte.
+	 */
+	private final String secret;
+
+	/**
+	 * Argent du joueur de chaque place, donné par son nœud lors de la
+	 * réservation. Null avant le GO.
+	 */
+	private final double[] money;
+
+	/**
+	 * @param seatNodes nœud de chaque place, dans l'ordre de jeu
+	 * @param seatClients id du client de chaque place, sur son nœud
+	 * @param secret secret tiré par le coordinateur
+	 */
+	public Match(long id, String key, Node host, int[] seatNodes, long[] seatClients, String secret) {
+		this(id, key, host, seatNodes, seatClients, secret, null);
+	}
+
+	private Match(long id, String key, Node host, int[] seatNodes, long[] seatClients, String secret, double[] money) {
+		this.id          = id;
+		this.key         = key;
+		this.host        = host;
+		this.seatNodes   = seatNodes;
+		this.seatClients = seatClients;
+		this.secret      = secret;
+		this.money       = money;
+	}
+
+	/**
+	 * @param money l'argent du joueur de chaque place
+	 * @return la table avec l'argent de ses joueurs, transmise avec le GO
+	 */
+	public Match withMoney(double[] money) {
+		if (money.length != seatNodes.length) {
+			throw new IllegalArgumentException("Argent de " + money.length + " places pour " + this);
+		}
+		return new Match(id, key, host, seatNodes, seatClients, secret, money);
+	}
+
+	/**
+	 * @return les ids des clients du nœud, dans l'ordre de leurs places
+	 */
+	public long[] clientsOf(int nodeId) {
+		long[] ids = new long[seatClients.length];
+		int n = 0;
+		for (int i = 0; i < seatNodes.length; i++) {
+			if (seatNodes[i] == nodeId) {
+				ids[n++] = seatClients[i];
+			}
+		}
+		return Arrays.copyOf(ids, n);
+	}
+
+	/**
+	 * @return la place du client, -1 s'il ne fait pas partie de la table
+	 */
+	public int seatOf(int nodeId, long clientId) {
+		for (int i = 0; i < seatNodes.length; i++) {
+			if (seatNodes[i] == nodeId && seatClients[i] == clientId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true si le nœud a au moins un joueur à cette table
+	 */
+	public boolean involves(int nodeId) {
+		for (int n : seatNodes) {
+			if (n == nodeId) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public long getId()         { return id;                 }
+	public String getKey()      { return key;                }
+	public Node getHost()       { return host;               }
+	public int getNbPlayers()   { return seatNodes.length;   }
+	public int getSeatNode(int seat) { return seatNodes[seat]; }
+	public String getSecret()   { return secret;             }
+
+	/**
+	 * @return l'argent du joueur de la place, connu à partir du GO
+	 */
+	public double getMoney(int seat) { return money[seat];     }
+	public boolean hasMoney()   { return money != null;      }
+
+	/**
+	 * Forme texte utilisée par le coordinateur en réseau :
+	 * id clé hôte adresse port secret nœud:client,nœud:client...
+	 * L'argent des joueurs n'en fait pas partie : il est transmis avec le GO.
+	 */
+	public String encode() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(id).append(' ').append(key).append(' ').append(host.getId()).append(' ')
+			.append(host.getHost()).append(' ').append(host.getPort()).append(' ').append(secret).append(' ');
+		for (int i = 0; i < seatNodes.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(seatNodes[i]).append(':').append(seatClients[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @throws IllegalArgumentException si le texte est mal formé
+	 */
+	public static Match decode(String s) {
+		String[] parts = s.split(" ");
+		if (parts.length != 7) {
+			throw new IllegalArgumentException("Table mal formée : " + s);
+		}
+		try {
+			String[] seats = parts[6].split(",");
+			int[] nodes = new int[seats.length];
+			long[] clients = new long[seats.length];
+			for (int i = 0; i < seats.length; i++) {
+				int sep = seats[i].indexOf(':');
+				nodes[i]   = Integer.parseInt(seats[i].substring(0, sep));
+				clients[i] = Long.parseLong(seats[i].substring(sep + 1));
+			}
+			Node host = new Node(Integer.parseInt(parts[2]), parts[3], Integer.parseInt(parts[4]));
+			return new Match(Long.parseLong(parts[0]), parts[1], host, nodes, clients, parts[5]);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Table mal formée : " + s, e);
+		}
+	}
+
+	public String toString() {
+		return "table " + id + " " + key + " sur le " + host;
+	}
+}
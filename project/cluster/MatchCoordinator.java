@@ -0,0 +1,64 @@
+/** MatchCoordinator.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.cluster;
+
+import java.io.IOException;
+
+/**
+ * Matchmaking partagé entre plusieurs serveurs.
+ * Chaque nœud forme lui-même les tables complètes de ses propres joueurs ;
+ * il publie ensuite les joueurs restants, et le coordinateur forme des tables
+ * avec les joueurs de plusieurs nœuds.
+ * Une table est formée en deux temps : chaque nœud concerné réserve ses
+ * joueurs (claim), puis la partie est lancée (go) si tous ont réussi, ou
+ * annulée (release) sinon.
+ */
+public interface MatchCoordinator {
+
+	/**
+	 * Décisions du coordinateur, reçues par un nœud.
+	 */
+	public interface Listener {
+
+		/**
+		 * Le nœud doit retirer de ses queues ses joueurs de la table, puis
+		 * répondre avec claimed().
+		 */
+		public void claim(Match match);
+
+		/**
+		 * Tous les nœuds ont réservé leurs joueurs : la partie peut commencer.
+		 * La table porte l'argent de chaque joueur, donné par son propre nœud.
+		 */
+		public void go(Match match);
+
+		/**
+		 * La table est abandonnée : les joueurs réservés retournent en queue.
+		 */
+		public void release(Match match);
+	}
+
+	/**
+	 * Inscrit un nœud auprès du coordinateur.
+	 */
+	public void register(Node node, Listener listener) throws IOException;
+
+	/**
+	 * Publie les joueurs en attente sur un nœud pour une queue.
+	 * Remplace la liste publiée précédemment pour cette queue.
+	 * @param nbPlayers le nombre de joueurs d'une table de cette queue
+	 */
+	public void waiting(int nodeId, String key, int nbPlayers, long[] clientIds);
+
+	/**
+	 * Réponse d'un nœud à claim().
+	 * @param ok false si un des joueurs n'était plus en queue
+	 * @param money l'argent des joueurs réservés, dans l'ordre de Match.clientsOf()
+	 */
+	public void claimed(int nodeId, long matchId, boolean ok, double[] money);
+}
@@ -0,0 +1,33 @@
+/** Node.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.cluster;
+
+/**
+ * Un serveur de jeux membre du cluster : son numéro et l'adresse à laquelle
+ * les autres nœuds peuvent relayer leurs joueurs.
+ */
+public final class Node {
+
+	private final int id;
+	private final String host;
+	private final int port;
+
+	public Node(int id, String host, int port) {
+		this.id   = id;
+		this.host = host;
+		this.port = port;
+	}
+
+	public int getId()      { return id;   }
+	public String getHost() { return host; }
+	public int getPort()    { return port; }
+
+	public String toString() {
+		return "nœud " + id + " (" + host + ":" + port + ")";
+	}
+}
@@ -7,11 +7,10 @@
 
 package project.game;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.io.IOException;
+import java.util.SplittableRandom;
 
 import project.client.ClientManager;
+import project.net.Frame;
 import project.server.SimpleServer;
 
 
@@ -20,20 +19,51 @@ public class BlackJack implements IGame {
 	private static final int NB_PLAYERS_MIN = 2;
 	private static final int NB_PLAYERS_MAX = 7;
 	private static final int END_ERROR      = 2;
+	private static final int NB_DECKS       = 6;
+	private static final int MIN_BET        = 2;
+	private static final int TURN_TIMER     = 0;
+
+	private static final Frame CHOICES = Frame.of("Quelle action voulez-vous effectuer ? \n" +
+	                                              "\t Stand \n" +
+	                                              "\t Hit \n");
+	private static final Frame CHOICES_DOUBLE = Frame.of("Quelle action voulez-vous effectuer ? \n" +
+	                                                     "\t Stand \n" +
+	                                                     "\t Hit \n" +
+	                                                     "\t Double \n");
+	private static final Frame END_OF_TURN = Frame.of("Fin de votre tour");
 
 	private static int instances;
 	private final int instanceNumber;
 
 	private SimpleServer   server;
 	private ClientManager[]  players;
-	private ArrayList<Card> cardSet;
+	private Shoe shoe;
 
-	private ArrayList<Card>   dealerHand;
-	private HashMap<ClientManager, ArrayList<Card>> playersHandArray;
+	private Hand   dealerHand;
+	private Hand[] hands; // hands[i] est la main de players[i]
 	private int currentPlayer;
 	private boolean continueStatus;
+	private GameContext context;
+	private GameContext.Timer deadline;
+
+	/**
+	 * Etape de la manche : mises, actions des joueurs, puis choix de continuer.
+	 */
+	private static final int BET      = 0;
+	private static final int ACTION   = 1;
+	private static final int CONTINUE = 2;
+	private int phase;
+	private boolean alreadyDraw;
 
 	public BlackJack(SimpleServer server, ClientManager[] players) {
+		this(server, players, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * @param seed graine du mélange du sabot : une partie reprise depuis le
+	 * journal est rejouée à l'identique
+	 */
+	public BlackJack(SimpleServer server, ClientManager[] players, long seed) {
 		// Constructeur ressemblant énormément à celui du Morpion
 		// faire une classe mère ?
 
@@ -52,33 +82,22 @@ public class BlackJack implements IGame {
 		this.continueStatus = false;
 
 		// Déclaration de la main du dealer
-		dealerHand = new ArrayList<Card>();
+		dealerHand = new Hand();
 
 		// Déclaration des mains des joueurs
-		playersHandArray = new HashMap <ClientManager, ArrayList<Card>>();
-		for(ClientManager gc : players) {
-			playersHandArray.put(gc, new ArrayList<Card>());
+		hands = new Hand[players.length];
+		for(int i = 0; i < players.length; i++) {
+			hands[i] = new Hand();
 		}
 
-		// Initialisation des paquets de cartes
-		cardSet = new ArrayList<Card>();
-		setCardsSet(6);
+		// Initialisation du sabot
+		shoe = new Shoe(NB_DECKS, new SplittableRandom(seed));
 	}
 
-	public void run() {
-		int gameEndReason = -1;
+	public void start(GameContext context) {
+		this.context = context;
 		startGame();
-		try {
-			do{
-				resetHands();
-				gameEndReason = play();
-			}while(gameEndReason != END_ERROR && allContinue());
-		}catch (IOException e) { gameEndReason = END_ERROR; }
-
-		if(!continueStatus)
-			server.sendMessage("Un joueur a quitté la partie, de retour au menu des jeux", players);
-
-		end(gameEndReason);
+		newRound();
 	}
 
 	private void startGame() {
@@ -92,135 +111,259 @@ public class BlackJack implements IGame {
 		server.sendMessage("Le joueur " + (currentPlayer + 1) + " commence", players);
 	}
 
-	private int play() throws IOException {
+	/**
+	 * Reçoit la réponse du joueur courant, selon l'étape de la manche.
+	 */
+	public void onInput(ClientManager player, String line) {
+		if (player != players[currentPlayer]) {
+			return;
+		}
+		if (line.equals("exit") || (phase == ACTION && line.toLowerCase().equals("exit"))) {
+			server.disconnectClient(player);
+			onDisconnect(player);
+			return;
+		}
+		switch (phase) {
+			case BET :
+				onBet(player, line);
+				break;
+			case ACTION :
+				onAction(player, line);
+				break;
+			case CONTINUE :
+				onContinue(player, line);
+				break;
+		}
+	}
+
+	private void newRound() {
+		resetHands();
+		phase = BET;
+		currentPlayer = 0;
+		askBet();
+	}
+
+	private void askBet() {
+		ClientManager player = players[currentPlayer];
+		player.yourTurn();
+		player.receiveMessage("Votre argent : " + player.getMoney() + "\n Combien voulez-vous miser ? (2-100)");
+		startDeadline();
+	}
 
-		boolean betsDone = askBets();
-		if(!betsDone) return END_ERROR;
+	private void onBet(ClientManager player, String temp) {
+		if (!temp.matches("[0-9]+")) {
+			player.receiveMessage("Ce n'est pas un nombre");
+			return;
+		}
+		int bet = Integer.parseInt(temp);
+		if (bet < MIN_BET || bet > 100) {
+			player.receiveMessage("La valeur de la mise est erronnée, veuillez réessayer");
+			return;
+		}
+		player.standby();
+		player.setBet(bet);
+		if (++currentPlayer < players.length) {
+			askBet();
+			return;
+		}
+
+		// Toutes les mises sont faites : distribution
 		dealCards();
-		showCards(null);
+		server.cork(players);
+		showCards();
 		checkBlackJack();
+		server.flush(players);
+		phase = ACTION;
+		currentPlayer = 0;
+		startTurn();
+	}
 
-		// System.out.println("Coucou Je staaaaaaaaart");
-		for(int i = 0; i < playersHandArray.size(); i++) {
-			// Placement de la mise
-			showCards(players[i]);
-
-			boolean continueDrawing = true;
-			boolean alreadyDraw = false;
-			while(getValue(playersHandArray.get(players[i]), false) < 21 && continueDrawing && !players[i].getBlackJack()) {
-				sendChoices(players[i], alreadyDraw);
-				String action = players[i].getBF().readLine().toLowerCase();
-				if(action.equals("exit")) {
-					server.disconnectClient(players[i]);
-					return END_ERROR;
-				}
-				switch(action) {
-					case "stand" :
-						continueDrawing = false;
-						break;
-					case "hit" :
-						playersHandArray.get(players[i]).add(drawCard());
-						sort(playersHandArray.get(players[i]));
-						showCards(players[i]);
-						alreadyDraw = true;
-						break;
-					case "double" :
-						if(alreadyDraw) {
-							players[i].receiveMessage("Vous avez déjà draw, vous ne pouvez plus double");
-							break;
-						}
-						playersHandArray.get(players[i]).add(drawCard());
-						sort(playersHandArray.get(players[i]));
-						showCards(players[i]);
-						continueDrawing = false;
-						players[i].setBet(players[i].getBet()*2);
-						break;
-					default :
-						players[i].receiveMessage("Action incorrecte, veuillez recommencer");
-						break;
+	/**
+	 * Tour du joueur courant : sa main et les choix partent ensemble, à la fin
+	 * de l'évènement.
+	 */
+	private void startTurn() {
+		ClientManager player = players[currentPlayer];
+		player.cork();
+		showCards(currentPlayer);
+		alreadyDraw = false;
+		player.yourTurn();
+		if (canDraw(currentPlayer)) {
+			sendChoices(player, alreadyDraw);
+			startDeadline();
+		} else {
+			endTurn();
+		}
+	}
+
+	private boolean canDraw(int i) {
+		return hands[i].getHardTotal() < 21 && !hands[i].isBlackJack();
+	}
+
+	private void onAction(ClientManager player, String action) {
+		int i = currentPlayer;
+		switch(action.toLowerCase()) {
+			case "stand" :
+				endTurn();
+				return;
+			case "hit" :
+				player.cork();
+				hands[i].add(drawCard());
+				showCards(i);
+				alreadyDraw = true;
+				startDeadline();
+				break;
+			case "double" :
+				if(alreadyDraw) {
+					player.receiveMessage("Vous avez déjà draw, vous ne pouvez plus double");
+					break;
 				}
-			}
-			players[i].receiveMessage("Fin de votre tour");
+				hands[i].add(drawCard());
+				showCards(i);
+				player.setBet(player.getBet()*2);
+				endTurn();
+				return;
+			default :
+				player.receiveMessage("Action incorrecte, veuillez recommencer");
+				break;
+		}
+		if (canDraw(i)) {
+			sendChoices(player, alreadyDraw);
+		} else {
+			endTurn();
+		}
+	}
+
+	private void endTurn() {
+		players[currentPlayer].standby();
+		players[currentPlayer].receiveMessage(END_OF_TURN);
+		if (++currentPlayer < players.length) {
+			startTurn();
+			return;
 		}
 
-		while(getValue(dealerHand, true) < 17) {
+		while(dealerHand.getTotal() < 17) {
 			dealerHand.add(drawCard());
 		}
+		server.cork(players);
 		checkWinAndLose();
-		return 0;
+		server.flush(players);
+
+		phase = CONTINUE;
+		currentPlayer = 0;
+		askContinue();
 	}
 
-	private boolean askBets() throws IOException{
-		String temp = null;
-		for(int i = 0; i < playersHandArray.size(); i++) {
-			int bet = 0;
-			players[i].receiveMessage("Votre argent : " + players[i].getMoney() + "\n Combien voulez-vous miser ? (2-100)");
-			do {
-				temp = players[i].getBF().readLine();
-				if(temp.equals("exit")) {
-					server.disconnectClient(players[i]);
-					emergencyShutDown();
-					return false;
-				}
-				if(temp.matches("[0-9]+")) {
-					bet = Integer.parseInt(temp);
-					if(bet < 2 || bet > 100)
-						players[i].receiveMessage("La valeur de la mise est erronnée, veuillez réessayer");
-				} else {
-					players[i].receiveMessage("Ce n'est pas un nombre");
-				}
+	private void askContinue() {
+		players[currentPlayer].yourTurn();
+		players[currentPlayer].receiveMessage("Voulez-vous continuer la partie ? (O-N)");
+		startDeadline();
+	}
+
+	/**
+	 * Laisse au joueur courant le délai d'un tour pour répondre.
+	 */
+	private void startDeadline() {
+		cancelDeadline();
+		if (context.getTurnTimeout() > 0) {
+			deadline = context.schedule(context.getTurnTimeout(), TURN_TIMER);
+		}
+	}
+
+	private void cancelDeadline() {
+		if (deadline != null) {
+			deadline.cancel();
+			deadline = null;
+		}
+	}
 
-			}while(bet < 2 || bet > 100);
+	/**
+	 * Le joueur courant n'a pas répondu à temps : le jeu répond à sa place,
+	 * mise minimale, Stand, ou refus de continuer.
+	 */
+	public void onTimer(int timer) {
+		// échéance rejouée depuis le journal : la minuterie armée ne doit pas expirer une seconde fois
+		cancelDeadline();
+		ClientManager player = players[currentPlayer];
+		player.receiveMessage("Temps écoulé");
+		switch (phase) {
+			case BET :
+				onBet(player, String.valueOf(MIN_BET));
+				break;
+			case ACTION :
+				endTurn();
+				break;
+			case CONTINUE :
+				onContinue(player, "N");
+				break;
+		}
+	}
 
-			players[i].setBet(bet);
+	private void onContinue(ClientManager player, String temp) {
+		temp = temp.toUpperCase();
+		if(temp.equals("N")) {
+			continueStatus = false;
+			finish(0);
+			return;
+		}
+		if(!temp.equals("O")) {
+			return;
 		}
-		return true;
+		player.standby();
+		if (++currentPlayer < players.length) {
+			askContinue();
+			return;
+		}
+		server.sendMessage("Une nouvelle partie commence", players);
+		newRound();
 	}
 
 	private void dealCards() {
 		dealerHand.add(drawCard());
-		for(ClientManager player : playersHandArray.keySet()) {
-			playersHandArray.get(player).add(drawCard());
-			playersHandArray.get(player).add(drawCard());
-			sort(playersHandArray.get(player));
+		for(Hand hand : hands) {
+			hand.add(drawCard());
+			hand.add(drawCard());
 		}
 	}
 
 	private Card drawCard() {
-		return cardSet.remove((int)(Math.random() * cardSet.size()));
+		return shoe.draw();
 	}
 
-	private void showCards(ClientManager player) {
-		// Cas de l'affichage de toutes les mains pour tout le monde
-		if(player == null) {
-			String table = "Main du croupier : (" + getValue(dealerHand, true) + " points)\n";
-			for(Card card : dealerHand) {
-				table += "\t" + card.toString() + "\n";
-			}
-			for(ClientManager p : playersHandArray.keySet()) {
-				table += "Main du joueur " + p.getName() + ": \n";
-				for(Card card : playersHandArray.get(p)) {
-					table += "\t"+  card.toString() + "\n";
-				}
-			}
-			table += "----------------------\n";
-			server.sendMessage(table, players);
-		} else {
-			// Cas de l'affichage de la main pour le joueur en cours
-			String main = "Votre main : \n";
-			for(Card card : playersHandArray.get(player)) {
-				main += "\t" + card.toString() + "\n";
+	/**
+	 * Affiche toutes les mains à tous les joueurs.
+	 */
+	private void showCards() {
+		String table = "Main du croupier : (" + dealerHand.getTotal() + " points)\n";
+		for(int c = 0; c < dealerHand.size(); c++) {
+			table += "\t" + dealerHand.get(c).toString() + "\n";
+		}
+		for(int i = 0; i < players.length; i++) {
+			table += "Main du joueur " + players[i].getName() + ": \n";
+			for(int c = 0; c < hands[i].size(); c++) {
+				table += "\t"+  hands[i].get(c).toString() + "\n";
 			}
-			player.receiveMessage(main);
 		}
+		table += "----------------------\n";
+		server.sendMessage(table, players);
+	}
+
+	/**
+	 * Affiche sa main au joueur en cours.
+	 * @param i l'index du joueur
+	 */
+	private void showCards(int i) {
+		String main = "Votre main : \n";
+		for(int c = 0; c < hands[i].size(); c++) {
+			main += "\t" + hands[i].get(c).toString() + "\n";
+		}
+		players[i].receiveMessage(main);
 	}
 
 	private void checkBlackJack() {
-		for(ClientManager player : playersHandArray.keySet()) {
-			if(playersHandArray.get(player).get(0).isPicture() && playersHandArray.get(player).get(1).getName().equals("As") ||
-			   playersHandArray.get(player).get(1).isPicture() && playersHandArray.get(player).get(0).getName().equals("As") ) {
-				player.setBlackJack(true);
-				player.receiveMessage("Vous avez Black-Jack");
+		for(int i = 0; i < players.length; i++) {
+			if(hands[i].isBlackJack()) {
+				players[i].receiveMessage("Vous avez Black-Jack");
 			}
 		}
 	}
@@ -231,25 +374,25 @@ public class BlackJack implements IGame {
 		// Croupier qui fait BlackJack vs joueur à 21 points = win du croupier !
 
 		server.sendMessage("Résultats : ");
-		showCards(null);
+		showCards();
 
 		// Si le dealer a fait BlackJack
-		if(dealerHand.get(0).isPicture() && dealerHand.get(1).getName().equals("As") ||
-		   dealerHand.get(1).isPicture() && dealerHand.get(0).getName().equals("As")) {
-			for(ClientManager player : playersHandArray.keySet()) {
-				if(player.getBlackJack()) {
-					player.receiveMessage("Egalité, vous récupérez votre mise");
+		if(dealerHand.isBlackJack()) {
+			for(int i = 0; i < players.length; i++) {
+				if(hands[i].isBlackJack()) {
+					players[i].receiveMessage("Egalité, vous récupérez votre mise");
 				}
 				else
-					player.receiveMessage("Perdu, vous perdez votre mise");
+					players[i].receiveMessage("Perdu, vous perdez votre mise");
 			}
 			return;
 		}
 
 
-		int dealerHandValue = getValue(dealerHand, true);
-		for(ClientManager player : playersHandArray.keySet()) {
-			int playerHandValue = getValue(playersHandArray.get(player), true);
+		int dealerHandValue = dealerHand.getTotal();
+		for(int i = 0; i < players.length; i++) {
+			ClientManager player = players[i];
+			int playerHandValue = hands[i].getTotal();
 			// Cas d'égalité sans dépassement
 			if(playerHandValue < 22 && dealerHandValue < 22 && playerHandValue == dealerHandValue) {
 				player.receiveMessage("Egalité, vous récupérez votre mise");
@@ -266,119 +409,32 @@ public class BlackJack implements IGame {
 				player.earnMoney(player.getBet());
 
 				// Cas de victoire en blackJack
-				if(player.getBlackJack())
+				if(hands[i].isBlackJack())
 					player.earnMoney((double)(player.getBet()*0.5));
 			}
 		}
 	}
 
 	private void sendChoices(ClientManager player, boolean alreadyDraw) {
-		String msg = "Quelle action voulez-vous effectuer ? \n" +
-		                "\t Stand \n" +
-		                "\t Hit \n";
-
-		if(!alreadyDraw) {
-			msg += "\t Double \n";
-		}
-		player.receiveMessage(msg);
+		player.receiveMessage(alreadyDraw ? CHOICES : CHOICES_DOUBLE);
 	}
 
 
-	private int getValue(ArrayList<Card> playerHand, boolean bigAs) {
-		int value = 0;
-		boolean firstAs = true;
-		for(Card card : playerHand) {
-			// Cas du Roi, Reine, Valet
-			if(card.isPicture()) {
-				value += 10;
-				continue;
-			}
-
-			// Cas de l'As que l'on compte comme 11
-			// Si le joueur possède plus d'1 As, le premier aura une valeur de 11
-			// et les suivants auront 1 comme valeur, car 2 As à 11 fait automatiquement perdre
-			if(card.getName().equals("As") && bigAs) {
-				if(firstAs && (value+11) < 22) {
-					value += 11;
-					firstAs = false;
-				}
-				else
-					value += 1;
-				continue;
-			}
-
-			// Cas basique avec l'As comme 1
-			value += card.getValue();
-		}
-		return value;
-	}
-
-	private int nbAs(ArrayList<Card> playerHand) {
-		int nbAs = 0;
-		for(Card card : playerHand) {
-			if(card.getName().equals("As"))
-				nbAs++;
-		}
-		return nbAs;
-	}
-
 	private void resetHands() {
-		dealerHand = new ArrayList<Card>();
-		for(ClientManager player : playersHandArray.keySet()) {
-			playersHandArray.replace(player, new ArrayList<Card>());
-			player.setBlackJack(false);
-		}
-	}
-
-	// Méthode de tri permettant de mettre tous les As à la fin de la liste
-	// afin de rendre le calcul des points plus facile
-	private void sort(ArrayList<Card> hand) {
-		ArrayList<Card> temp = new ArrayList<Card>();
-
-		for(Card card : hand) {
-			if(card.getName().equals("As")) {
-				temp.add(card);
-			}
-		}
-
-		hand.removeAll(temp);
-
-		for(int i = 0 ; i <temp.size(); i++) {
-			hand.add(temp.remove(i));
+		shoe.shuffleIfNeeded();
+		dealerHand.clear();
+		for(Hand hand : hands) {
+			hand.clear();
 		}
 	}
 
-	private boolean allContinue()  {
-		boolean allContinue = true;
-		String temp = "";
-		ClientManager playerTemp = null;
-		try {
-			for(ClientManager player : playersHandArray.keySet()) {
-				playerTemp = player;
-				player.receiveMessage("Voulez-vous continuer la partie ? (O-N)");
-				do {
-					temp = player.getBF().readLine().toUpperCase();
-					if(temp == null || temp.equals("exit")) {
-						server.disconnectClient(player);
-						continueStatus = false;
-						return false;
-					}
-
-					if(temp.equals("N")) {
-						continueStatus = false;
-						return continueStatus;
-					}
-				}while(!temp.equals("O"));
-			}
-		} catch(IOException e) { continueStatus = false;  return false; }
-		  catch(NullPointerException e) { server.disconnectClient(playerTemp); continueStatus = false; return false;}
-
-		server.sendMessage("Une nouvelle partie commence", players);
-		return allContinue;
-	}
-
-	private void setCardsSet(int nbSets) {
-		cardSet = Card.cardSet(52, 6, cardSet);
+	/**
+	 * Fin de la partie, après un refus de continuer ou un départ.
+	 */
+	private void finish(int end) {
+		if(!continueStatus)
+			server.sendMessage("Un joueur a quitté la partie, de retour au menu des jeux", players);
+		end(end);
 	}
 
 	/**
@@ -386,7 +442,8 @@ public class BlackJack implements IGame {
 	 * Affiche un message sur le serveur indiquant la fin de la partie.
 	 */
 	private void end(int end) {
-		String endMessage = Thread.currentThread().getName() + " fini : ";
+		cancelDeadline();
+		String endMessage = "Black-Jack" + instanceNumber + " fini : ";
 		String reason = "fin normale";
 		if (end == END_ERROR)
 			reason = "Erreur de communication";
@@ -396,15 +453,28 @@ public class BlackJack implements IGame {
 		for (ClientManager p : players) {
 			p.endPlaying();
 		}
+		server.flush(players);
 		// fin de la partie
+		context.end();
 	}
 
-	public void emergencyShutDown() {
-		for (ClientManager p : players) {
-			p.receiveMessage("Un autre joueur a quitté");
-			p.endPlaying();
+	/**
+	 * Interrompt la partie suite à une déconnexion.
+	 */
+	public void onDisconnect(ClientManager player) {
+		server.sendMessage("Un autre joueur a quitté", players);
+		finish(END_ERROR);
+	}
+
+	/**
+	 * Renvoie sa main au joueur.
+	 */
+	public void resume(ClientManager player) {
+		for (int i = 0; i < players.length; i++) {
+			if (players[i] == player) {
+				showCards(i);
+			}
 		}
-		Thread.currentThread().interrupt();
 	}
 
 	public int getInstanceNumber() {
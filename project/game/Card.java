@@ -15,38 +15,74 @@ public class Card {
                                           "Six", "Seven", "Eight", "Nine", "Ten",
                                           "Jack", "Queen", "King"};
 
-    private int    value;
-    private String suit;
-    private String name;
+    /**
+     * Nombre de cartes différentes dans un jeu.
+     */
+    public static final int DECK_SIZE = 52;
 
-    private Card(String suit, int value) {
+    /**
+     * Les 52 cartes, partagées par toutes les parties.
+     * L'index d'une carte vaut enseigne * 13 + (valeur - 1).
+     */
+    private static final Card[] CARDS = new Card[DECK_SIZE];
+
+    static {
+        for (int i = 0; i < DECK_SIZE; i++) {
+            CARDS[i] = new Card(i, SUIT[i / 13], i % 13 + 1);
+        }
+    }
+
+    private final int    index;
+    private final int    value;
+    private final String suit;
+    private final String name;
+    private final String text;
+    private final int     points;
+    private final boolean picture;
+    private final boolean ace;
+
+    private Card(int index, String suit, int value) {
+        this.index = index;
         this.suit = suit;
         this.value = value;
         name = Card.NAME[value-1];
+        text = name + " of " + suit;
+        points  = Math.min(value, 10);
+        picture = value >= 10;
+        ace     = value == 1;
     }
 
 
+    /**
+     * Renvoie la carte partagée correspondant à l'index donné.
+     * @param index l'index de la carte, entre 0 et 51
+     */
+    public static Card of(int index) { return CARDS[index]; }
+
+
     /**
      * Getters
      */
 
-    public boolean isPicture() { return name.equals("Ten")  ||
-                                        name.equals("Jack")  ||
-                                        name.equals("Queen") ||
-                                        name.equals("King"); }
+    public boolean isPicture() { return picture; }
+    public boolean isAce()     { return ace;     }
+    /** Valeur de la carte au Black-Jack, l'As comptant 1 */
+    public int getPoints()  { return points; }
+    public int getIndex()   { return index; }
     public int getValue()   { return value; }
     public String getSuit() { return suit;  }
     public String getName() { return name;  }
 
 
     public String toString() {
-        return this.name + " of " + this.suit;
+        return text;
     }
 
 
 
     /**
      * Méthode permettant de créer un "deck" de carte en fonction des paramètres entrés
+     * Les cartes ajoutées sont les instances partagées.
      * @param nbCards  le nombre de cartes que va posséder un "deck"
      * @param nbSets   le nombre de sets voulus
      * @param cardList l'ArrayList de cartes qui contiendra tous les set, alimentée en récurrence
@@ -59,13 +95,9 @@ public class Card {
         if(nbSets == 0)
             return cardList;
         else {
-            // Première boucle pour l'enseigne de la carte
-            for(int i = 0; i < 4; i++) {
-                // Deuxième boucle pour la valeur de la carte, de 1 à 13 (roi)
-                if(nbCards == 52) {
-                    for(int j = 1; j < nbCards/4 +1 ; j++) {
-                        cardList.add(new Card(Card.SUIT[i], j));
-                    }
+            if(nbCards == DECK_SIZE) {
+                for(int i = 0; i < DECK_SIZE; i++) {
+                    cardList.add(CARDS[i]);
                 }
             }
             return Card.cardSet(nbCards, nbSets-1, cardList);
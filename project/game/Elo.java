@@ -0,0 +1,51 @@
+/** Elo.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+import project.client.ClientManager;
+
+/**
+ * Classement Elo des joueurs, mis à jour à la fin de chaque partie.
+ * Le gain du vainqueur est la perte du vaincu ; il est d'autant plus grand
+ * que le résultat était inattendu.
+ */
+public final class Elo {
+
+	/**
+	 * Classement d'un nouveau joueur.
+	 */
+	public static final double INITIAL = 1200;
+
+	/**
+	 * Variation maximale du classement sur une partie.
+	 */
+	private static final double K = 32;
+
+	private Elo() {}
+
+	/**
+	 * @return la probabilité que le joueur classé a batte le joueur classé b
+	 */
+	public static double expected(double a, double b) {
+		return 1 / (1 + Math.pow(10, (b - a) / 400));
+	}
+
+	/**
+	 * Met à jour le classement des deux joueurs.
+	 * @param score le résultat de a : 1 victoire, 0.5 égalité, 0 défaite
+	 */
+	public static void update(ClientManager a, ClientManager b, double score) {
+		// le classement d'un joueur relayé par un autre nœud est inconnu ici
+		if (a.isProxied() || b.isProxied()) {
+			return;
+		}
+		double delta = K * (score - expected(a.getRating(), b.getRating()));
+		a.addRating(delta);
+		b.addRating(-delta);
+	}
+}
@@ -0,0 +1,43 @@
+/** GameContext.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+/**
+ * Table sur laquelle se déroule une partie, vue depuis le jeu.
+ */
+public interface GameContext {
+
+	/**
+	 * Fin de la partie : la table est libérée et les évènements suivants
+	 * ignorés. Les joueurs doivent avoir été renvoyés au menu (endPlaying).
+	 */
+	public void end();
+
+	/**
+	 * Minuterie demandée par le jeu.
+	 */
+	public interface Timer {
+
+		/**
+		 * Annule la minuterie : IGame.onTimer() ne sera pas appelé pour elle,
+		 * même si son échéance est déjà passée.
+		 */
+		public void cancel();
+	}
+
+	/**
+	 * Demande un appel à IGame.onTimer(timer) dans delayMillis ms.
+	 */
+	public Timer schedule(long delayMillis, int timer);
+
+	/**
+	 * Délai laissé à un joueur pour jouer son tour (ms), 0 si illimité.
+	 * Passé ce délai, le jeu joue à sa place une action par défaut.
+	 */
+	public long getTurnTimeout();
+}
@@ -0,0 +1,81 @@
+/** Hand.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+/**
+ * Main de Black-Jack : les cartes sont gardées sous forme d'index, et le score
+ * est mis à jour à chaque carte ajoutée, sans parcours de la main ni allocation.
+ */
+public class Hand {
+
+	private static final int INITIAL_CAPACITY = 12;
+
+	private byte[] cards;
+	private int size;
+	private int hardTotal;
+	private int aces;
+	private boolean blackJack;
+
+	public Hand() {
+		cards = new byte[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Ajoute une carte et met à jour le score en O(1).
+	 */
+	public void add(Card card) {
+		if (size == cards.length) {
+			// Ne peut arriver qu'avec une longue suite d'As et de petites cartes
+			byte[] bigger = new byte[cards.length * 2];
+			System.arraycopy(cards, 0, bigger, 0, size);
+			cards = bigger;
+		}
+		cards[size++] = (byte) card.getIndex();
+		hardTotal += card.getPoints();
+		if (card.isAce()) {
+			aces++;
+		}
+		// Black-Jack : un As et une carte valant 10 comme deux premières cartes
+		if (size == 2) {
+			blackJack = aces == 1 && hardTotal == 11;
+		}
+	}
+
+	/**
+	 * Vide la main pour une nouvelle manche.
+	 */
+	public void clear() {
+		size      = 0;
+		hardTotal = 0;
+		aces      = 0;
+		blackJack = false;
+	}
+
+	/**
+	 * Score en comptant tous les As comme 1.
+	 */
+	public int getHardTotal() { return hardTotal; }
+
+	/**
+	 * Meilleur score : un As compte 11 si cela ne fait pas dépasser 21.
+	 * Deux As à 11 font toujours dépasser, un seul As est donc concerné.
+	 */
+	public int getTotal() {
+		if (aces > 0 && hardTotal + 10 <= 21) {
+			return hardTotal + 10;
+		}
+		return hardTotal;
+	}
+
+	public boolean isBlackJack() { return blackJack; }
+	public int size()            { return size;      }
+
+	public Card get(int i) {
+		return Card.of(cards[i]);
+	}
+}
@@ -7,9 +7,46 @@
 
 package project.game;
 
-public interface IGame extends Runnable {
+import project.client.ClientManager;
 
-	public void emergencyShutDown();
+/**
+ * Jeu exécuté comme une machine à états : il réagit aux évènements de sa
+ * table (début, ligne d'un joueur, minuterie, départ d'un joueur) et envoie
+ * ses messages aux joueurs, sans jamais attendre.
+ * Les méthodes d'une même partie sont appelées une à la fois, par le pool
+ * de threads des jeux : une partie n'occupe un thread que le temps de
+ * traiter un évènement.
+ */
+public interface IGame {
+
+	/**
+	 * Début de la partie.
+	 * @param context la table, à prévenir à la fin de la partie
+	 */
+	public void start(GameContext context);
+
+	/**
+	 * Ligne envoyée par un joueur pendant son tour (voir ClientManager.yourTurn()).
+	 */
+	public void onInput(ClientManager player, String line);
+
+	/**
+	 * Minuterie demandée avec GameContext.schedule() et non annulée.
+	 */
+	public default void onTimer(int timer) {
+	}
+
+	/**
+	 * Un joueur a quitté la partie (déconnexion, ou place gardée expirée) :
+	 * la partie est interrompue.
+	 */
+	public void onDisconnect(ClientManager player);
+
+	/**
+	 * Un joueur revient après une coupure : lui renvoie l'état de la partie.
+	 */
+	public default void resume(ClientManager player) {
+	}
 
 	public default int getInstanceNumber() {
 		return 0;
@@ -7,9 +7,10 @@
 
 package project.game;
 
-import java.io.IOException;
+import java.util.SplittableRandom;
 
 import project.client.ClientManager;
+import project.net.Frame;
 import project.server.SimpleServer;
 
 public class Morpion implements IGame {
@@ -21,20 +22,41 @@ public class Morpion implements IGame {
 	private final int instanceNumber;
 
 	private static final int NB_PLAYERS = 2;
-	private static final char[] symbol = new char[] {'O', 'X'};
-	private static final String[] prompt = new String[] {"Ligne   : ", "Colonne : "};
+	private static final Frame[] prompt = new Frame[] {Frame.of("Ligne   : "), Frame.of("Colonne : ")};
+	private static final Frame[] turn = new Frame[] {Frame.of("Au tour du joueur 1"), Frame.of("Au tour du joueur 2")};
+	private static final Frame yourTurn = Frame.of("Votre tour");
 
-	private static final int END_NORMAL = 0;
-	private static final int END_TURNS  = 1;
-	private static final int END_ERROR  = 2;
+	private static final int END_NORMAL  = 0;
+	private static final int END_TURNS   = 1;
+	private static final int END_ERROR   = 2;
+	private static final int END_TIMEOUT = 3;
+
+	private static final int TURN_TIMER = 0;
 
 	private SimpleServer server;
 	private ClientManager[] players;
-	private char[][] grid;
+	private MorpionBoard board;
+	private SplittableRandom random;
 	private int currentPlayer;
 	private int turnCounter = 0;
+	private GameContext context;
+	private GameContext.Timer deadline;
+
+	/**
+	 * Saisie en cours du joueur courant : 0 la ligne, 1 la colonne.
+	 */
+	private int step;
+	private final int[] coords = new int[2];
 
 	public Morpion(SimpleServer server, ClientManager[] players) {
+		this(server, players, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * @param seed graine du tirage du premier joueur : une partie reprise
+	 * depuis le journal est rejouée à l'identique
+	 */
+	public Morpion(SimpleServer server, ClientManager[] players, long seed) {
 		if (players == null) {
 			throw new NullPointerException();
 		}
@@ -45,64 +67,112 @@ public class Morpion implements IGame {
 		this.instanceNumber = ++instances;
 		this.server = server;
 		this.players = players;
-		grid = new char[3][3];
+		board = new MorpionBoard();
+		random = new SplittableRandom(seed);
 	}
 
 
-	public void run() {
-			int gameEndReason = -1;
-			startGame();
-			try {
-				gameEndReason = play();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-			end(gameEndReason);
-		}
+	public void start(GameContext context) {
+		this.context = context;
+		players[0].receiveMessage("Vous êtes le joueur 1 (O)");
+		players[1].receiveMessage("Vous êtes le joueur 2 (X)");
+		// Détermine au hasard la personne qui commence
+		currentPlayer = random.nextInt(NB_PLAYERS);
+		server.sendMessage("Le joueur " + (currentPlayer + 1) + " commence", players);
+		// Les messages d'un tour (grille, tour, invite) partent en un seul envoi,
+		// à la fin de l'évènement
+		server.cork(players);
+		server.sendMessage(board.frame(), players);
+		nextTurn();
+	}
 
 
 	/**
-	 * Lance la partie. Détermine au hasard la personne qui commence.
+	 * Demande au joueur courant où il veut placer son symbole.
 	 */
-	private void startGame() {
-		for (int i = 0; i < grid.length; i++) {
-			for (int j = 0; j < grid[i].length; j++) {
-				grid[i][j] = ' ';
-			}
+	private void nextTurn() {
+		server.sendMessage(turn[currentPlayer], players);
+		players[(1-currentPlayer)].standby();
+		server.sendMessage(yourTurn, players[currentPlayer]);
+		players[currentPlayer].yourTurn();
+		ask(0);
+		startDeadline();
+	}
+
+
+	/**
+	 * Laisse au joueur courant le délai d'un tour pour jouer.
+	 */
+	private void startDeadline() {
+		cancelDeadline();
+		if (context.getTurnTimeout() > 0) {
+			deadline = context.schedule(context.getTurnTimeout(), TURN_TIMER);
+		}
+	}
+
+
+	private void cancelDeadline() {
+		if (deadline != null) {
+			deadline.cancel();
+			deadline = null;
 		}
-		players[0].receiveMessage("Vous êtes le joueur 1 (O)");
-		players[1].receiveMessage("Vous êtes le joueur 2 (X)");
-		currentPlayer = (int)(Math.random() * NB_PLAYERS);
-		server.sendMessage("Le joueur " + (currentPlayer + 1) + " commence", players);
 	}
 
 
 	/**
-	 * Boucle du jeu.
+	 * Le joueur courant n'a pas joué à temps : il perd la partie.
 	 */
-	private int play() throws IOException {
-		server.sendMessage(getGrid(), players);
-		while (!isGameOver()) {
-			// demander réponse du joueur
-			server.sendMessage("Au tour du joueur " + (currentPlayer + 1), players);
-			players[(1-currentPlayer)].standby();
-			server.sendMessage("Votre tour", players[currentPlayer]);
-			players[currentPlayer].yourTurn();
-
-			int[] coords = getCoords(players[currentPlayer]);
-			// cas déconnexion
-			if (coords == null) {
-				return END_ERROR;
-			}
-			grid[coords[0]][coords[1]] = symbol[currentPlayer];
-			// on change de tour
-			currentPlayer = 1 - currentPlayer;
-			server.sendMessage(getGrid(), players);
-			if (++turnCounter == 9 && !isGameOver()) {
-				return END_TURNS;
-			}
+	public void onTimer(int timer) {
+		// échéance rejouée depuis le journal : la minuterie armée ne doit pas expirer une seconde fois
+		cancelDeadline();
+		server.cork(players);
+		server.sendMessage("Temps écoulé pour le joueur " + (currentPlayer + 1), players);
+		end(END_TIMEOUT);
+	}
+
+
+	/**
+	 * @param i 0 pour la ligne, 1 pour la colonne
+	 */
+	private void ask(int i) {
+		step = i;
+		players[currentPlayer].receiveMessage(prompt[i]);
+	}
+
+
+	/**
+	 * Reçoit la ligne puis la colonne choisies par le joueur courant.
+	 */
+	public void onInput(ClientManager player, String msg) {
+		if (player != players[currentPlayer]) {
+			return;
+		}
+		if (!msg.matches("[1-3]")) {
+			ask(step);
+			return;
+		}
+		coords[step] = Integer.parseInt(msg) - 1;
+		if (step == 0) {
+			ask(1);
+			return;
+		}
+		if (board.isOccupied(coords[0] * 3 + coords[1])) {
+			player.receiveMessage("Case déjà occupée");
+			ask(0);
+			return;
+		}
+		board.play(currentPlayer, coords[0] * 3 + coords[1]);
+		// on change de tour
+		currentPlayer = 1 - currentPlayer;
+		server.cork(players);
+		server.sendMessage(board.frame(), players);
+		if (isGameOver()) {
+			end(END_NORMAL);
+		} else if (++turnCounter == 9) {
+			end(END_TURNS);
+		} else {
+			nextTurn();
 		}
-		return END_NORMAL;
 	}
 
 
@@ -111,123 +181,75 @@ public class Morpion implements IGame {
 	 * Affiche un message sur le serveur indiquant la fin de la partie.
 	 */
 	private void end(int end) {
-		String endMessage = Thread.currentThread().getName() + " fini : ";
+		cancelDeadline();
+		String endMessage = "Morpion" + instanceNumber + " fini : ";
 		String reason;
 		if (end == END_TURNS) {
 			reason = "Egalité";
 		} else if (end == END_ERROR) {
 			reason = "Erreur de communication";
 		} else {
+			// le gagnant est l'autre joueur que celui dont c'est le tour
 			currentPlayer = 1 - currentPlayer;
 			reason = "Le joueur " + (currentPlayer + 1) + " a gagné";
+			if (end == END_TIMEOUT) {
+				reason += " (temps écoulé)";
+			}
 		}
 
 		System.out.println(endMessage + reason);
-		if (end == END_NORMAL) {
+		if (end == END_NORMAL || end == END_TIMEOUT) {
 			players[currentPlayer].receiveMessage("Vous avez gagné !");
 			players[1 - currentPlayer].receiveMessage("Vous avez perdu...");
+			Elo.update(players[currentPlayer], players[1 - currentPlayer], 1);
 		} else {
 			server.sendMessage(reason, players);
+			if (end == END_TURNS) {
+				Elo.update(players[0], players[1], 0.5);
+			}
+		}
+		for (ClientManager p : players) {
+			p.receiveMessage("Votre classement : " + Math.round(p.getRating()));
 		}
 		for (ClientManager p : players) {
 			p.endPlaying();
 		}
+		server.flush(players);
 		// fin de la partie
+		context.end();
 	}
 
 
 	/**
-	 * Demande au joueur les coordonnées où il veut placer son symbole.
-	 * @param player le joueur courant.
-	 * @return les coordonnées entrées par le joueur.
+	 * La partie est finie si le joueur qui vient de jouer a aligné 3 symboles.
 	 */
-	private int[] getCoords(ClientManager player) throws IOException {
-		int[] coords = new int[2];
-		String msg = null;
-		while (true) {
-			for (int i = 0; i < 2; i++) {
-				do {
-					player.receiveMessage(prompt[i]);
-					if (player.isConnected()) {
-						msg = player.getBF().readLine();
-					}
-					if (msg == null) {
-						//System.out.println("C'est viiiiiiiiiide");
-						server.disconnectClient(player);
-						emergencyShutDown();
-						return null;
-					}
-				} while (!msg.matches("[1-3]"));
-				coords[i] = Integer.parseInt(msg) - 1;
-			}
-			if (grid[coords[0]][coords[1]] != ' ') {
-				player.receiveMessage("Case déjà occupée");
-			} else {
-				break;
-			}
-		}
-		return coords;
-	}
-
-
 	private boolean isGameOver() {
-		return checkRows() || checkCols() || checkDiags();
+		return board.hasWon(1 - currentPlayer);
 	}
 
 
-	private boolean checkRows() {
-		boolean bOk = false;
-		for (int i = 0; i < grid.length; i++) {
-			if (grid[i][0] != ' ') {
-				bOk = (grid[i][0] == grid[i][1] && grid[i][1] == grid[i][2]);
-			}
-			if (bOk) break;
-		}
-		return bOk;
-	}
-
-
-	private boolean checkCols() {
-		boolean bOk = false;
-		for (int i = 0; i < grid.length || bOk; i++) {
-			if (grid[0][i] != ' ') {
-				bOk = (grid[0][i] == grid[1][i] && grid[1][i] == grid[2][i]);
-			}
-			if (bOk) break;
-		}
-		return bOk;
-	}
-
-
-	private boolean checkDiags() {
-		boolean bOk = false;
-		if (grid[1][1] != ' ') {
-			bOk = (grid[0][0] == grid[1][1] && grid[1][1] == grid[2][2]) ||
-				  (grid[2][0] == grid[1][1] && grid[1][1] == grid[0][2]);
-		}
-		return bOk;
+	/**
+	 * Interrompt la partie suite à une déconnexion.
+	 */
+	public void onDisconnect(ClientManager player) {
+		server.sendMessage("L'autre joueur a quitté", players);
+		// abandon : la partie est perdue pour celui qui quitte
+		Elo.update(player == players[0] ? players[1] : players[0], player, 1);
+		end(END_ERROR);
 	}
 
 
-	public void emergencyShutDown() {
-		for (ClientManager p : players) {
-			p.receiveMessage("L'autre joueur a quitté");
-			p.endPlaying();
-		}
-		Thread.currentThread().interrupt();
+	/**
+	 * Renvoie la grille et le joueur dont c'est le tour.
+	 */
+	public void resume(ClientManager player) {
+		player.receiveMessage(board.frame());
+		player.receiveMessage(turn[currentPlayer]);
 	}
 
 
 	public String getGrid() {
-		String s = "+---+---+---+\n";
-		for (int i = 0; i < grid.length; i++) {
-			s += "| ";
-			for (int j = 0; j < grid[i].length; j++) {
-				s += grid[i][j] + " | ";
-			}
-			s += "\n+---+---+---+\n";
-		}
-		return s;
+		return board.frame().toString();
 	}
 
 
@@ -0,0 +1,122 @@
+/** MorpionBoard.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+import project.net.BinaryProtocol;
+import project.net.Frame;
+
+/**
+ * Grille de Morpion sous forme de deux masques de 9 bits, un par joueur.
+ * La case (ligne, colonne) correspond au bit ligne * 3 + colonne.
+ * L'affichage de chaque état de la grille n'est construit et encodé qu'une fois,
+ * puis partagé par toutes les parties.
+ */
+public class MorpionBoard {
+
+	private static final char[] SYMBOL = new char[] {'O', 'X'};
+	private static final int FULL = 0x1FF;
+
+	/**
+	 * Les 8 alignements gagnants : 3 lignes, 3 colonnes, 2 diagonales.
+	 */
+	private static final int[] WIN_MASKS = new int[] {
+		0x007, 0x038, 0x1C0,
+		0x049, 0x092, 0x124,
+		0x111, 0x054
+	};
+
+	private static final int[] POW3 = new int[] {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+	/**
+	 * Modèle de l'affichage et position de chaque case dans celui-ci.
+	 */
+	private static final String TEMPLATE;
+	private static final int[] CELL_OFFSET = new int[9];
+
+	/**
+	 * Affichage encodé de chaque état, indexé par l'encodage en base 3 de la grille.
+	 * Rempli au fur et à mesure des besoins.
+	 */
+	private static final Frame[] RENDERED = new Frame[POW3[8] * 3];
+
+	static {
+		String line = "+---+---+---+\n";
+		StringBuilder sb = new StringBuilder(line);
+		for (int i = 0; i < 3; i++) {
+			sb.append("| ");
+			for (int j = 0; j < 3; j++) {
+				CELL_OFFSET[i * 3 + j] = sb.length();
+				sb.append("  | ");
+			}
+			sb.append("\n").append(line);
+		}
+		TEMPLATE = sb.toString();
+	}
+
+	private final int[] masks;
+	private int state; // encodage en base 3 : 0 vide, 1 joueur 1, 2 joueur 2
+
+	public MorpionBoard() {
+		masks = new int[2];
+	}
+
+	/**
+	 * Place le symbole du joueur dans la case donnée.
+	 * @param player 0 ou 1
+	 * @param cell la case, entre 0 et 8
+	 */
+	public void play(int player, int cell) {
+		masks[player] |= 1 << cell;
+		state += (player + 1) * POW3[cell];
+	}
+
+	public boolean isOccupied(int cell) {
+		return ((masks[0] | masks[1]) & (1 << cell)) != 0;
+	}
+
+	/**
+	 * Vérifie en une seule passe si le joueur a aligné 3 symboles.
+	 */
+	public boolean hasWon(int player) {
+		int mask = masks[player];
+		for (int win : WIN_MASKS) {
+			if ((mask & win) == win) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isFull() {
+		return (masks[0] | masks[1]) == FULL;
+	}
+
+	public int getMask(int player) { return masks[player]; }
+
+	/**
+	 * Affichage ASCII de la grille, prêt à être envoyé.
+	 * Construit au premier besoin puis mis en cache.
+	 */
+	public Frame frame() {
+		Frame f = RENDERED[state];
+		if (f == null) {
+			char[] chars = TEMPLATE.toCharArray();
+			for (int cell = 0; cell < 9; cell++) {
+				for (int p = 0; p < 2; p++) {
+					if ((masks[p] & (1 << cell)) != 0) {
+						chars[CELL_OFFSET[cell]] = SYMBOL[p];
+					}
+				}
+			}
+			// Course bénigne : deux threads peuvent construire le même affichage
+			f = Frame.of(new String(chars), BinaryProtocol.board(masks[0], masks[1]));
+			RENDERED[state] = f;
+		}
+		return f;
+	}
+}
@@ -0,0 +1,80 @@
+/** Shoe.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Sabot de cartes d'une table : les cartes sont stockées sous forme d'index
+ * dans un tableau mélangé une seule fois, puis distribuées avec un curseur.
+ * Chaque table possède son propre générateur aléatoire.
+ */
+public class Shoe {
+
+	/**
+	 * Proportion du sabot à partir de laquelle on remélange entre deux manches.
+	 */
+	private static final int CUT_DIVISOR = 4;
+
+	private final byte[] cards;
+	private final SplittableRandom random;
+	private int cursor;
+
+	/**
+	 * @param nbDecks le nombre de jeux de 52 cartes dans le sabot
+	 */
+	public Shoe(int nbDecks) {
+		this(nbDecks, new SplittableRandom());
+	}
+
+	public Shoe(int nbDecks, SplittableRandom random) {
+		this.random = random;
+		cards = new byte[nbDecks * Card.DECK_SIZE];
+		for (int i = 0; i < cards.length; i++) {
+			cards[i] = (byte) (i % Card.DECK_SIZE);
+		}
+		shuffle();
+	}
+
+	/**
+	 * Mélange (Fisher-Yates) l'ensemble du sabot et remet le curseur au début.
+	 */
+	public void shuffle() {
+		for (int i = cards.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			byte tmp = cards[i];
+			cards[i] = cards[j];
+			cards[j] = tmp;
+		}
+		cursor = 0;
+	}
+
+	/**
+	 * Remélange le sabot s'il ne reste plus qu'un quart des cartes.
+	 * A appeler entre deux manches.
+	 */
+	public void shuffleIfNeeded() {
+		if (remaining() < cards.length / CUT_DIVISOR) {
+			shuffle();
+		}
+	}
+
+	/**
+	 * Tire la carte suivante, en O(1) et sans allocation.
+	 */
+	public Card draw() {
+		if (cursor == cards.length) {
+			shuffle();
+		}
+		return Card.of(cards[cursor++]);
+	}
+
+	public int remaining() {
+		return cards.length - cursor;
+	}
+}
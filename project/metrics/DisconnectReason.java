@@ -0,0 +1,26 @@
+/** DisconnectReason.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+/**
+ * Cause de la fermeture d'une connexion.
+ */
+public enum DisconnectReason {
+	/** Le client a demandé à quitter ("exit"). */
+	EXIT,
+	/** Le client a fermé la connexion. */
+	CLOSED,
+	/** Erreur d'entrée/sortie sur le socket. */
+	ERROR,
+	/** Pas de réponse au heartbeat : client disparu sans fermer la connexion. */
+	TIMEOUT,
+	/** Client trop lent à lire : trop de messages en attente d'envoi. */
+	SLOW,
+	/** Fermeture décidée par le serveur (fin de jeu, client fantôme, arrêt). */
+	KICKED
+}
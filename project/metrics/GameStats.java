@@ -0,0 +1,53 @@
+/** GameStats.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Compteurs d'un type de jeu. Les parties en cours, lancées et refusées sont
+ * lues sur le pool du jeu ; seules les fins de partie sont comptées ici.
+ */
+public class GameStats implements GameStatsMXBean {
+
+	private final String gameName;
+	private final int limit;
+	private final IntSupplier active;
+	private final LongSupplier started;
+	private final LongSupplier rejected;
+	private final LongAdder finished;
+	private final LatencyHistogram duration;
+
+	GameStats(String gameName, int limit, IntSupplier active, LongSupplier started, LongSupplier rejected) {
+		this.gameName = gameName;
+		this.limit    = limit;
+		this.active   = active;
+		this.started  = started;
+		this.rejected = rejected;
+		finished = new LongAdder();
+		duration = new LatencyHistogram();
+	}
+
+	/**
+	 * @param nanos la durée de la partie
+	 */
+	public void finished(long nanos) {
+		finished.increment();
+		duration.record(nanos);
+	}
+
+	public String getGameName()          { return gameName;              }
+	public int getActive()               { return active.getAsInt();     }
+	public int getLimit()                { return limit;                 }
+	public long getStarted()             { return started.getAsLong();   }
+	public long getFinished()            { return finished.sum();        }
+	public long getRejected()            { return rejected.getAsLong();  }
+	public LatencySnapshot getDuration() { return duration.snapshot();   }
+}
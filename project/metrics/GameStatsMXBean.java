@@ -0,0 +1,28 @@
+/** GameStatsMXBean.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+/**
+ * Indicateurs d'un type de jeu, publiés sous project:type=Game,name=<jeu>.
+ */
+public interface GameStatsMXBean {
+
+	public String getGameName();
+
+	public int getActive();
+
+	public int getLimit();
+
+	public long getStarted();
+
+	public long getFinished();
+
+	public long getRejected();
+
+	public LatencySnapshot getDuration();
+}
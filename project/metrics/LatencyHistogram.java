@@ -0,0 +1,115 @@
+/** LatencyHistogram.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées sans verrou, en microsecondes.
+ * Les valeurs sont rangées dans des intervalles logarithmiques découpés en
+ * 16 sous-intervalles : l'erreur relative reste sous 1/16 quelle que soit la durée.
+ * L'enregistrement ne coûte que quelques opérations atomiques.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int NB_BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final AtomicLong max;
+
+	public LatencyHistogram() {
+		counts = new AtomicLongArray(NB_BUCKETS);
+		count  = new LongAdder();
+		sum    = new LongAdder();
+		max    = new AtomicLong();
+	}
+
+	/**
+	 * @param nanos la durée mesurée, en nanosecondes
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts.incrementAndGet(bucket(micros));
+		count.increment();
+		sum.add(micros);
+		max.accumulateAndGet(micros, Math::max);
+	}
+
+	private static int bucket(long micros) {
+		if (micros < SUB_COUNT) {
+			return (int) micros;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * Plus petite valeur rangée dans l'intervalle.
+	 */
+	private static long lowerBound(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int exp = bucket / SUB_COUNT + SUB_BITS - 1;
+		return (long) (SUB_COUNT + bucket % SUB_COUNT) << (exp - SUB_BITS);
+	}
+
+	/**
+	 * @param p le percentile voulu, entre 0 et 100
+	 * @return la valeur approchée en millisecondes, 0 sans mesure
+	 */
+	public double percentile(double p) {
+		long total = count.sum();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < NB_BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				// milieu de l'intervalle, sans dépasser le maximum observé
+				long middle = (lowerBound(i) + lowerBound(i + 1) - 1) / 2;
+				return Math.min(middle, max.get()) / 1000.0;
+			}
+		}
+		return max.get() / 1000.0;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMeanMillis() {
+		long n = count.sum();
+		return n == 0 ? 0 : sum.sum() / 1000.0 / n;
+	}
+
+	public double getMaxMillis() {
+		return max.get() / 1000.0;
+	}
+
+	/**
+	 * Etat courant, publié tel quel par JMX.
+	 */
+	public LatencySnapshot snapshot() {
+		return new LatencySnapshot(getCount(), getMeanMillis(), percentile(50), percentile(90),
+			percentile(99), getMaxMillis());
+	}
+
+	public String toString() {
+		return snapshot().toString();
+	}
+}
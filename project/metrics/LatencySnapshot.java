@@ -0,0 +1,46 @@
+/** LatencySnapshot.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Résumé d'un LatencyHistogram, en millisecondes.
+ * Exposé par les MXBeans sous forme de CompositeData.
+ */
+public class LatencySnapshot {
+
+	private final long count;
+	private final double mean;
+	private final double p50;
+	private final double p90;
+	private final double p99;
+	private final double max;
+
+	@ConstructorParameters({"count", "mean", "p50", "p90", "p99", "max"})
+	public LatencySnapshot(long count, double mean, double p50, double p90, double p99, double max) {
+		this.count = count;
+		this.mean  = mean;
+		this.p50   = p50;
+		this.p90   = p90;
+		this.p99   = p99;
+		this.max   = max;
+	}
+
+	public long getCount()  { return count; }
+	public double getMean() { return mean;  }
+	public double getP50()  { return p50;   }
+	public double getP90()  { return p90;   }
+	public double getP99()  { return p99;   }
+	public double getMax()  { return max;   }
+
+	public String toString() {
+		return String.format("n=%d moy=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+			count, mean, p50, p90, p99, max);
+	}
+}
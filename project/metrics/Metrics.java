@@ -0,0 +1,146 @@
+/** Metrics.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Indicateurs du serveur, mis à jour sur les chemins chauds (LongAdder, sans
+ * verrou) et publiés comme MXBeans sur le MBeanServer de la plateforme,
+ * consultables avec jconsole ou la commande "stats".
+ */
+public final class Metrics {
+
+	private static final String DOMAIN = "project";
+
+	private static final LongAdder accepts     = new LongAdder();
+	private static final LongAdder opened      = new LongAdder();
+	private static final LongAdder closed      = new LongAdder();
+	private static final LongAdder bytesIn     = new LongAdder();
+	private static final LongAdder bytesOut    = new LongAdder();
+	private static final EnumMap<DisconnectReason, LongAdder> disconnects = new EnumMap<DisconnectReason, LongAdder>(DisconnectReason.class);
+	private static final LatencyHistogram turnResponse = new LatencyHistogram();
+
+	/**
+	 * Réception de la dernière action traitée par le thread de jeu courant.
+	 */
+	private static final ThreadLocal<long[]> turnStart = ThreadLocal.withInitial(() -> new long[1]);
+
+	private static final ConcurrentSkipListMap<String, QueueStats> queues = new ConcurrentSkipListMap<String, QueueStats>();
+	private static final ConcurrentSkipListMap<String, GameStats> games = new ConcurrentSkipListMap<String, GameStats>();
+
+	private static final ServerStatsMXBean server = new ServerStatsMXBean() {
+		public long getAccepts()           { return accepts.sum();                }
+		public long getActiveConnections() { return opened.sum() - closed.sum();  }
+		public long getBytesIn()           { return bytesIn.sum();                }
+		public long getBytesOut()          { return bytesOut.sum();               }
+		public LatencySnapshot getTurnResponse() { return turnResponse.snapshot(); }
+
+		public Map<String, Long> getDisconnects() {
+			LinkedHashMap<String, Long> map = new LinkedHashMap<String, Long>();
+			for (Map.Entry<DisconnectReason, LongAdder> e : disconnects.entrySet()) {
+				map.put(e.getKey().name(), e.getValue().sum());
+			}
+			return map;
+		}
+	};
+
+	static {
+		for (DisconnectReason reason : DisconnectReason.values()) {
+			disconnects.put(reason, new LongAdder());
+		}
+		register("type=Server", server);
+	}
+
+	private Metrics() {}
+
+	public static void accepted()          { accepts.increment(); }
+	public static void bytesIn(long n)     { bytesIn.add(n);      }
+	public static void bytesOut(long n)    { bytesOut.add(n);     }
+	public static void connectionOpened()  { opened.increment();  }
+
+	public static void connectionClosed(DisconnectReason reason) {
+		closed.increment();
+		disconnects.get(reason).increment();
+	}
+
+	/**
+	 * Appelée par le thread de jeu quand il reçoit l'action d'un joueur.
+	 */
+	public static void inputReceived() {
+		inputReceived(System.nanoTime());
+	}
+
+	/**
+	 * @param receivedAt l'instant (System.nanoTime()) de réception de l'action
+	 */
+	public static void inputReceived(long receivedAt) {
+		turnStart.get()[0] = receivedAt;
+	}
+
+	/**
+	 * Appelée par le thread de jeu à la fin de chaque évènement, une fois les
+	 * messages envoyés : le temps de réponse du tour est enregistré.
+	 */
+	public static void inputProcessed() {
+		long[] start = turnStart.get();
+		if (start[0] != 0) {
+			turnResponse.record(System.nanoTime() - start[0]);
+			start[0] = 0;
+		}
+	}
+
+	/**
+	 * Déclare une queue et publie ses indicateurs.
+	 * @param depth le nombre de joueurs en attente
+	 */
+	public static QueueStats registerQueue(String key, IntSupplier depth) {
+		QueueStats stats = new QueueStats(key, depth);
+		if (queues.putIfAbsent(key, stats) == null) {
+			register("type=Queue,name=" + ObjectName.quote(key), stats);
+		}
+		return queues.get(key);
+	}
+
+	/**
+	 * Déclare un type de jeu et publie ses indicateurs.
+	 */
+	public static GameStats registerGame(String gameName, int limit, IntSupplier active,
+			LongSupplier started, LongSupplier rejected) {
+		GameStats stats = new GameStats(gameName, limit, active, started, rejected);
+		if (games.putIfAbsent(gameName, stats) == null) {
+			register("type=Game,name=" + ObjectName.quote(gameName), stats);
+		}
+		return games.get(gameName);
+	}
+
+	private static void register(String properties, Object mbean) {
+		try {
+			MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+			mbs.registerMBean(mbean, new ObjectName(DOMAIN + ":" + properties));
+		} catch (JMException e) {
+			System.out.println("Indicateurs non publiés (" + properties + ") : " + e.getMessage());
+		}
+	}
+
+	public static ServerStatsMXBean server()         { return server;          }
+	public static Collection<QueueStats> queues()    { return queues.values(); }
+	public static Collection<GameStats> games()      { return games.values();  }
+}
@@ -0,0 +1,52 @@
+/** QueueStats.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Compteurs d'une queue. La profondeur est lue directement sur la queue.
+ */
+public class QueueStats implements QueueStatsMXBean {
+
+	private final String key;
+	private final IntSupplier depth;
+	private final LongAdder joined;
+	private final LongAdder left;
+	private final LongAdder matched;
+	private final LatencyHistogram wait;
+
+	QueueStats(String key, IntSupplier depth) {
+		this.key   = key;
+		this.depth = depth;
+		joined  = new LongAdder();
+		left    = new LongAdder();
+		matched = new LongAdder();
+		wait    = new LatencyHistogram();
+	}
+
+	public void joined() { joined.increment(); }
+	public void left()   { left.increment();   }
+
+	/**
+	 * Un joueur quitte la queue pour une partie.
+	 * @param waitNanos le temps passé dans la queue
+	 */
+	public void matched(long waitNanos) {
+		matched.increment();
+		wait.record(waitNanos);
+	}
+
+	public String getKey()           { return key;                }
+	public int getDepth()            { return depth.getAsInt();   }
+	public long getJoined()          { return joined.sum();       }
+	public long getLeft()            { return left.sum();         }
+	public long getMatched()         { return matched.sum();      }
+	public LatencySnapshot getWait() { return wait.snapshot();    }
+}
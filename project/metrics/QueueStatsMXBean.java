@@ -0,0 +1,32 @@
+/** QueueStatsMXBean.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+/**
+ * Indicateurs d'une queue, publiés sous project:type=Queue,name=<clé>.
+ */
+public interface QueueStatsMXBean {
+
+	public String getKey();
+
+	/**
+	 * Nombre de joueurs actuellement en attente.
+	 */
+	public int getDepth();
+
+	public long getJoined();
+
+	public long getLeft();
+
+	public long getMatched();
+
+	/**
+	 * Temps d'attente des joueurs placés dans une partie.
+	 */
+	public LatencySnapshot getWait();
+}
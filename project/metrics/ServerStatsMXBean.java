@@ -0,0 +1,35 @@
+/** ServerStatsMXBean.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+import java.util.Map;
+
+/**
+ * Indicateurs globaux du serveur, publiés sous project:type=Server.
+ */
+public interface ServerStatsMXBean {
+
+	public long getAccepts();
+
+	public long getActiveConnections();
+
+	public long getBytesIn();
+
+	public long getBytesOut();
+
+	/**
+	 * Nombre de déconnexions par cause (voir DisconnectReason).
+	 */
+	public Map<String, Long> getDisconnects();
+
+	/**
+	 * Temps passé par le serveur entre la réception d'une action de jeu et
+	 * l'attente de l'action suivante, envoi des messages compris.
+	 */
+	public LatencySnapshot getTurnResponse();
+}
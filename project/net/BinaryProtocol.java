@@ -0,0 +1,117 @@
+/** BinaryProtocol.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocole binaire optionnel, négocié juste après l'envoi du nom :
+ * le client envoie la ligne NEGOTIATE, le serveur répond par la ligne ACK,
+ * puis les deux côtés n'échangent plus que des messages binaires.
+ *
+ * Format d'un message : longueur (2 octets, big-endian, opcode compris),
+ * opcode (1 octet), données.
+ */
+public final class BinaryProtocol {
+
+	public static final String NEGOTIATE = "#binary";
+	public static final String ACK       = "#binary ok";
+
+	/*
+	 * Client -> serveur
+	 */
+	/**
+	 * Rejoindre une queue : jeu (1 Morpion, 2 Black-Jack), nombre de joueurs,
+	 * ou nombres minimal et maximal de joueurs acceptés
+	 */
+	public static final byte JOIN     = 0x01;
+	public static final byte LEAVE    = 0x02;
+	/** Mise : montant sur 2 octets */
+	public static final byte BET      = 0x03;
+	public static final byte HIT      = 0x04;
+	public static final byte STAND    = 0x05;
+	public static final byte DOUBLE   = 0x06;
+	/** Coup au Morpion : ligne, colonne (de 1 à 3) */
+	public static final byte MOVE     = 0x07;
+	/** Continuer la partie : 1 oui, 0 non */
+	public static final byte CONTINUE = 0x08;
+	public static final byte EXIT     = 0x09;
+
+	/*
+	 * Dans les deux sens
+	 */
+	/** Texte libre en UTF-8 */
+	public static final byte TEXT     = 0x10;
+	/** Test de présence (voir Heartbeat), auquel l'autre côté répond par PONG */
+	public static final byte PING     = 0x11;
+	public static final byte PONG     = 0x12;
+
+	/*
+	 * Serveur -> client
+	 */
+	/** Grille du Morpion : masque du joueur 1, masque du joueur 2 (2 octets chacun) */
+	public static final byte BOARD        = 0x20;
+	/** Etat de la queue : position (2 octets), taille (2 octets), clé de la queue en UTF-8 */
+	public static final byte QUEUE_STATUS = 0x21;
+
+	/**
+	 * Taille maximale des données d'un message.
+	 */
+	public static final int MAX_PAYLOAD = 0xFFFF - 1;
+
+	private BinaryProtocol() {}
+
+	/**
+	 * Message de texte libre. Au-delà de MAX_PAYLOAD octets, le texte est tronqué.
+	 */
+	public static Frame text(String msg) {
+		byte[] utf8 = msg.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(utf8.length, MAX_PAYLOAD);
+		ByteBuffer buf = header(TEXT, length);
+		buf.put(utf8, 0, length);
+		return new Frame(buf.array());
+	}
+
+	public static Frame board(int maskO, int maskX) {
+		ByteBuffer buf = header(BOARD, 4);
+		buf.putShort((short) maskO).putShort((short) maskX);
+		return new Frame(buf.array());
+	}
+
+	public static Frame queueStatus(int position, int size, String key) {
+		byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buf = header(QUEUE_STATUS, 4 + utf8.length);
+		buf.putShort((short) position).putShort((short) size).put(utf8);
+		return new Frame(buf.array());
+	}
+
+	/**
+	 * Message sans données, ou avec des données d'un octet chacune.
+	 * Utilisé par les clients : ex. message(HIT), message(MOVE, 2, 3).
+	 */
+	public static Frame message(byte opcode, int... bytes) {
+		ByteBuffer buf = header(opcode, bytes.length);
+		for (int b : bytes) {
+			buf.put((byte) b);
+		}
+		return new Frame(buf.array());
+	}
+
+	public static Frame bet(int amount) {
+		ByteBuffer buf = header(BET, 2);
+		buf.putShort((short) amount);
+		return new Frame(buf.array());
+	}
+
+	private static ByteBuffer header(byte opcode, int payloadLength) {
+		ByteBuffer buf = ByteBuffer.allocate(3 + payloadLength);
+		buf.putShort((short) (payloadLength + 1)).put(opcode);
+		return buf;
+	}
+}
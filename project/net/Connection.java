@@ -0,0 +1,81 @@
+/** Connection.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import project.metrics.DisconnectReason;
+
+/**
+ * Représente la liaison entre le serveur et un client, indépendamment du
+ * mode de transport utilisé (socket bloquant ou NIO).
+ * Les lignes reçues sont transmises au ConnectionListener associé.
+ */
+public interface Connection {
+
+	/**
+	 * Associe l'écouteur qui recevra les évènements de la connexion.
+	 * Doit être appelé avant le démarrage de la lecture, ou depuis
+	 * ConnectionListener.onLine pour confier la connexion à un autre écouteur.
+	 */
+	public void setListener(ConnectionListener listener);
+
+	/**
+	 * Envoie une ligne au client.
+	 * @param msg le message à envoyer, sans retour à la ligne final
+	 */
+	public default void send(String msg) {
+		send(Frame.of(msg));
+	}
+
+	/**
+	 * Envoie un message déjà encodé.
+	 * Le même Frame peut être envoyé à plusieurs connexions.
+	 */
+	public void send(Frame frame);
+
+	/**
+	 * Envoie un message depuis un thread partagé qui ne doit faire aucune
+	 * entrée/sortie (minuteries) : le message est seulement déposé, et écrit
+	 * par le thread d'écriture de la connexion.
+	 */
+	public default void post(Frame frame) {
+		send(frame);
+	}
+
+	/**
+	 * Passe la connexion en protocole binaire (voir BinaryProtocol), en lecture
+	 * comme en écriture. Doit être appelée depuis ConnectionListener.onLine.
+	 */
+	public void setBinary();
+
+	/**
+	 * Regroupe les messages suivants dans le tampon de sortie au lieu de les
+	 * envoyer un par un. Ils partent au prochain flush(), ou au plus tard
+	 * après le délai fixé par FlushScheduler.
+	 */
+	public void cork();
+
+	/**
+	 * Envoie les messages regroupés et repasse en envoi immédiat.
+	 */
+	public void flush();
+
+	/**
+	 * Ferme la connexion. L'écouteur est prévenu une seule fois.
+	 * @param reason la cause, comptée dans les indicateurs du serveur
+	 */
+	public void close(DisconnectReason reason);
+
+	/**
+	 * Fermeture décidée par le serveur.
+	 */
+	public default void close() {
+		close(DisconnectReason.KICKED);
+	}
+
+	public boolean isOpen();
+}
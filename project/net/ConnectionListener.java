@@ -0,0 +1,29 @@
+/** ConnectionListener.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+/**
+ * Evènements remontés par une Connection.
+ */
+public interface ConnectionListener {
+
+	/**
+	 * Appelée une fois, lorsque la connexion est prête à recevoir des messages.
+	 */
+	public void onOpen();
+
+	/**
+	 * Appelée pour chaque ligne complète reçue du client.
+	 */
+	public void onLine(String line);
+
+	/**
+	 * Appelée une seule fois, à la fermeture de la connexion.
+	 */
+	public void onClose();
+}
@@ -0,0 +1,51 @@
+/** FlushScheduler.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Garantit qu'un message regroupé (cork) ne reste pas plus longtemps que le
+ * budget de latence dans le tampon d'une connexion, même si le jeu oublie
+ * d'appeler flush().
+ * Le thread unique du minuteur est partagé par toutes les connexions : la
+ * tâche planifiée ne fait que confier l'envoi aux écrivains de la connexion,
+ * sans jamais écrire sur le socket. Elle est sans effet si le regroupement
+ * a déjà été envoyé par flush().
+ */
+public final class FlushScheduler {
+
+	private static volatile long latencyBudget = 20;
+
+	private static final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, task -> {
+		Thread t = new Thread(task, "Flush timer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	static {
+		timer.setRemoveOnCancelPolicy(true);
+	}
+
+	private FlushScheduler() {}
+
+	/**
+	 * @param millis délai maximal entre cork() et l'envoi effectif
+	 */
+	public static void setLatencyBudget(long millis) {
+		latencyBudget = Math.max(1, millis);
+	}
+
+	/**
+	 * @param flush lève le regroupement et confie l'envoi à la connexion, sans bloquer
+	 */
+	static void schedule(Runnable flush) {
+		timer.schedule(flush, latencyBudget, TimeUnit.MILLISECONDS);
+	}
+}
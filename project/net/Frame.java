@@ -0,0 +1,83 @@
+/** Frame.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Message déjà encodé, prêt à être écrit sur le réseau.
+ * Un Frame est immuable : il peut être envoyé à plusieurs clients et
+ * réutilisé autant de fois que nécessaire sans être ré-encodé.
+ * Un message texte connaît aussi son équivalent dans le protocole binaire,
+ * construit au premier envoi à un client binaire.
+ */
+public final class Frame {
+
+	private final byte[] bytes;
+	private final ByteBuffer buffer;
+	private volatile Frame binary;
+
+	Frame(byte[] bytes) {
+		this.bytes  = bytes;
+		this.buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Encode une ligne de texte en UTF-8, retour à la ligne compris.
+	 */
+	public static Frame of(String msg) {
+		return new Frame((msg + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Message ayant une forme dédiée dans le protocole binaire.
+	 * @param msg la version texte
+	 * @param binary la version binaire, ex : BinaryProtocol.board(...)
+	 */
+	public static Frame of(String msg, Frame binary) {
+		Frame frame = of(msg);
+		frame.binary = binary;
+		return frame;
+	}
+
+	/**
+	 * Version binaire du message : par défaut un message TEXT.
+	 */
+	Frame binary() {
+		Frame b = binary;
+		if (b == null) {
+			// Course bénigne : le même message peut être encodé deux fois
+			b = BinaryProtocol.text(toString());
+			binary = b;
+		}
+		return b;
+	}
+
+	/**
+	 * Vue en lecture seule sur les octets du message, avec sa propre position.
+	 * Les octets ne sont pas copiés.
+	 */
+	public ByteBuffer buffer() {
+		return buffer.duplicate();
+	}
+
+	void writeTo(OutputStream out) throws IOException {
+		out.write(bytes);
+	}
+
+	public int length() {
+		return bytes.length;
+	}
+
+	public String toString() {
+		return new String(bytes, 0, bytes.length - 1, StandardCharsets.UTF_8);
+	}
+}
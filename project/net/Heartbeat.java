@@ -0,0 +1,152 @@
+/** Heartbeat.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import jdk.net.ExtendedSocketOptions;
+import project.metrics.DisconnectReason;
+
+/**
+ * Détecte les clients disparus sans fermer leur connexion (coupure réseau,
+ * machine arrêtée) : sans cela, le socket reste ouvert indéfiniment.
+ *
+ * Toute donnée reçue prouve que le client est vivant ; la lecture ne fait que
+ * noter l'instant. Chaque connexion n'a qu'une échéance dans une roue
+ * temporelle partagée. A l'échéance, si le client a parlé pendant
+ * l'intervalle, l'échéance est reportée ; sinon il reçoit PING et doit
+ * répondre (PONG ou tout autre message) avant le délai de réponse, faute de
+ * quoi la connexion est fermée. Aucun parcours des connexions n'est fait.
+ */
+public final class Heartbeat {
+
+	public static final String PING = "#ping";
+	public static final String PONG = "#pong";
+
+	private static final Frame PING_FRAME = Frame.of(PING, BinaryProtocol.message(BinaryProtocol.PING));
+
+	private static final TimingWheel wheel = new TimingWheel("Heartbeat", 100, 512);
+
+	/**
+	 * Silence (ns) après lequel le client reçoit PING, 0 : pas de surveillance.
+	 */
+	private static volatile long interval = TimeUnit.SECONDS.toNanos(10);
+
+	/**
+	 * Délai (ns) laissé au client pour répondre à PING.
+	 */
+	private static volatile long timeout = TimeUnit.SECONDS.toNanos(5);
+
+	private final Connection connection;
+	private volatile long lastRead;
+	private volatile TimingWheel.Timeout next;
+
+	/**
+	 * PING envoyé, en attente de réponse. Lu et modifié par le thread de la roue.
+	 */
+	private boolean pinged;
+	private long pingedAt;
+
+	Heartbeat(Connection connection) {
+		this.connection = connection;
+		lastRead = System.nanoTime();
+	}
+
+	/**
+	 * @param intervalMillis silence après lequel le client reçoit PING (ms),
+	 * 0 pour ne pas surveiller les connexions
+	 * @param timeoutMillis délai de réponse à PING (ms)
+	 */
+	public static void configure(long intervalMillis, long timeoutMillis) {
+		interval = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+		timeout  = TimeUnit.MILLISECONDS.toNanos(Math.max(1, timeoutMillis));
+	}
+
+	/**
+	 * Active le keepalive TCP du socket, réglé sur l'intervalle du heartbeat
+	 * quand le système le permet : il détecte aussi les coupures du côté du
+	 * serveur, même pour un client qui ne répond pas à PING.
+	 */
+	public static void keepAlive(Socket socket) {
+		try {
+			socket.setKeepAlive(true);
+			if (interval > 0) {
+				socket.setOption(ExtendedSocketOptions.TCP_KEEPIDLE, seconds(interval));
+				socket.setOption(ExtendedSocketOptions.TCP_KEEPINTERVAL, seconds(timeout));
+				socket.setOption(ExtendedSocketOptions.TCP_KEEPCOUNT, 3);
+			}
+		} catch (IOException | UnsupportedOperationException e) {
+			// réglages par défaut du système
+		}
+	}
+
+	private static int seconds(long nanos) {
+		return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos));
+	}
+
+	/**
+	 * Commence la surveillance, à l'ouverture de la connexion.
+	 */
+	void start() {
+		long i = interval;
+		if (i > 0) {
+			schedule(i);
+		}
+	}
+
+	/**
+	 * Données reçues du client.
+	 */
+	void touch() {
+		lastRead = System.nanoTime();
+	}
+
+	/**
+	 * Arrête la surveillance, à la fermeture de la connexion.
+	 */
+	void stop() {
+		TimingWheel.Timeout t = next;
+		if (t != null) {
+			t.cancel();
+		}
+	}
+
+	private void schedule(long delayNanos) {
+		next = wheel.schedule(this::check, TimeUnit.NANOSECONDS.toMillis(delayNanos));
+	}
+
+	/**
+	 * Echéance, sur le thread de la roue, partagé par toutes les connexions :
+	 * PING est seulement déposé (post), jamais écrit sur ce thread.
+	 */
+	private void check() {
+		if (!connection.isOpen()) {
+			return;
+		}
+		long last = lastRead;
+		if (pinged) {
+			if (last - pingedAt < 0) {
+				connection.close(DisconnectReason.TIMEOUT);
+				return;
+			}
+			pinged = false;
+		}
+		long now = System.nanoTime();
+		long silence = now - last;
+		if (silence < interval) {
+			schedule(interval - silence);
+			return;
+		}
+		pinged   = true;
+		pingedAt = now;
+		connection.post(PING_FRAME);
+		schedule(timeout);
+	}
+}
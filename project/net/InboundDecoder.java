@@ -0,0 +1,170 @@
+/** InboundDecoder.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Découpe les octets reçus d'un client en lignes, en mode texte ou binaire.
+ * En mode binaire, chaque message est traduit en la ou les lignes que le
+ * lobby et les jeux attendent (ex : MOVE 2 3 donne "2" puis "3"), ce qui
+ * permet de garder une seule logique pour les deux protocoles.
+ * Les réponses au heartbeat (PONG) ne sont pas transmises.
+ */
+class InboundDecoder {
+
+	/**
+	 * Taille maximale d'une ligne reçue, le surplus est ignoré.
+	 */
+	private static final int MAX_LINE = 4096;
+
+	private final Consumer<String> output;
+	private volatile boolean binary;
+
+	private byte[] line;
+	private int lineLength;
+
+	// Etat du message binaire en cours : longueur attendue, -1 tant que l'en-tête n'est pas lu
+	private int header;
+	private int headerBytes;
+	private int expected;
+
+	InboundDecoder(Consumer<String> output) {
+		this.output = output;
+		line = new byte[128];
+		expected = -1;
+	}
+
+	/**
+	 * Passe en protocole binaire. Les octets suivants, y compris ceux déjà
+	 * reçus dans le même paquet, sont décodés en binaire.
+	 */
+	void setBinary(boolean binary) {
+		this.binary = binary;
+		lineLength  = 0;
+		headerBytes = 0;
+		expected    = -1;
+	}
+
+	boolean isBinary() { return binary; }
+
+	void decode(byte[] buf, int off, int len) {
+		for (int i = off; i < off + len; i++) {
+			if (binary) {
+				decodeBinary(buf[i]);
+			} else {
+				decodeText(buf[i]);
+			}
+		}
+	}
+
+	private void decodeText(byte b) {
+		if (b == '\n') {
+			int length = lineLength;
+			if (length > 0 && line[length - 1] == '\r') {
+				length--;
+			}
+			lineLength = 0;
+			String s = new String(line, 0, length, StandardCharsets.UTF_8);
+			if (!s.equals(Heartbeat.PONG)) {
+				output.accept(s);
+			}
+		} else if (lineLength < MAX_LINE) {
+			append(b);
+		}
+	}
+
+	private void decodeBinary(byte b) {
+		if (expected < 0) {
+			header = (header << 8) | (b & 0xFF);
+			if (++headerBytes == 2) {
+				expected = header & 0xFFFF;
+				header = 0;
+				headerBytes = 0;
+				lineLength = 0;
+				if (expected == 0) {
+					expected = -1;
+				}
+			}
+			return;
+		}
+		append(b);
+		if (lineLength == expected) {
+			expected = -1;
+			dispatch();
+			lineLength = 0;
+		}
+	}
+
+	private void append(byte b) {
+		if (lineLength == line.length) {
+			byte[] bigger = new byte[line.length * 2];
+			System.arraycopy(line, 0, bigger, 0, lineLength);
+			line = bigger;
+		}
+		line[lineLength++] = b;
+	}
+
+	/**
+	 * Traduit le message binaire complet contenu dans line.
+	 */
+	private void dispatch() {
+		int length = lineLength - 1;
+		switch (line[0]) {
+			case BinaryProtocol.JOIN :
+				if (length >= 1) {
+					output.accept(Integer.toString(line[1]));
+					if (length >= 3 && line[1] == 2) {
+						output.accept(line[2] + "-" + line[3]);
+					} else if (length >= 2 && line[1] == 2) {
+						output.accept(Integer.toString(line[2]));
+					}
+				}
+				break;
+			case BinaryProtocol.LEAVE :
+				output.accept("leave");
+				break;
+			case BinaryProtocol.BET :
+				if (length >= 2) {
+					output.accept(Integer.toString(((line[1] & 0xFF) << 8) | (line[2] & 0xFF)));
+				}
+				break;
+			case BinaryProtocol.HIT :
+				output.accept("hit");
+				break;
+			case BinaryProtocol.STAND :
+				output.accept("stand");
+				break;
+			case BinaryProtocol.DOUBLE :
+				output.accept("double");
+				break;
+			case BinaryProtocol.MOVE :
+				if (length >= 2) {
+					output.accept(Integer.toString(line[1]));
+					output.accept(Integer.toString(line[2]));
+				}
+				break;
+			case BinaryProtocol.CONTINUE :
+				output.accept(length >= 1 && line[1] != 0 ? "O" : "N");
+				break;
+			case BinaryProtocol.EXIT :
+				output.accept("exit");
+				break;
+			case BinaryProtocol.TEXT :
+				output.accept(new String(line, 1, length, StandardCharsets.UTF_8));
+				break;
+			case BinaryProtocol.PONG :
+				// réponse au heartbeat : seule sa réception compte
+				break;
+			default :
+				// opcode inconnu : ignoré
+				break;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+/** NioConnection.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import project.metrics.DisconnectReason;
+import project.metrics.Metrics;
+
+/**
+ * Connexion non bloquante gérée par un NioReactor.
+ * Les lectures et écritures ne sont faites que lorsque le socket est prêt,
+ * les lignes complètes sont transmises à l'écouteur depuis le thread de sa boucle (NioWorker).
+ */
+public class NioConnection implements Connection {
+
+	private static final ByteBuffer[] NO_BUFFERS = new ByteBuffer[0];
+
+	private final SocketChannel channel;
+	private final NioWorker worker;
+	private final ByteBuffer readBuffer;
+	private final InboundDecoder decoder;
+	private final ArrayDeque<ByteBuffer> writeQueue;
+	private final AtomicBoolean closed;
+	private final Heartbeat heartbeat;
+	private SelectionKey key;
+	private ConnectionListener listener;
+
+	/**
+	 * Protégés par le verrou de writeQueue.
+	 * corked : les messages sont gardés jusqu'au prochain flush.
+	 * corkGeneration : numéro du dernier cork(), pour ignorer le minuteur d'un
+	 * regroupement déjà envoyé par flush().
+	 * waitingWritable : la boucle terminera l'écriture quand le socket sera prêt.
+	 * pendingBytes : octets de writeQueue pas encore écrits ; au-delà de
+	 * SocketConnection.MAX_PENDING, le client est jugé trop lent et déconnecté.
+	 */
+	private boolean corked;
+	private int corkGeneration;
+	private boolean waitingWritable;
+	private int pendingBytes;
+
+	NioConnection(SocketChannel channel, NioWorker worker) {
+		this.channel = channel;
+		this.worker  = worker;
+		readBuffer = ByteBuffer.allocate(1024);
+		writeQueue = new ArrayDeque<ByteBuffer>();
+		closed     = new AtomicBoolean(false);
+		heartbeat  = new Heartbeat(this);
+		decoder    = new InboundDecoder(line -> {
+			if (!closed.get()) {
+				listener.onLine(line);
+			}
+		});
+	}
+
+	void setKey(SelectionKey key) { this.key = key; }
+
+	SocketChannel getChannel() { return channel; }
+
+	ConnectionListener getListener() { return listener; }
+
+	/**
+	 * Commence la surveillance de la connexion, une fois ouverte.
+	 */
+	void startHeartbeat() { heartbeat.start(); }
+
+	/**
+	 * Lit les données disponibles et transmet les lignes complètes.
+	 * Appelée par la boucle lorsque le socket est lisible.
+	 */
+	void read() throws IOException {
+		int n = channel.read(readBuffer);
+		if (n < 0) {
+			close(DisconnectReason.CLOSED);
+			return;
+		}
+		Metrics.bytesIn(n);
+		heartbeat.touch();
+		decoder.decode(readBuffer.array(), 0, n);
+		readBuffer.clear();
+	}
+
+	/**
+	 * Ecrit en une seule opération (écriture groupée) autant de messages en
+	 * attente que le socket le permet. Appelée sous le verrou de writeQueue.
+	 * @return true s'il reste des données à écrire
+	 */
+	private boolean drain() throws IOException {
+		if (writeQueue.isEmpty()) {
+			return false;
+		}
+		pendingBytes -= (int) channel.write(writeQueue.toArray(NO_BUFFERS));
+		while (!writeQueue.isEmpty() && !writeQueue.peek().hasRemaining()) {
+			writeQueue.poll();
+		}
+		return !writeQueue.isEmpty();
+	}
+
+	/**
+	 * Termine l'envoi des messages en attente.
+	 * Appelée par la boucle lorsque le socket est inscriptible.
+	 */
+	void write() throws IOException {
+		synchronized (writeQueue) {
+			if (drain()) {
+				return;
+			}
+			waitingWritable = false;
+			key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * Demande à la boucle d'être prévenu quand le socket sera inscriptible.
+	 */
+	void enableWrite() {
+		if (key != null && key.isValid()) {
+			key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+	}
+
+	public void setListener(ConnectionListener listener) { this.listener = listener; }
+
+	/**
+	 * Ajoute le message à writeQueue. Appelée sous le verrou de writeQueue.
+	 * @return false si le client laisse déjà trop d'octets en attente
+	 */
+	private boolean enqueue(Frame frame) {
+		if (pendingBytes + frame.length() > SocketConnection.MAX_PENDING) {
+			return false;
+		}
+		writeQueue.add(frame.buffer());
+		pendingBytes += frame.length();
+		Metrics.bytesOut(frame.length());
+		return true;
+	}
+
+	/**
+	 * Met le message en file. Hors regroupement (cork), la file est écrite
+	 * immédiatement ; ce que le socket n'accepte pas est terminé par la boucle.
+	 * Un client qui laisse plus de MAX_PENDING octets en attente est déconnecté.
+	 */
+	public void send(Frame frame) {
+		if (decoder.isBinary()) {
+			frame = frame.binary();
+		}
+		boolean overflow = false;
+		synchronized (writeQueue) {
+			if (closed.get()) {
+				return;
+			}
+			if (!enqueue(frame)) {
+				overflow = true;
+			} else if (corked) {
+				return;
+			}
+		}
+		if (overflow) {
+			close(DisconnectReason.SLOW);
+		} else {
+			flush();
+		}
+	}
+
+	/**
+	 * Met le message en file et laisse la boucle l'écrire, sans toucher au
+	 * socket depuis le thread appelant.
+	 */
+	public void post(Frame frame) {
+		if (decoder.isBinary()) {
+			frame = frame.binary();
+		}
+		boolean overflow = false;
+		synchronized (writeQueue) {
+			if (closed.get()) {
+				return;
+			}
+			if (enqueue(frame)) {
+				handOff();
+			} else {
+				overflow = true;
+			}
+		}
+		if (overflow) {
+			close(DisconnectReason.SLOW);
+		}
+	}
+
+	/**
+	 * Confie l'écriture des messages en attente à la boucle, hors regroupement.
+	 * Appelée sous le verrou de writeQueue.
+	 */
+	private void handOff() {
+		if (!corked && !waitingWritable && !writeQueue.isEmpty()) {
+			waitingWritable = true;
+			worker.requestWrite(this);
+		}
+	}
+
+	public void setBinary() {
+		decoder.setBinary(true);
+	}
+
+	public void cork() {
+		int generation;
+		synchronized (writeQueue) {
+			if (corked) {
+				return;
+			}
+			corked = true;
+			generation = ++corkGeneration;
+		}
+		FlushScheduler.schedule(() -> flushLater(generation));
+	}
+
+	public void flush() {
+		boolean failed = false;
+		synchronized (writeQueue) {
+			corked = false;
+			if (closed.get() || waitingWritable) {
+				return;
+			}
+			try {
+				if (drain()) {
+					waitingWritable = true;
+					worker.requestWrite(this);
+				}
+			} catch (IOException e) {
+				failed = true;
+			}
+		}
+		if (failed) {
+			close(DisconnectReason.ERROR);
+		}
+	}
+
+	/**
+	 * Comme flush(), mais l'écriture est faite par la boucle. Appelée par le
+	 * minuteur de FlushScheduler, pour le regroupement ouvert par le cork() de
+	 * ce numéro : sans effet s'il a déjà été envoyé.
+	 */
+	private void flushLater(int generation) {
+		synchronized (writeQueue) {
+			if (!corked || corkGeneration != generation) {
+				return;
+			}
+			corked = false;
+			if (!closed.get()) {
+				handOff();
+			}
+		}
+	}
+
+	public void close(DisconnectReason reason) {
+		if (closed.compareAndSet(false, true)) {
+			heartbeat.stop();
+			try {
+				channel.close();
+			} catch (IOException e) {}
+			synchronized (writeQueue) {
+				writeQueue.clear();
+				pendingBytes = 0;
+			}
+			Metrics.connectionClosed(reason);
+			listener.onClose();
+		}
+	}
+
+	public boolean isOpen() { return !closed.get(); }
+}
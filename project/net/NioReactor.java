@@ -0,0 +1,118 @@
+/** NioReactor.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import project.metrics.Metrics;
+
+/**
+ * Serveur NIO en deux niveaux : un ou plusieurs threads acceptent les
+ * connexions, puis les répartissent à tour de rôle entre plusieurs boucles
+ * d'entrées/sorties (NioWorker), une par cœur par défaut.
+ * Avec plusieurs accepteurs, chacun ouvre son propre socket d'écoute sur le
+ * même port (SO_REUSEPORT, Linux) : le noyau répartit les connexions entrantes.
+ */
+public class NioReactor {
+
+	private final ServerSocketChannel[] serverChannels;
+	private final NioWorker[] workers;
+	private final Consumer<Connection> acceptor;
+	private final AtomicInteger nextWorker;
+
+	/**
+	 * @param port le port d'écoute
+	 * @param nbAcceptors le nombre de threads d'acceptation, ramené à 1 sans SO_REUSEPORT
+	 * @param nbWorkers le nombre de boucles d'entrées/sorties
+	 * @param acceptor appelé pour chaque nouvelle connexion, avant le début de la lecture
+	 */
+	public NioReactor(int port, int nbAcceptors, int nbWorkers, Consumer<Connection> acceptor) throws IOException {
+		this.acceptor = acceptor;
+		nextWorker = new AtomicInteger();
+		workers = new NioWorker[Math.max(1, nbWorkers)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new NioWorker();
+		}
+
+		ServerSocketChannel first = ServerSocketChannel.open();
+		if (nbAcceptors > 1 && !first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+			System.out.println("SO_REUSEPORT non disponible : un seul thread d'acceptation");
+			nbAcceptors = 1;
+		}
+		serverChannels = new ServerSocketChannel[Math.max(1, nbAcceptors)];
+		serverChannels[0] = first;
+		for (int i = 1; i < serverChannels.length; i++) {
+			serverChannels[i] = ServerSocketChannel.open();
+		}
+		for (ServerSocketChannel channel : serverChannels) {
+			if (serverChannels.length > 1) {
+				channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+			}
+			channel.bind(new InetSocketAddress(port));
+			// Le premier socket a pu choisir le port (port 0) : les suivants le partagent
+			port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+		}
+	}
+
+	/**
+	 * Démarre les boucles d'entrées/sorties puis les threads d'acceptation.
+	 */
+	public void start() {
+		for (int i = 0; i < workers.length; i++) {
+			new Thread(workers[i], "NIO worker " + (i + 1)).start();
+		}
+		for (int i = 0; i < serverChannels.length; i++) {
+			ServerSocketChannel channel = serverChannels[i];
+			new Thread(() -> accept(channel), "NIO acceptor " + (i + 1)).start();
+		}
+	}
+
+	/**
+	 * Boucle d'un thread d'acceptation : l'attente sur accept() est bloquante,
+	 * les sockets acceptés passent en mode non bloquant.
+	 */
+	private void accept(ServerSocketChannel serverChannel) {
+		while (true) {
+			try {
+				SocketChannel channel = serverChannel.accept();
+				channel.configureBlocking(false);
+				Heartbeat.keepAlive(channel.socket());
+				Metrics.accepted();
+				NioWorker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+				NioConnection conn = new NioConnection(channel, worker);
+				acceptor.accept(conn);
+				worker.register(conn);
+			} catch (ClosedChannelException e) {
+				return;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return le port d'écoute, choisi par le système si le port demandé était 0
+	 */
+	public int getPort() {
+		try {
+			return ((InetSocketAddress) serverChannels[0].getLocalAddress()).getPort();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	public int getNbAcceptors() { return serverChannels.length; }
+	public int getNbWorkers()   { return workers.length;        }
+}
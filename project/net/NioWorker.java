@@ -0,0 +1,117 @@
+/** NioWorker.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import project.metrics.DisconnectReason;
+import project.metrics.Metrics;
+
+/**
+ * Boucle d'entrées/sorties d'un NioReactor : lit et écrit sur les sockets
+ * qui lui sont confiés à l'aide de son propre Selector.
+ * Une connexion reste sur la même boucle jusqu'à sa fermeture ; les lignes
+ * reçues sont transmises à l'écouteur depuis le thread de cette boucle.
+ * Aucune attente active : le thread dort tant qu'aucun socket n'est prêt.
+ */
+class NioWorker implements Runnable {
+
+	private final Selector selector;
+
+	/**
+	 * Connexions acceptées, en attente d'inscription auprès du Selector.
+	 */
+	private final Queue<NioConnection> registrations;
+
+	/**
+	 * Connexions ayant des données en attente d'écriture, traitées par le
+	 * thread de la boucle (seul autorisé à modifier les SelectionKey).
+	 */
+	private final Queue<NioConnection> pendingWrites;
+
+	NioWorker() throws IOException {
+		selector      = Selector.open();
+		registrations = new ConcurrentLinkedQueue<NioConnection>();
+		pendingWrites = new ConcurrentLinkedQueue<NioConnection>();
+	}
+
+	public void run() {
+		while (true) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+
+			NioConnection conn;
+			while ((conn = registrations.poll()) != null) {
+				open(conn);
+			}
+			while ((conn = pendingWrites.poll()) != null) {
+				conn.enableWrite();
+			}
+
+			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				conn = (NioConnection) key.attachment();
+				try {
+					if (key.isValid() && key.isReadable()) {
+						conn.read();
+					}
+					if (key.isValid() && key.isWritable()) {
+						conn.write();
+					}
+				} catch (IOException | CancelledKeyException e) {
+					conn.close(DisconnectReason.ERROR);
+				}
+			}
+		}
+	}
+
+	private void open(NioConnection conn) {
+		if (!conn.isOpen()) {
+			return;
+		}
+		try {
+			conn.setKey(conn.getChannel().register(selector, SelectionKey.OP_READ, conn));
+		} catch (IOException e) {
+			conn.close(DisconnectReason.ERROR);
+			return;
+		}
+		Metrics.connectionOpened();
+		conn.getListener().onOpen();
+		conn.startHeartbeat();
+	}
+
+	/**
+	 * Confie une nouvelle connexion à cette boucle.
+	 * Peut être appelée depuis n'importe quel thread.
+	 */
+	void register(NioConnection conn) {
+		registrations.add(conn);
+		selector.wakeup();
+	}
+
+	/**
+	 * Signale qu'une connexion a des données à écrire.
+	 * Peut être appelée depuis n'importe quel thread.
+	 */
+	void requestWrite(NioConnection conn) {
+		pendingWrites.add(conn);
+		selector.wakeup();
+	}
+}
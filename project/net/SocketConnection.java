@@ -0,0 +1,288 @@
+/** SocketConnection.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import project.metrics.DisconnectReason;
+import project.metrics.Metrics;
+
+/**
+ * Connexion classique : un socket bloquant lu par un thread dédié.
+ * Le thread exécutant run() est le seul à lire le socket.
+ *
+ * Les écritures sont faites par un petit pool d'écrivains partagé par toutes
+ * les connexions : send() et flush() ne font que déposer les messages et ne
+ * bloquent jamais, même si le client ne lit plus. Les threads des jeux, des
+ * minuteries et du heartbeat ne restent donc pas bloqués sur un client lent
+ * ou disparu, et chaque client n'occupe qu'un thread, celui de sa lecture.
+ * Une connexion n'est écrite que par un écrivain à la fois, qui rend la main
+ * au pool après chaque lot de messages.
+ */
+public class SocketConnection implements Connection, Runnable {
+
+	/**
+	 * Octets en attente d'envoi au-delà desquels le client est jugé trop lent
+	 * et déconnecté. Même limite pour NioConnection.
+	 */
+	static final int MAX_PENDING = 1 << 20;
+
+	/**
+	 * Délai (ms) laissé à l'écrivain pour envoyer les derniers messages après close().
+	 */
+	private static final long CLOSE_GRACE = 2000;
+
+	/**
+	 * Fermeture des sockets dont l'écrivain n'a pas fini à temps.
+	 */
+	private static final TimingWheel closer = new TimingWheel("Socket close", 100, 64);
+
+	private final Socket socket;
+	private final InputStream in;
+	private final InboundDecoder decoder;
+	private final BufferedOutputStream out; // utilisé par l'écrivain seulement
+	private final Executor writers;
+	private final AtomicBoolean closed;
+	private final Heartbeat heartbeat;
+	private ConnectionListener listener;
+
+	/**
+	 * Messages en attente d'envoi, protégés par writeLock.
+	 * writing : un lot est confié au pool ou en cours d'écriture.
+	 * corkGeneration : numéro du dernier cork(), pour ignorer le minuteur d'un
+	 * regroupement déjà envoyé par flush().
+	 */
+	private final ReentrantLock writeLock;
+	private final ArrayDeque<Frame> pending;
+	private int pendingBytes;
+	private boolean corked;
+	private int corkGeneration;
+	private boolean writing;
+
+	/**
+	 * @param writers le pool d'écrivains, partagé par les connexions
+	 */
+	public SocketConnection(Socket s, Executor writers) throws IOException {
+		socket = s;
+		Heartbeat.keepAlive(socket);
+		in     = socket.getInputStream();
+		decoder = new InboundDecoder(line -> listener.onLine(line));
+		out    = new BufferedOutputStream(socket.getOutputStream());
+		this.writers = writers;
+		writeLock = new ReentrantLock();
+		pending   = new ArrayDeque<Frame>();
+		closed = new AtomicBoolean(false);
+		heartbeat = new Heartbeat(this);
+	}
+
+	/**
+	 * Boucle de lecture bloquante : transmet chaque ligne à l'écouteur
+	 * jusqu'à la fin du flux.
+	 */
+	public void run() {
+		Metrics.connectionOpened();
+		listener.onOpen();
+		heartbeat.start();
+		byte[] buf = new byte[1024];
+		DisconnectReason reason = DisconnectReason.CLOSED;
+		try {
+			int n;
+			while ((n = in.read(buf)) > 0 && !closed.get()) {
+				Metrics.bytesIn(n);
+				heartbeat.touch();
+				decoder.decode(buf, 0, n);
+			}
+		} catch (IOException e) {
+			// socket fermé pendant la lecture, ou erreur réseau
+			reason = DisconnectReason.ERROR;
+		}
+		close(reason);
+	}
+
+	public void setListener(ConnectionListener listener) { this.listener = listener; }
+
+	/**
+	 * Confie l'envoi des messages en attente au pool, si aucun écrivain ne
+	 * s'en occupe déjà. Appelée sous writeLock.
+	 */
+	private void startWriting() {
+		if (!writing && !pending.isEmpty() && (!corked || closed.get())) {
+			writing = true;
+			writers.execute(this::write);
+		}
+	}
+
+	/**
+	 * Tâche de l'écrivain : envoie d'un coup les messages en attente, puis se
+	 * replace dans le pool s'il en est arrivé d'autres. Après close(), termine
+	 * l'envoi puis ferme le socket.
+	 */
+	private void write() {
+		ArrayList<Frame> batch;
+		writeLock.lock();
+		try {
+			batch = new ArrayList<Frame>(pending);
+			pending.clear();
+			pendingBytes = 0;
+		} finally {
+			writeLock.unlock();
+		}
+		try {
+			for (Frame frame : batch) {
+				frame.writeTo(out);
+			}
+			out.flush();
+		} catch (IOException e) {
+			writeLock.lock();
+			try {
+				writing = false;
+				pending.clear();
+			} finally {
+				writeLock.unlock();
+			}
+			close(DisconnectReason.ERROR);
+			closeSocket();
+			return;
+		}
+		boolean done;
+		writeLock.lock();
+		try {
+			writing = false;
+			startWriting();
+			done = !writing && closed.get();
+		} finally {
+			writeLock.unlock();
+		}
+		if (done) {
+			closeSocket();
+		}
+	}
+
+	/**
+	 * Met le message en file pour les écrivains, sans attendre son envoi : post()
+	 * revient donc au même.
+	 * Un client qui laisse plus de MAX_PENDING octets en attente est déconnecté.
+	 */
+	public void send(Frame frame) {
+		if (decoder.isBinary()) {
+			frame = frame.binary();
+		}
+		boolean overflow = false;
+		writeLock.lock();
+		try {
+			if (closed.get()) {
+				return;
+			}
+			if (pendingBytes + frame.length() > MAX_PENDING) {
+				overflow = true;
+			} else {
+				pending.add(frame);
+				pendingBytes += frame.length();
+				Metrics.bytesOut(frame.length());
+				startWriting();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		if (overflow) {
+			close(DisconnectReason.SLOW);
+		}
+	}
+
+	public void setBinary() {
+		decoder.setBinary(true);
+	}
+
+	public void cork() {
+		int generation;
+		writeLock.lock();
+		try {
+			if (corked) {
+				return;
+			}
+			corked = true;
+			generation = ++corkGeneration;
+		} finally {
+			writeLock.unlock();
+		}
+		FlushScheduler.schedule(() -> flushCork(generation));
+	}
+
+	public void flush() {
+		writeLock.lock();
+		try {
+			corked = false;
+			startWriting();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Minuteur de FlushScheduler : envoie le regroupement ouvert par le cork()
+	 * de ce numéro, s'il n'a pas déjà été envoyé.
+	 */
+	private void flushCork(int generation) {
+		writeLock.lock();
+		try {
+			if (corked && corkGeneration == generation) {
+				corked = false;
+				startWriting();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Les messages déjà déposés sont encore envoyés par les écrivains, pendant
+	 * au plus CLOSE_GRACE ms. Un client injoignable (erreur, heartbeat, trop
+	 * lent) est coupé tout de suite.
+	 */
+	public void close(DisconnectReason reason) {
+		if (closed.compareAndSet(false, true)) {
+			heartbeat.stop();
+			if (reason == DisconnectReason.ERROR || reason == DisconnectReason.TIMEOUT
+					|| reason == DisconnectReason.SLOW) {
+				closeSocket();
+			} else {
+				boolean idle;
+				writeLock.lock();
+				try {
+					startWriting();
+					idle = !writing;
+				} finally {
+					writeLock.unlock();
+				}
+				if (idle) {
+					closeSocket();
+				} else {
+					closer.schedule(this::closeSocket, CLOSE_GRACE);
+				}
+			}
+			Metrics.connectionClosed(reason);
+			listener.onClose();
+		}
+	}
+
+	private void closeSocket() {
+		try {
+			socket.close();
+		} catch (IOException e) {}
+	}
+
+	public boolean isOpen() { return !closed.get(); }
+}
@@ -0,0 +1,216 @@
+/** TimingWheel.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Roue temporelle hachée (hashed timing wheel) : échéances des tours de jeu,
+ * surveillance des connexions.
+ *
+ * Le temps est découpé en ticks ; chaque échéance est rangée dans la case
+ * (tick d'expiration modulo le nombre de cases) d'une roue de listes
+ * doublement chaînées. Un seul thread avance d'une case par tick et lance les
+ * échéances arrivées à terme ; une échéance plus lointaine qu'un tour de roue
+ * reste dans sa case le nombre de tours restants.
+ *
+ * Programmer ou annuler une échéance coûte O(1) quel que soit leur nombre :
+ * les deux passent par une file que le thread de la roue vide à chaque tick,
+ * en accrochant ou décrochant l'échéance de sa case. La précision est d'un
+ * tick, suffisante pour des délais de plusieurs secondes.
+ * Les tâches sont lancées sur le thread de la roue : elles doivent être brèves
+ * (déposer un évènement sur une table, par exemple).
+ */
+public final class TimingWheel {
+
+	/**
+	 * Echéance programmée.
+	 */
+	public static final class Timeout {
+		private static final int WAITING   = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED   = 2;
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+			AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+		private final TimingWheel wheel;
+		private final Runnable task;
+		private final long deadline;
+		private volatile int state;
+
+		// Modifiés par le thread de la roue seulement
+		private long rounds;
+		private Bucket bucket;
+		private Timeout prev;
+		private Timeout next;
+
+		private Timeout(TimingWheel wheel, Runnable task, long deadline) {
+			this.wheel    = wheel;
+			this.task     = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Annule l'échéance si elle n'est pas encore arrivée.
+		 * @return false si la tâche est déjà lancée ou l'échéance déjà annulée
+		 */
+		public boolean cancel() {
+			if (!STATE.compareAndSet(this, WAITING, CANCELLED)) {
+				return false;
+			}
+			wheel.cancelled.offer(this);
+			return true;
+		}
+
+		private boolean expire() {
+			return STATE.compareAndSet(this, WAITING, EXPIRED);
+		}
+	}
+
+	/**
+	 * Case de la roue : liste doublement chaînée d'échéances.
+	 */
+	private static final class Bucket {
+		private Timeout head;
+		private Timeout tail;
+
+		private void add(Timeout t) {
+			t.bucket = this;
+			t.prev = tail;
+			if (tail == null) {
+				head = t;
+			} else {
+				tail.next = t;
+			}
+			tail = t;
+		}
+
+		private void remove(Timeout t) {
+			if (t.prev == null) {
+				head = t.next;
+			} else {
+				t.prev.next = t.next;
+			}
+			if (t.next == null) {
+				tail = t.prev;
+			} else {
+				t.next.prev = t.prev;
+			}
+			t.bucket = null;
+			t.prev = null;
+			t.next = null;
+		}
+
+		/**
+		 * Lance les échéances de la case arrivées à leur dernier tour.
+		 */
+		private void expire() {
+			Timeout t = head;
+			while (t != null) {
+				Timeout next = t.next;
+				if (t.rounds <= 0) {
+					remove(t);
+					if (t.expire()) {
+						try {
+							t.task.run();
+						} catch (RuntimeException e) {
+							e.printStackTrace();
+						}
+					}
+				} else {
+					t.rounds--;
+				}
+				t = next;
+			}
+		}
+	}
+
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final long startTime;
+
+	private final ConcurrentLinkedQueue<Timeout> pending;
+	private final ConcurrentLinkedQueue<Timeout> cancelled;
+
+	/**
+	 * Tick en cours de traitement. Modifié par le thread de la roue seulement.
+	 */
+	private long tick;
+
+	/**
+	 * @param name nom du thread de la roue
+	 * @param tickMillis durée d'un tick (ms)
+	 * @param size nombre de cases, arrondi à la puissance de 2 supérieure
+	 */
+	public TimingWheel(String name, long tickMillis, int size) {
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+		wheel = new Bucket[Integer.highestOneBit(Math.max(1, size - 1)) << 1];
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = new Bucket();
+		}
+		mask = wheel.length - 1;
+		pending   = new ConcurrentLinkedQueue<Timeout>();
+		cancelled = new ConcurrentLinkedQueue<Timeout>();
+		startTime = System.nanoTime();
+		Thread worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Programme une tâche dans delayMillis ms (à un tick près).
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		long delay = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+		// arrondi au tick supérieur : jamais en avance
+		long deadline = (System.nanoTime() - startTime + delay + tickNanos - 1) / tickNanos;
+		Timeout t = new Timeout(this, task, deadline);
+		pending.offer(t);
+		return t;
+	}
+
+	private void run() {
+		while (true) {
+			long wakeUp = startTime + (tick + 1) * tickNanos;
+			long now;
+			while ((now = System.nanoTime()) < wakeUp) {
+				LockSupport.parkNanos(wakeUp - now);
+			}
+			addPending();
+			removeCancelled();
+			wheel[(int) (tick & mask)].expire();
+			tick++;
+		}
+	}
+
+	private void addPending() {
+		Timeout t;
+		while ((t = pending.poll()) != null) {
+			if (t.state != Timeout.WAITING) {
+				continue;
+			}
+			long deadline = Math.max(t.deadline, tick);
+			t.rounds = (deadline - tick) / wheel.length;
+			wheel[(int) (deadline & mask)].add(t);
+		}
+	}
+
+	private void removeCancelled() {
+		Timeout t;
+		while ((t = cancelled.poll()) != null) {
+			// annulée avant d'avoir été rangée : addPending l'a ignorée
+			if (t.bucket != null) {
+				t.bucket.remove(t);
+			}
+		}
+	}
+}
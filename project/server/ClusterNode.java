@@ -0,0 +1,272 @@
+/** ClusterNode.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import project.client.ClientManager;
+import project.client.ProxyLink;
+import project.cluster.Match;
+import project.cluster.MatchCoordinator;
+import project.cluster.Node;
+
+/**
+ * Participation du serveur à un cluster : publie les joueurs qui n'ont pas
+ * trouvé de table sur ce nœud, et applique les décisions du coordinateur.
+ * Sur le nœud hôte, la partie démarre quand tous les joueurs relayés sont
+ * arrivés ; sur les autres nœuds, chaque joueur est relayé par un ProxyLink.
+ * La table hôte est enregistrée dès la réservation des joueurs : un joueur
+ * relayé peut arriver avant que le GO soit parvenu à l'hôte.
+ * Un relais n'est accepté qu'avec le secret de la table, connu des seuls
+ * nœuds concernés ; l'argent des joueurs relayés vient du coordinateur,
+ * qui le tient de leur propre nœud.
+ */
+class ClusterNode implements MatchCoordinator.Listener {
+
+	/**
+	 * Délai d'arrivée des joueurs relayés, au-delà duquel la table est annulée.
+	 */
+	private static final long PROXY_TIMEOUT = 10000;
+
+	/**
+	 * Table hébergée par ce nœud, en attente du GO et des joueurs relayés.
+	 */
+	private static class HostedMatch {
+		private final Match match;
+		private final ClientManager[] seats;
+
+		/**
+		 * La table reçue avec le GO, qui porte l'argent des joueurs. Null avant.
+		 */
+		private Match ready;
+
+		/**
+		 * Places encore vides, y compris celles des joueurs de ce nœud avant le GO.
+		 */
+		private int missing;
+		private ScheduledFuture<?> timeout;
+
+		private HostedMatch(Match match) {
+			this.match = match;
+			seats   = new ClientManager[match.getNbPlayers()];
+			missing = seats.length;
+		}
+	}
+
+	private final SimpleServer server;
+	private final MatchCoordinator coordinator;
+	private final Node self;
+
+	/**
+	 * Joueurs de ce nœud retirés de leur queue pour une table, en attente de GO ou RELEASE.
+	 */
+	private final ConcurrentHashMap<Long, ClientManager[]> claimed;
+
+	/**
+	 * Tables dont ce nœud est l'hôte, de la réservation au lancement.
+	 */
+	private final ConcurrentHashMap<Long, HostedMatch> hosted;
+	private final ScheduledThreadPoolExecutor timer;
+
+	ClusterNode(SimpleServer server, MatchCoordinator coordinator, Node self) {
+		this.server      = server;
+		this.coordinator = coordinator;
+		this.self        = self;
+		claimed = new ConcurrentHashMap<Long, ClientManager[]>();
+		hosted  = new ConcurrentHashMap<Long, HostedMatch>();
+		timer = new ScheduledThreadPoolExecutor(1, task -> {
+			Thread t = new Thread(task, "Cluster timer");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.setRemoveOnCancelPolicy(true);
+	}
+
+	void start() throws IOException {
+		coordinator.register(self, this);
+		System.out.println("Cluster : " + self + " inscrit auprès du coordinateur");
+	}
+
+	/**
+	 * Publie les joueurs de la queue qui ne suffisent pas à former une table
+	 * sur ce nœud. Appelée par le matchmaking après chaque modification de la queue.
+	 * Une queue de plusieurs tailles de table est publiée pour chaque taille,
+	 * avec les joueurs qui l'acceptent.
+	 */
+	void publish(GameQueue queue) {
+		for (int nbPlayers = queue.getNbPlayers(); nbPlayers <= queue.getMaxPlayers(); nbPlayers++) {
+			List<ClientManager> waiting = queue.snapshot(nbPlayers);
+			long[] ids = new long[waiting.size() < nbPlayers ? waiting.size() : 0];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = waiting.get(i).getId();
+			}
+			coordinator.waiting(self.getId(), queue.tableKey(nbPlayers), nbPlayers, ids);
+		}
+	}
+
+	public void claim(Match match) {
+		GameQueue queue = server.tableQueue(match.getKey());
+		long[] ids = match.clientsOf(self.getId());
+		ClientManager[] players = new ClientManager[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			players[i] = server.clients.get(ids[i]);
+		}
+		boolean ok = queue != null && queue.removeAll(players);
+		double[] money = new double[players.length];
+		if (ok) {
+			for (int i = 0; i < players.length; i++) {
+				money[i] = players[i].getMoney();
+			}
+			server.unindex(queue, players);
+			server.queueChanged(queue);
+			claimed.put(match.getId(), players);
+			if (match.getHost().getId() == self.getId()) {
+				hosted.put(match.getId(), new HostedMatch(match));
+			}
+		}
+		coordinator.claimed(self.getId(), match.getId(), ok, money);
+	}
+
+	public void release(Match match) {
+		ClientManager[] players = claimed.remove(match.getId());
+		if (players != null) {
+			server.requeue(server.tableQueue(match.getKey()), players);
+		}
+		HostedMatch hm = hosted.remove(match.getId());
+		if (hm != null) {
+			synchronized (hm) {
+				for (ClientManager p : hm.seats) {
+					if (p != null) {
+						p.endPlaying();
+					}
+				}
+			}
+		}
+	}
+
+	public void go(Match match) {
+		ClientManager[] players = claimed.remove(match.getId());
+		if (players == null) {
+			return;
+		}
+		if (match.getHost().getId() != self.getId()) {
+			for (ClientManager p : players) {
+				String name = "Proxy " + p.getId() + " -> " + match.getHost().getHost() + ":" + match.getHost().getPort();
+				new ProxyLink(p, match.getHost().getHost(), match.getHost().getPort(),
+					match.getId(), match.seatOf(self.getId(), p.getId()), match.getSecret())
+					.start(task -> server.newThread(task, name), server.getWriters());
+			}
+			return;
+		}
+
+		HostedMatch hm = hosted.get(match.getId());
+		if (hm == null) {
+			server.requeue(server.tableQueue(match.getKey()), players);
+			return;
+		}
+		synchronized (hm) {
+			hm.ready = match;
+			for (ClientManager p : players) {
+				hm.seats[match.seatOf(self.getId(), p.getId())] = p;
+				p.receiveMessage("Partie trouvée avec des joueurs d'autres serveurs, en attente de leur arrivée...");
+			}
+			hm.missing -= players.length;
+			if (hm.missing > 0) {
+				hm.timeout = timer.schedule(() -> cancel(hm), PROXY_TIMEOUT, TimeUnit.MILLISECONDS);
+				return;
+			}
+			// tous les joueurs relayés sont arrivés avant le GO
+			hosted.remove(match.getId());
+		}
+		launch(hm);
+	}
+
+	/**
+	 * Un joueur relayé par un autre nœud est arrivé.
+	 * @return false si le relais est refusé : table inconnue, place prise ou
+	 * réservée à un joueur de ce nœud, ou mauvais secret
+	 */
+	boolean proxyJoined(ClientManager cli, long matchId, int seat, String secret) {
+		HostedMatch hm = hosted.get(matchId);
+		if (hm == null || !MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8),
+				hm.match.getSecret().getBytes(StandardCharsets.UTF_8))) {
+			return false;
+		}
+		synchronized (hm) {
+			if (seat < 0 || seat >= hm.seats.length || hm.seats[seat] != null
+					|| hm.match.getSeatNode(seat) == self.getId()) {
+				return false;
+			}
+			hm.seats[seat] = cli;
+			cli.proxyAccepted(matchId);
+			if (--hm.missing > 0) {
+				return true;
+			}
+			hosted.remove(matchId);
+			hm.timeout.cancel(false);
+		}
+		launch(hm);
+		return true;
+	}
+
+	/**
+	 * Lance la table hôte, toutes ses places occupées. Les joueurs relayés
+	 * reçoivent l'argent donné par leur nœud.
+	 */
+	private void launch(HostedMatch hm) {
+		for (int seat = 0; seat < hm.seats.length; seat++) {
+			if (hm.seats[seat].isProxied()) {
+				hm.seats[seat].stake(hm.ready.getMoney(seat));
+			}
+		}
+		String gameName = server.tableQueue(hm.match.getKey()).getGameName();
+		if (!server.launchGame(gameName, hm.seats)) {
+			abandon(hm, "Le nombre maximal de parties est atteint");
+		} else {
+			System.out.println("Cluster : " + hm.match + " lancée");
+		}
+	}
+
+	/**
+	 * Les joueurs relayés ne sont pas tous arrivés à temps.
+	 */
+	private void cancel(HostedMatch hm) {
+		synchronized (hm) {
+			if (hosted.remove(hm.match.getId()) == null) {
+				return;
+			}
+		}
+		abandon(hm, "Un joueur n'a pas pu rejoindre la partie");
+	}
+
+	/**
+	 * Annule une table : les joueurs de ce nœud retournent en tête de queue,
+	 * les joueurs relayés retournent sur leur nœud.
+	 */
+	private void abandon(HostedMatch hm, String reason) {
+		GameQueue queue = server.tableQueue(hm.match.getKey());
+		for (ClientManager p : hm.seats) {
+			if (p == null) {
+				continue;
+			}
+			p.receiveMessage(reason);
+			if (p.isProxied()) {
+				p.endPlaying();
+			} else {
+				server.requeue(queue, new ClientManager[] {p});
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/** ExecutionMode.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.lang.reflect.Method;
+
+/**
+ * Type de thread utilisé pour les clients (lecture et écriture des sockets)
+ * et le matchmaking. Les threads virtuels (Java 21+) permettent d'héberger un
+ * grand nombre de sessions sur le transport classique, dont les entrées/sorties
+ * sont bloquantes. Les parties tournent sur le pool de GameScheduler.
+ */
+enum ExecutionMode {
+
+	PLATFORM,
+	VIRTUAL;
+
+	/**
+	 * Méthodes de Thread.Builder, récupérées par réflexion afin de pouvoir
+	 * compiler et lancer le serveur sur une JVM sans threads virtuels.
+	 * Null si les threads virtuels ne sont pas disponibles.
+	 */
+	private static final Method OF_VIRTUAL;
+	private static final Method NAME;
+	private static final Method UNSTARTED;
+
+	static {
+		Method ofVirtual = null, name = null, unstarted = null;
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			name      = builder.getMethod("name", String.class);
+			unstarted = builder.getMethod("unstarted", Runnable.class);
+			// Sur Java 19/20 sans --enable-preview, ofVirtual() lève une exception
+			ofVirtual.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME       = name;
+		UNSTARTED  = unstarted;
+	}
+
+	/**
+	 * Lit le mode voulu ("platform" ou "virtual").
+	 * Revient aux threads classiques si la JVM ne gère pas les threads virtuels.
+	 */
+	static ExecutionMode fromConfig(String value) {
+		if (!value.equalsIgnoreCase("virtual")) {
+			return PLATFORM;
+		}
+		if (OF_VIRTUAL == null) {
+			System.out.println("Threads virtuels indisponibles sur cette JVM (Java 21 requis), " +
+				"utilisation des threads classiques");
+			return PLATFORM;
+		}
+		return VIRTUAL;
+	}
+
+	/**
+	 * Crée un thread (non démarré) du type correspondant au mode.
+	 * @param task la tâche à exécuter
+	 * @param name le nom du thread
+	 */
+	Thread newThread(Runnable task, String name) {
+		if (this == VIRTUAL) {
+			try {
+				Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+				return (Thread) UNSTARTED.invoke(builder, task);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Création du thread virtuel impossible", e);
+			}
+		}
+		return new Thread(task, name);
+	}
+}
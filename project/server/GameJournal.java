@@ -0,0 +1,467 @@
+/** GameJournal.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+import project.client.ClientManager;
+
+/**
+ * Journal des parties en cours, pour les reprendre après un arrêt brutal du
+ * serveur.
+ *
+ * Une partie ne dépend que de sa graine aléatoire, des lignes reçues de ses
+ * joueurs et des tours non joués à temps : le journal contient donc le
+ * lancement de chaque table (jeu, graine, joueurs et leur argent), chaque
+ * ligne, minuterie et départ de joueur transmis au jeu, et la fin de la table.
+ * Au redémarrage, les parties non terminées sont rejouées à partir de ces
+ * lignes, puis attendent le retour de leurs joueurs (jeton de reprise).
+ *
+ * Le thread du jeu ne fait qu'encoder l'entrée et la déposer dans une file ;
+ * un thread dédié les écrit par lots et force leur écriture sur disque.
+ * Quand le fichier dépasse ROTATE_SIZE, il est réécrit avec les seules
+ * tables en cours.
+ *
+ * Format d'une entrée : [taille u16][type u8][table u64][données][CRC32].
+ */
+public class GameJournal {
+
+	private static final byte START = 1;
+	private static final byte INPUT = 2;
+	private static final byte END   = 3;
+	private static final byte TIMER = 4;
+	private static final byte LEAVE = 5;
+
+	private static final int HEADER = 2;
+	private static final int CRC    = 4;
+	private static final long ROTATE_SIZE = 16 << 20;
+
+	/**
+	 * Table dont les évènements sont journalisés.
+	 */
+	public static class Table {
+		private final GameJournal journal;
+		private final long id;
+		private final AtomicInteger nextInput;
+
+		/**
+		 * Entrées de la table déjà écrites ou en attente, recopiées lors du
+		 * renouvellement du fichier. Protégé par this.
+		 */
+		private final List<byte[]> records;
+
+		/**
+		 * Reprise : lancée quand le jeu a relu les lignes rejouées.
+		 */
+		private final AtomicReference<Runnable> onLive;
+
+		private Table(GameJournal journal, long id) {
+			this.journal = journal;
+			this.id      = id;
+			nextInput = new AtomicInteger();
+			records   = new ArrayList<byte[]>();
+			onLive    = new AtomicReference<Runnable>();
+		}
+
+		/**
+		 * Ligne transmise au jeu par le joueur de la place seat.
+		 */
+		public void input(int seat, String line) {
+			if (journal == null) {
+				return;
+			}
+			int index = nextInput.getAndIncrement();
+			journal.append(this, INPUT, out -> {
+				out.writeInt(index);
+				out.writeByte(seat);
+				out.writeUTF(line);
+			});
+		}
+
+		/**
+		 * Minuterie du jeu arrivée à échéance (tour non joué à temps).
+		 */
+		public void timer(int timer) {
+			if (journal == null) {
+				return;
+			}
+			int index = nextInput.getAndIncrement();
+			journal.append(this, TIMER, out -> {
+				out.writeInt(index);
+				out.writeInt(timer);
+			});
+		}
+
+		/**
+		 * Départ définitif du joueur de la place seat.
+		 */
+		public void leave(int seat) {
+			if (journal == null) {
+				return;
+			}
+			int index = nextInput.getAndIncrement();
+			journal.append(this, LEAVE, out -> {
+				out.writeInt(index);
+				out.writeByte(seat);
+			});
+		}
+
+		/**
+		 * Partie reprise : les lignes du journal ont été rejouées, la partie
+		 * est revenue où elle s'était arrêtée.
+		 */
+		public void caughtUp() {
+			Runnable r = onLive.getAndSet(null);
+			if (r != null) {
+				r.run();
+			}
+		}
+
+		/**
+		 * Fin de la table : elle ne sera pas reprise.
+		 */
+		void end() {
+			if (journal == null) {
+				return;
+			}
+			journal.append(this, END, out -> {});
+			journal.tables.remove(id);
+		}
+
+		/**
+		 * @param action lancée quand la partie reprise a rattrapé le journal
+		 */
+		void whenCaughtUp(Runnable action) {
+			onLive.set(action);
+		}
+	}
+
+	/**
+	 * Evènement traité par une partie, à rejouer : une ligne d'un joueur, le
+	 * départ d'un joueur (line null, seat positif), ou une minuterie (line
+	 * null, seat -1).
+	 */
+	static class Input {
+		final int seat;
+		final String line;
+		final int timer;
+
+		private Input(int seat, String line, int timer) {
+			this.seat  = seat;
+			this.line  = line;
+			this.timer = timer;
+		}
+	}
+
+	/**
+	 * Table reconstruite depuis le journal au démarrage.
+	 */
+	static class Recovered {
+		final Table table;
+		final String gameName;
+		final long seed;
+		final String[] tokens;
+		final String[] names;
+		final double[] money;
+		final List<Input> inputs;
+
+		private Recovered(Table table, String gameName, long seed, int nbSeats) {
+			this.table    = table;
+			this.gameName = gameName;
+			this.seed     = seed;
+			tokens = new String[nbSeats];
+			names  = new String[nbSeats];
+			money  = new double[nbSeats];
+			inputs = new ArrayList<Input>();
+		}
+	}
+
+	private interface Body {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Table sans journal : joueurs relayés par le cluster, ou journal désactivé.
+	 */
+	private static final Table NONE = new Table(null, -1);
+
+	private final Path path;
+	private final AtomicLong nextId;
+	private final ConcurrentHashMap<Long, Table> tables;
+	private final ConcurrentLinkedQueue<byte[]> pending;
+	private final List<Recovered> recovered;
+	private FileChannel channel;
+
+	private GameJournal(Path path) {
+		this.path = path;
+		nextId    = new AtomicLong();
+		tables    = new ConcurrentHashMap<Long, Table>();
+		pending   = new ConcurrentLinkedQueue<byte[]>();
+		recovered = new ArrayList<Recovered>();
+	}
+
+	/**
+	 * Parties non journalisées.
+	 */
+	public static GameJournal disabled() {
+		return new GameJournal(null);
+	}
+
+	/**
+	 * Ouvre le journal et relit les tables non terminées (voir recovered()).
+	 * @param file le fichier du journal
+	 * @param flushDelay intervalle (ms) entre deux écritures groupées
+	 */
+	public static GameJournal open(String file, long flushDelay) throws IOException {
+		GameJournal journal = new GameJournal(Paths.get(file));
+		long start = System.nanoTime();
+		journal.load();
+		// Le nouveau fichier ne contient que les tables à reprendre
+		journal.rotate();
+		System.out.println(journal.recovered.size() + " partie(s) à reprendre depuis " + file + " (" +
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms)");
+		ScheduledThreadPoolExecutor writer = new ScheduledThreadPoolExecutor(1, task -> {
+			Thread t = new Thread(task, "Journal writer");
+			t.setDaemon(true);
+			return t;
+		});
+		writer.scheduleWithFixedDelay(journal::flushQuietly, flushDelay, flushDelay, TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(journal::flushQuietly, "Journal shutdown"));
+		return journal;
+	}
+
+	/**
+	 * Journalise le lancement d'une table.
+	 * @param seed la graine aléatoire de la partie
+	 */
+	Table start(String gameName, long seed, ClientManager[] players) {
+		if (path == null) {
+			return NONE;
+		}
+		for (ClientManager p : players) {
+			if (p.isProxied() || p.getToken() == null) {
+				// le joueur ne pourrait pas revenir dans la partie reprise
+				return NONE;
+			}
+		}
+		Table table = new Table(this, nextId.getAndIncrement());
+		tables.put(table.id, table);
+		append(table, START, out -> {
+			out.writeUTF(gameName);
+			out.writeLong(seed);
+			out.writeByte(players.length);
+			for (ClientManager p : players) {
+				out.writeUTF(p.getToken());
+				out.writeUTF(p.getName());
+				out.writeDouble(p.getMoney());
+			}
+		});
+		return table;
+	}
+
+	/**
+	 * @return les tables non terminées lors du dernier arrêt
+	 */
+	List<Recovered> recovered() {
+		return recovered;
+	}
+
+	private void append(Table table, byte type, Body body) {
+		byte[] record;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeShort(0);
+			out.writeByte(type);
+			out.writeLong(table.id);
+			body.write(out);
+			out.writeInt(0);
+			record = bytes.toByteArray();
+		} catch (IOException e) {
+			// ligne trop longue pour writeUTF : la table n'est plus journalisée
+			tables.remove(table.id);
+			return;
+		}
+		ByteBuffer b = ByteBuffer.wrap(record);
+		int length = record.length - HEADER - CRC;
+		b.putShort(0, (short) length);
+		CRC32 crc = new CRC32();
+		crc.update(record, HEADER, length);
+		b.putInt(record.length - CRC, (int) crc.getValue());
+		synchronized (table) {
+			table.records.add(record);
+			pending.offer(record);
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (IOException e) {
+			System.out.println("Ecriture du journal des parties impossible : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Ecrit les entrées en attente en un seul appel, puis force leur écriture
+	 * sur disque.
+	 */
+	synchronized void flush() throws IOException {
+		if (channel == null || pending.isEmpty()) {
+			return;
+		}
+		List<ByteBuffer> batch = new ArrayList<ByteBuffer>();
+		byte[] record;
+		while ((record = pending.poll()) != null) {
+			batch.add(ByteBuffer.wrap(record));
+		}
+		ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+		while (buffers[buffers.length - 1].hasRemaining()) {
+			channel.write(buffers);
+		}
+		channel.force(false);
+		if (channel.size() > ROTATE_SIZE) {
+			rotate();
+		}
+	}
+
+	/**
+	 * Réécrit le fichier avec les entrées des tables en cours, dans un fichier
+	 * temporaire qui remplace ensuite l'ancien.
+	 * Une entrée déposée pendant la copie peut être écrite deux fois : les
+	 * lignes sont numérotées et les doublons ignorés à la relecture.
+	 */
+	private synchronized void rotate() throws IOException {
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		Files.deleteIfExists(tmp);
+		FileChannel next = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		for (Table table : tables.values()) {
+			byte[][] records;
+			synchronized (table) {
+				records = table.records.toArray(new byte[0][]);
+			}
+			for (byte[] record : records) {
+				ByteBuffer b = ByteBuffer.wrap(record);
+				while (b.hasRemaining()) {
+					next.write(b);
+				}
+			}
+		}
+		next.force(false);
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if (channel != null) {
+			channel.close();
+		}
+		channel = next;
+	}
+
+	/**
+	 * Relit le journal jusqu'à la première entrée invalide, et garde les
+	 * tables lancées mais pas terminées.
+	 */
+	private void load() throws IOException {
+		if (!Files.exists(path)) {
+			return;
+		}
+		ByteBuffer buf;
+		try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+			buf = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+		}
+		Map<Long, Recovered> open = new LinkedHashMap<Long, Recovered>();
+		CRC32 crc = new CRC32();
+		long maxId = -1;
+		while (buf.remaining() > HEADER) {
+			int length = buf.getShort() & 0xFFFF;
+			if (length == 0 || buf.remaining() < length + CRC) {
+				break;
+			}
+			byte[] record = new byte[HEADER + length + CRC];
+			buf.position(buf.position() - HEADER);
+			buf.get(record);
+			crc.reset();
+			crc.update(record, HEADER, length);
+			if (ByteBuffer.wrap(record).getInt(HEADER + length) != (int) crc.getValue()) {
+				break;
+			}
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, HEADER, length));
+			byte type = in.readByte();
+			long id = in.readLong();
+			maxId = Math.max(maxId, id);
+			Recovered r = open.get(id);
+			if (type == START && r == null) {
+				String gameName = in.readUTF();
+				long seed = in.readLong();
+				int nbSeats = in.readUnsignedByte();
+				r = new Recovered(new Table(this, id), gameName, seed, nbSeats);
+				for (int i = 0; i < nbSeats; i++) {
+					r.tokens[i] = in.readUTF();
+					r.names[i]  = in.readUTF();
+					r.money[i]  = in.readDouble();
+				}
+				r.table.records.add(record);
+				open.put(id, r);
+			} else if (type == INPUT && r != null) {
+				int index = in.readInt();
+				int seat = in.readUnsignedByte();
+				String line = in.readUTF();
+				// doublon laissé par un renouvellement du fichier
+				if (index == r.table.nextInput.get() && seat < r.names.length) {
+					r.table.nextInput.incrementAndGet();
+					r.inputs.add(new Input(seat, line, -1));
+					r.table.records.add(record);
+				}
+			} else if (type == TIMER && r != null) {
+				int index = in.readInt();
+				int timer = in.readInt();
+				if (index == r.table.nextInput.get()) {
+					r.table.nextInput.incrementAndGet();
+					r.inputs.add(new Input(-1, null, timer));
+					r.table.records.add(record);
+				}
+			} else if (type == LEAVE && r != null) {
+				int index = in.readInt();
+				int seat = in.readUnsignedByte();
+				if (index == r.table.nextInput.get() && seat < r.names.length) {
+					r.table.nextInput.incrementAndGet();
+					r.inputs.add(new Input(seat, null, -1));
+					r.table.records.add(record);
+				}
+			} else if (type == END) {
+				open.remove(id);
+			}
+		}
+		nextId.set(maxId + 1);
+		for (Recovered r : open.values()) {
+			tables.put(r.table.id, r.table);
+			recovered.add(r);
+		}
+	}
+}
@@ -0,0 +1,273 @@
+/** GameQueue.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import project.client.ClientManager;
+import project.metrics.QueueStats;
+import project.net.BinaryProtocol;
+import project.net.Frame;
+
+/**
+ * File d'attente d'un jeu pour un nombre de joueurs donné.
+ * Le nom du jeu et le nombre de joueurs sont calculés une seule fois,
+ * à la création de la queue. Une queue peut aussi former des tables de
+ * plusieurs tailles (voir PackingQueue).
+ * Les joueurs sont gardés dans leur ordre d'arrivée, et peuvent être retirés en O(1).
+ * Les tables sont formées avec les premiers arrivés ; une sous-classe peut
+ * choisir autrement (voir RatedQueue).
+ */
+class GameQueue {
+
+	private final String key;
+	private final String gameName;
+	private final int nbPlayers;
+	private final int maxPlayers;
+	private final LinkedHashSet<ClientManager> players;
+	private QueueStats stats;
+
+	/**
+	 * Incrémenté à chaque arrivée ou départ. Protégé par this.
+	 */
+	private long modCount;
+
+	/**
+	 * Dernier état envoyé à chaque joueur (position << 32 | taille), et état
+	 * de la queue lors de cet envoi. Utilisés par le thread du matchmaking seulement.
+	 */
+	private HashMap<ClientManager, Long> sentStatus;
+	private long sentModCount;
+	private long statusSentAt;
+
+	/**
+	 * @param gameName le nom du jeu, ex : "Black-Jack"
+	 * @param nbPlayers le nombre de joueurs nécessaires pour lancer une partie
+	 */
+	GameQueue(String gameName, int nbPlayers) {
+		this(gameName, nbPlayers, nbPlayers, gameName + nbPlayers + "p");
+	}
+
+	/**
+	 * @param minPlayers le plus petit nombre de joueurs d'une table
+	 * @param maxPlayers le plus grand nombre de joueurs d'une table
+	 * @param key la clé de la queue
+	 */
+	GameQueue(String gameName, int minPlayers, int maxPlayers, String key) {
+		this.gameName   = gameName;
+		this.nbPlayers  = minPlayers;
+		this.maxPlayers = maxPlayers;
+		this.key        = key;
+		players = new LinkedHashSet<ClientManager>();
+		sentStatus = new HashMap<ClientManager, Long>();
+	}
+
+	synchronized void add(ClientManager cli) {
+		if (players.add(cli)) {
+			added(cli, false);
+			modCount++;
+		}
+	}
+
+	synchronized boolean remove(ClientManager cli) {
+		if (players.remove(cli)) {
+			removed(cli);
+			modCount++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Retire d'un coup des joueurs choisis (table formée par le coordinateur du cluster).
+	 * @return false, sans rien retirer, si l'un d'eux n'est plus dans la queue
+	 */
+	synchronized boolean removeAll(ClientManager[] clients) {
+		for (ClientManager c : clients) {
+			if (c == null || !players.contains(c)) {
+				return false;
+			}
+		}
+		for (ClientManager c : clients) {
+			players.remove(c);
+			removed(c);
+		}
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Remet des joueurs en tête de queue, dans l'ordre donné.
+	 */
+	synchronized void addFirst(ClientManager[] clients) {
+		LinkedHashSet<ClientManager> previous = new LinkedHashSet<ClientManager>(players);
+		players.clear();
+		for (ClientManager c : clients) {
+			players.add(c);
+		}
+		// du dernier au premier : chaque joueur passe devant ceux déjà en tête
+		for (int i = clients.length - 1; i >= 0; i--) {
+			if (!previous.contains(clients[i])) {
+				added(clients[i], true);
+			}
+		}
+		players.addAll(previous);
+		modCount++;
+	}
+
+	/**
+	 * @return true si une table peut être formée maintenant
+	 */
+	synchronized boolean hasMatch() {
+		return players.size() >= nbPlayers;
+	}
+
+	/**
+	 * Retire d'un coup les joueurs d'une table complète.
+	 * @return les joueurs de la partie, null si aucune table ne peut être formée
+	 */
+	synchronized ClientManager[] pollMatch() {
+		ClientManager[] match = chooseMatch();
+		if (match == null) {
+			return null;
+		}
+		for (ClientManager c : match) {
+			players.remove(c);
+			removed(c);
+		}
+		modCount++;
+		return match;
+	}
+
+	/**
+	 * Choisit les joueurs de la prochaine table, sans les retirer. Appelée
+	 * sous le verrou de la queue. Par défaut, les premiers arrivés.
+	 * @return null s'il n'y a pas assez de joueurs
+	 */
+	ClientManager[] chooseMatch() {
+		if (players.size() < nbPlayers) {
+			return null;
+		}
+		ClientManager[] match = new ClientManager[nbPlayers];
+		Iterator<ClientManager> it = players.iterator();
+		for (int i = 0; i < nbPlayers; i++) {
+			match[i] = it.next();
+		}
+		return match;
+	}
+
+	/**
+	 * Un joueur entre dans la queue. Appelée sous le verrou de la queue.
+	 * @param first true si le joueur est remis en tête de queue
+	 */
+	void added(ClientManager cli, boolean first) {}
+
+	/**
+	 * @return la date (ms) d'entrée du joueur dans la queue ; un joueur remis
+	 * en tête garde celle de sa première entrée
+	 */
+	static long queuedSince(ClientManager cli) {
+		long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cli.getQueuedAt());
+		return System.currentTimeMillis() - waited;
+	}
+
+	/**
+	 * Un joueur sort de la queue (départ ou table formée). Appelée sous le
+	 * verrou de la queue.
+	 */
+	void removed(ClientManager cli) {}
+
+	/**
+	 * @return l'instant (ms) où une table pourra être formée sans arrivée ni
+	 * départ de joueur, Long.MAX_VALUE si aucun
+	 */
+	long nextMatchTime() {
+		return Long.MAX_VALUE;
+	}
+
+	synchronized List<ClientManager> snapshot() {
+		return new ArrayList<ClientManager>(players);
+	}
+
+	/**
+	 * @return les joueurs qui acceptent une table de nbPlayers joueurs, dans
+	 * leur ordre d'arrivée
+	 */
+	List<ClientManager> snapshot(int nbPlayers) {
+		return snapshot();
+	}
+
+	/**
+	 * @return la clé d'une table de nbPlayers joueurs de cette queue, ex : "Black-Jack3p"
+	 */
+	String tableKey(int nbPlayers) {
+		return gameName + nbPlayers + "p";
+	}
+
+	/**
+	 * Envoie sa position aux seuls joueurs dont la position ou la taille de la
+	 * queue a changé depuis le dernier envoi. Ne coûte rien si la queue n'a
+	 * pas changé. Appelée par le thread du matchmaking.
+	 * @param now l'instant de l'envoi (ms)
+	 */
+	void sendStatus(long now) {
+		List<ClientManager> waiting;
+		synchronized (this) {
+			if (modCount == sentModCount) {
+				return;
+			}
+			sentModCount = modCount;
+			waiting = snapshot();
+		}
+		statusSentAt = now;
+		int size = waiting.size();
+		HashMap<ClientManager, Long> sent = new HashMap<ClientManager, Long>(size * 2);
+		for (int i = 0; i < size; i++) {
+			ClientManager c = waiting.get(i);
+			long status = ((long) (i + 1) << 32) | size;
+			Long previous = sentStatus.get(c);
+			if (previous == null || previous != status) {
+				c.receiveMessage(Frame.of("Tu es dans la queue pour un " + key + " (position " + (i + 1) + "/" + size +
+					") - tape \"leave\" pour sortir de la queue.",
+					BinaryProtocol.queueStatus(i + 1, size, key)));
+			}
+			sent.put(c, status);
+		}
+		sentStatus = sent;
+	}
+
+	/**
+	 * @return l'instant (ms) du dernier envoi de l'état de la queue
+	 */
+	long getStatusSentAt() { return statusSentAt; }
+
+	synchronized int size() {
+		return players.size();
+	}
+
+	/**
+	 * @return le nombre de tables complètes que les joueurs en attente
+	 * permettent de former
+	 */
+	synchronized int waitingTables() {
+		return players.size() / nbPlayers;
+	}
+
+	void setStats(QueueStats stats) { this.stats = stats; }
+
+	QueueStats getStats() { return stats;      }
+	String getKey()      { return key;        }
+	String getGameName() { return gameName;   }
+	int getNbPlayers()   { return nbPlayers;  }
+	int getMaxPlayers()  { return maxPlayers; }
+}
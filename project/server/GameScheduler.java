@@ -0,0 +1,181 @@
+/** GameScheduler.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import project.client.ClientManager;
+import project.game.IGame;
+import project.metrics.GameStats;
+import project.metrics.Metrics;
+import project.net.TimingWheel;
+
+/**
+ * Exécute les parties sur un petit pool de threads partagé : une table
+ * n'occupe un thread que pour traiter ses évènements (voir GameTable).
+ * Chaque type de jeu a sa propre limite de parties simultanées : de longues
+ * parties de Black-Jack ne peuvent pas empêcher le lancement de Morpions.
+ * Une partie n'est lancée que si une place est libre (admission) ; sinon les
+ * joueurs restent dans leur queue.
+ */
+class GameScheduler {
+
+	private static final int DEFAULT_LIMIT = 500;
+
+	/**
+	 * Roue des minuteries : tick de 100 ms, un tour de roue en 51,2 s.
+	 */
+	private static final int TIMER_TICK  = 100;
+	private static final int TIMER_WHEEL = 512;
+
+	/**
+	 * Cloison d'un type de jeu : limite et compteurs. Une table refusée faute
+	 * de place n'est comptée qu'une fois, même si son admission est tentée de
+	 * nouveau à chaque modification de sa queue.
+	 */
+	static class Bulkhead {
+		private final String gameName;
+		private final int limit;
+		private final long turnTimeout;
+		private final AtomicInteger active;
+		private final AtomicLong started;
+		private final AtomicLong rejected;
+		private final GameStats stats;
+
+		private Bulkhead(String gameName, int limit, long turnTimeout) {
+			this.gameName    = gameName;
+			this.limit       = limit;
+			this.turnTimeout = turnTimeout;
+			active   = new AtomicInteger();
+			started  = new AtomicLong();
+			rejected = new AtomicLong();
+			stats = Metrics.registerGame(gameName, limit, active::get, started::get, rejected::get);
+		}
+
+		String getGameName()  { return gameName;       }
+		int getLimit()        { return limit;          }
+		long getTurnTimeout() { return turnTimeout;    }
+		int getActive()       { return active.get();   }
+		long getStarted()     { return started.get();  }
+		long getRejected()    { return rejected.get(); }
+	}
+
+	private final LinkedHashMap<String, Bulkhead> bulkheads;
+	private final Consumer<String> onRelease;
+
+	/**
+	 * Threads exécutant les évènements de toutes les tables. Toujours des
+	 * threads classiques, un par cœur : le traitement d'un évènement ne fait
+	 * que calculer et déposer des messages (les envois ne bloquent pas), des
+	 * threads virtuels n'apporteraient rien.
+	 */
+	private final ThreadPoolExecutor pool;
+
+	/**
+	 * Minuteries des jeux, dont les échéances des tours : à l'échéance,
+	 * l'évènement est déposé sur la table.
+	 */
+	private final TimingWheel timers;
+
+	/**
+	 * @param nbThreads le nombre de threads du pool
+	 * @param onRelease appelé avec le nom du jeu quand une place se libère
+	 */
+	GameScheduler(int nbThreads, Consumer<String> onRelease) {
+		this.onRelease = onRelease;
+		bulkheads = new LinkedHashMap<String, Bulkhead>();
+		AtomicInteger threadNumber = new AtomicInteger();
+		pool = new ThreadPoolExecutor(nbThreads, nbThreads, 0, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			task -> new Thread(task, "Game worker " + threadNumber.incrementAndGet()));
+		timers = new TimingWheel("Game timers", TIMER_TICK, TIMER_WHEEL);
+	}
+
+	/**
+	 * Déclare un type de jeu. La limite se règle avec -Dserver.games.<nom>.max,
+	 * le délai d'un tour (s) avec -Dserver.games.<nom>.turn
+	 */
+	synchronized void register(String gameName) {
+		if (!bulkheads.containsKey(gameName)) {
+			int limit = Math.max(1, ServerConfig.getInt("server.games." + gameName + ".max", DEFAULT_LIMIT));
+			int turn = Math.max(0, ServerConfig.getInt("server.games." + gameName + ".turn", ServerConfig.TURN_TIMEOUT));
+			bulkheads.put(gameName, new Bulkhead(gameName, limit, TimeUnit.SECONDS.toMillis(turn)));
+		}
+	}
+
+	/**
+	 * Réserve une place pour une nouvelle partie.
+	 * @return false si le nombre maximal de parties de ce type est atteint
+	 */
+	boolean tryAdmit(String gameName) {
+		Bulkhead b = bulkheads.get(gameName);
+		int current;
+		do {
+			current = b.active.get();
+			if (current >= b.limit) {
+				return false;
+			}
+		} while (!b.active.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	/**
+	 * Compte une table refusée par tryAdmit. Appelée une seule fois par table,
+	 * pas à chaque tentative.
+	 */
+	void rejected(String gameName) {
+		bulkheads.get(gameName).rejected.incrementAndGet();
+	}
+
+	/**
+	 * Réserve une place même au-delà de la limite : parties reprises au
+	 * redémarrage, déjà admises avant l'arrêt.
+	 */
+	void admit(String gameName) {
+		bulkheads.get(gameName).active.incrementAndGet();
+	}
+
+	/**
+	 * Libère une place réservée avec tryAdmit sans lancer de partie.
+	 */
+	void cancel(String gameName) {
+		bulkheads.get(gameName).active.decrementAndGet();
+		onRelease.accept(gameName);
+	}
+
+	/**
+	 * Créé la table d'une partie admise. La partie commence avec GameTable.start().
+	 * @param journal le journal de la partie
+	 */
+	GameTable open(String gameName, IGame game, ClientManager[] players, GameJournal.Table journal) {
+		Bulkhead b = bulkheads.get(gameName);
+		b.started.incrementAndGet();
+		long start = System.nanoTime();
+		return new GameTable(game, players, journal, pool, timers, b.turnTimeout, () -> {
+			journal.end();
+			b.stats.finished(System.nanoTime() - start);
+			b.active.decrementAndGet();
+			onRelease.accept(gameName);
+		});
+	}
+
+	int getNbThreads() {
+		return pool.getMaximumPoolSize();
+	}
+
+	synchronized Map<String, Bulkhead> getBulkheads() {
+		return new LinkedHashMap<String, Bulkhead>(bulkheads);
+	}
+}
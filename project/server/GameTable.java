@@ -0,0 +1,288 @@
+/** GameTable.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import project.client.ClientManager;
+import project.game.GameContext;
+import project.game.IGame;
+import project.metrics.Metrics;
+import project.net.Frame;
+import project.net.TimingWheel;
+
+/**
+ * Table d'une partie : file des évènements du jeu, traités un à la fois sur
+ * le pool de threads des jeux.
+ *
+ * Les évènements (lignes des joueurs, départs, minuteries) sont déposés par
+ * les threads des connexions ; la table ne prend un thread du pool que
+ * lorsqu'elle a des évènements à traiter. Après chaque évènement, les
+ * messages regroupés des joueurs sont envoyés.
+ */
+public class GameTable implements GameContext {
+
+	/**
+	 * Nombre maximal d'évènements traités avant de rendre le thread au pool.
+	 */
+	private static final int BATCH = 32;
+
+	private final IGame game;
+	private final ClientManager[] players;
+	private final GameJournal.Table journal;
+	private final Executor executor;
+	private final TimingWheel timers;
+	private final long turnTimeout;
+	private final Runnable onEnd;
+
+	private final ConcurrentLinkedQueue<Runnable> mailbox;
+	private final AtomicBoolean scheduled;
+
+	/**
+	 * Modifié et lu par le thread qui traite les évènements.
+	 */
+	private boolean ended;
+
+	/**
+	 * Minuteries demandées pendant la reprise d'une partie, armées une fois
+	 * le journal rejoué. Null hors reprise. Utilisé par le thread de la table.
+	 */
+	private List<TableTimer> deferred;
+
+	/**
+	 * Minuterie d'un jeu. Son annulation et son échéance sont traitées sur le
+	 * thread de la table : une minuterie annulée n'est jamais transmise au jeu.
+	 */
+	private class TableTimer implements Timer {
+		private final long delayMillis;
+		private final int timer;
+		private TimingWheel.Timeout timeout;
+		private boolean done;
+
+		private TableTimer(long delayMillis, int timer) {
+			this.delayMillis = delayMillis;
+			this.timer       = timer;
+		}
+
+		private void arm() {
+			timeout = timers.schedule(() -> post(() -> {
+				if (!ended && !done) {
+					done = true;
+					journal.timer(timer);
+					game.onTimer(timer);
+				}
+			}), delayMillis);
+		}
+
+		public void cancel() {
+			done = true;
+			if (timeout != null) {
+				timeout.cancel();
+			}
+		}
+	}
+
+	/**
+	 * @param journal le journal de la partie
+	 * @param turnTimeout délai d'un tour (ms), 0 si illimité
+	 * @param onEnd appelé sur le thread de la table à la fin de la partie
+	 */
+	GameTable(IGame game, ClientManager[] players, GameJournal.Table journal,
+	          Executor executor, TimingWheel timers, long turnTimeout, Runnable onEnd) {
+		this.game        = game;
+		this.players     = players;
+		this.journal     = journal;
+		this.executor    = executor;
+		this.timers      = timers;
+		this.turnTimeout = turnTimeout;
+		this.onEnd       = onEnd;
+		mailbox   = new ConcurrentLinkedQueue<Runnable>();
+		scheduled = new AtomicBoolean();
+	}
+
+	/**
+	 * Lance la partie.
+	 * Pendant la reprise, les minuteries demandées par le jeu ne sont pas
+	 * armées : une échéance journalisée consomme la minuterie qui l'avait
+	 * produite, et seules celles encore en attente à la fin sont armées.
+	 * @param replay partie reprise : les lignes et minuteries déjà traitées
+	 * avant l'arrêt du serveur, rejouées avant tout nouvel évènement
+	 */
+	void start(List<GameJournal.Input> replay) {
+		post(() -> {
+			deferred = new ArrayList<TableTimer>();
+			game.start(this);
+			for (GameJournal.Input input : replay) {
+				if (ended) {
+					break;
+				}
+				if (input.line == null && input.seat >= 0) {
+					game.onDisconnect(players[input.seat]);
+				} else if (input.line == null) {
+					replayTimer(input.timer);
+				} else if (players[input.seat].isMyTurn()) {
+					game.onInput(players[input.seat], input.line);
+				}
+			}
+			List<TableTimer> pending = deferred;
+			deferred = null;
+			for (TableTimer t : pending) {
+				if (!t.done && !ended) {
+					t.arm();
+				}
+			}
+			journal.caughtUp();
+		});
+	}
+
+	/**
+	 * Rejoue une échéance : la dernière minuterie de ce type encore en
+	 * attente est celle qui avait expiré avant l'arrêt.
+	 */
+	private void replayTimer(int timer) {
+		for (int i = deferred.size() - 1; i >= 0; i--) {
+			TableTimer t = deferred.get(i);
+			if (t.timer == timer && !t.done) {
+				t.done = true;
+				break;
+			}
+		}
+		game.onTimer(timer);
+	}
+
+	/**
+	 * Ligne reçue d'un joueur. Elle n'est transmise au jeu que si c'est
+	 * toujours le tour du joueur quand elle est traitée.
+	 */
+	public void input(ClientManager player, String line) {
+		long receivedAt = System.nanoTime();
+		post(() -> {
+			if (ended || !player.isMyTurn()) {
+				return;
+			}
+			Metrics.inputReceived(receivedAt);
+			journal.input(seatOf(player), line);
+			game.onInput(player, line);
+		});
+	}
+
+	/**
+	 * Un joueur a quitté la partie.
+	 */
+	public void disconnect(ClientManager player) {
+		post(() -> {
+			if (!ended) {
+				journal.leave(seatOf(player));
+				game.onDisconnect(player);
+			}
+		});
+	}
+
+	/**
+	 * Un joueur revient après une coupure : il reçoit l'état de la partie
+	 * puis, si c'est son tour, la dernière question posée.
+	 */
+	public void resume(ClientManager player, Frame prompt) {
+		post(() -> {
+			player.cork();
+			player.receiveMessage("Reprise de la partie");
+			if (!ended) {
+				game.resume(player);
+			}
+			if (player.isMyTurn() && prompt != null) {
+				player.receiveMessage(prompt);
+			}
+		});
+	}
+
+	public Timer schedule(long delayMillis, int timer) {
+		TableTimer t = new TableTimer(delayMillis, timer);
+		if (deferred != null) {
+			deferred.add(t);
+		} else {
+			t.arm();
+		}
+		return t;
+	}
+
+	public long getTurnTimeout() {
+		return turnTimeout;
+	}
+
+	public void end() {
+		if (!ended) {
+			ended = true;
+			onEnd.run();
+		}
+	}
+
+	public IGame getGame() {
+		return game;
+	}
+
+	private int seatOf(ClientManager player) {
+		for (int i = 0; i < players.length; i++) {
+			if (players[i] == player) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void post(Runnable event) {
+		mailbox.offer(event);
+		if (scheduled.compareAndSet(false, true)) {
+			executor.execute(this::drain);
+		}
+	}
+
+	/**
+	 * Traite les évènements en attente. Un seul thread à la fois, grâce à
+	 * scheduled ; la table se replace dans le pool s'il en reste.
+	 * Même si un évènement lève une Error, scheduled est remis à false : sinon
+	 * plus aucun évènement de la table ne serait jamais traité.
+	 */
+	private void drain() {
+		try {
+			Runnable event;
+			int count = 0;
+			while (count++ < BATCH && (event = mailbox.poll()) != null) {
+				try {
+					event.run();
+				} catch (RuntimeException e) {
+					System.out.println(game.getInfo() + " interrompu : " + e);
+					e.printStackTrace();
+					if (!ended) {
+						for (ClientManager p : players) {
+							p.endPlaying();
+						}
+						end();
+					}
+				}
+				// temps de réponse du tour : de la réception de la ligne à l'envoi des messages
+				flushPlayers();
+				Metrics.inputProcessed();
+			}
+		} finally {
+			scheduled.set(false);
+			if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+				executor.execute(this::drain);
+			}
+		}
+	}
+
+	private void flushPlayers() {
+		for (ClientManager p : players) {
+			p.flush();
+		}
+	}
+}
@@ -1,19 +1,48 @@
-/** IServer.java
- *  @author Guillaume Coufourier
- *  @author Théo Crauffon
- *  @author Steven Hue
- */
-
-
-package project.server;
-
-import project.client.ClientManager;
-
-public interface IServer {
-
-	public void disconnectClient(ClientManager c);
-
-	public void getInQueue(ClientManager cli, String game);
-
-	public void exitQueue(ClientManager cli);
-}
+/** IServer.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import project.client.ClientManager;
+
+public interface IServer {
+
+	public void disconnectClient(ClientManager c);
+
+	public void getInQueue(ClientManager cli, String game);
+
+	public void exitQueue(ClientManager cli);
+
+	/**
+	 * Un joueur d'un autre nœud du cluster est relayé vers ce serveur.
+	 * @param matchId la table formée par le coordinateur
+	 * @param seat la place du joueur à cette table
+	 * @param secret le secret de la table présenté par le relais
+	 * @return false si le relais est refusé (table inconnue, place prise ou mauvais secret)
+	 */
+	public boolean proxyJoined(ClientManager cli, long matchId, int seat, String secret);
+
+	/**
+	 * @return l'argent des joueurs, conservé d'une connexion à l'autre
+	 */
+	public ValueStore getWallets();
+
+	/**
+	 * @return le classement Elo des joueurs, conservé d'une connexion à l'autre
+	 */
+	public ValueStore getRatings();
+
+	/**
+	 * @return les sessions des joueurs coupés en pleine partie, par jeton
+	 */
+	public SessionCache<ClientManager> getSessions();
+
+	/**
+	 * Retire un client sans fermer sa connexion, reprise par une autre session.
+	 */
+	public void detachClient(ClientManager cli);
+}
@@ -0,0 +1,264 @@
+/** PackingQueue.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import project.client.ClientManager;
+
+/**
+ * Queue unique d'un jeu dont les tables ont de minPlayers à maxPlayers
+ * joueurs. Chaque joueur indique les tailles de table qu'il accepte (une
+ * plage) ; les joueurs sont placés à toute table compatible au lieu d'attendre
+ * dans la queue d'une seule taille.
+ *
+ * Les joueurs sont rangés par plage acceptée, chaque plage dans l'ordre
+ * d'arrivée : le nombre de joueurs acceptant une taille et le plus ancien
+ * d'entre eux se calculent sur les plages seules, sans parcourir la queue.
+ * La table formée est celle dont le plus ancien joueur attend depuis le plus
+ * longtemps (la plus grande en cas d'égalité), avec les plus anciens joueurs
+ * qui l'acceptent.
+ *
+ * Vieillissement : quand le plus ancien joueur attend depuis plus de aging ms,
+ * plus aucune table n'est formée sans lui. Son attente est ainsi bornée par
+ * l'arrivée d'assez de joueurs compatibles, au lieu de dépendre des tables
+ * formées par les autres.
+ */
+class PackingQueue extends GameQueue {
+
+	/**
+	 * Joueur en attente, avec la plage de tailles de table qu'il accepte.
+	 */
+	private static final class Seat implements Comparable<Seat> {
+		private final ClientManager player;
+		private final int min;
+		private final int max;
+
+		/**
+		 * Ordre dans la queue : croissant à l'arrivée, décroissant pour les
+		 * joueurs remis en tête.
+		 */
+		private final long order;
+		private final long since;
+
+		private Seat(ClientManager player, int min, int max, long order, long since) {
+			this.player = player;
+			this.min    = min;
+			this.max    = max;
+			this.order  = order;
+			this.since  = since;
+		}
+
+		private boolean accepts(int nbPlayers) {
+			return min <= nbPlayers && nbPlayers <= max;
+		}
+
+		public int compareTo(Seat o) {
+			return Long.compare(order, o.order);
+		}
+	}
+
+	private final long aging;
+	private final HashMap<ClientManager, Seat> seats;
+
+	/**
+	 * Joueurs par plage acceptée, index (min, max) donné par range().
+	 */
+	private final List<TreeSet<Seat>> ranges;
+	private long nextOrder;
+	private long firstOrder;
+
+	/**
+	 * @param aging attente (ms) au-delà de laquelle le plus ancien joueur est prioritaire
+	 */
+	PackingQueue(String gameName, int minPlayers, int maxPlayers, long aging) {
+		super(gameName, minPlayers, maxPlayers, gameName);
+		this.aging = aging;
+		seats  = new HashMap<ClientManager, Seat>();
+		ranges = new ArrayList<TreeSet<Seat>>();
+		int span = maxPlayers - minPlayers + 1;
+		for (int i = 0; i < span * span; i++) {
+			ranges.add(new TreeSet<Seat>());
+		}
+	}
+
+	private TreeSet<Seat> range(int min, int max) {
+		return ranges.get(index(min, max));
+	}
+
+	/**
+	 * @return l'index de la plage (min, max) dans ranges
+	 */
+	private int index(int min, int max) {
+		int span = getMaxPlayers() - getNbPlayers() + 1;
+		return (min - getNbPlayers()) * span + max - getNbPlayers();
+	}
+
+	void added(ClientManager cli, boolean first) {
+		int min = Math.max(cli.getMinPlayers(), getNbPlayers());
+		int max = Math.min(cli.getMaxPlayers(), getMaxPlayers());
+		if (min > max) {
+			// plage hors des tailles de cette queue : toute table convient
+			min = getNbPlayers();
+			max = getMaxPlayers();
+		}
+		// un joueur remis en tête garde sa date d'entrée : son vieillissement continue
+		Seat s = new Seat(cli, min, max, first ? --firstOrder : nextOrder++, queuedSince(cli));
+		seats.put(cli, s);
+		range(min, max).add(s);
+	}
+
+	void removed(ClientManager cli) {
+		Seat s = seats.remove(cli);
+		if (s != null) {
+			range(s.min, s.max).remove(s);
+		}
+	}
+
+	synchronized boolean hasMatch() {
+		return chooseMatch() != null;
+	}
+
+	/**
+	 * Choisit la taille de la table puis ses joueurs, les plus anciens qui l'acceptent.
+	 */
+	ClientManager[] chooseMatch() {
+		Seat oldest = oldest(getMaxPlayers(), getNbPlayers());
+		if (oldest == null) {
+			return null;
+		}
+		int from = getNbPlayers();
+		int to   = getMaxPlayers();
+		if (System.currentTimeMillis() - oldest.since >= aging) {
+			// joueur prioritaire : seules ses tailles de table sont possibles
+			from = oldest.min;
+			to   = oldest.max;
+		}
+		int best = -1;
+		Seat bestFirst = null;
+		for (int nbPlayers = to; nbPlayers >= from; nbPlayers--) {
+			if (count(nbPlayers) < nbPlayers) {
+				continue;
+			}
+			Seat first = oldest(nbPlayers, nbPlayers);
+			if (bestFirst == null || first.order < bestFirst.order) {
+				best = nbPlayers;
+				bestFirst = first;
+			}
+		}
+		return best == -1 ? null : pick(best);
+	}
+
+	/**
+	 * @return le nombre de joueurs qui acceptent une table de nbPlayers joueurs
+	 */
+	private int count(int nbPlayers) {
+		int n = 0;
+		for (int min = getNbPlayers(); min <= nbPlayers; min++) {
+			for (int max = nbPlayers; max <= getMaxPlayers(); max++) {
+				n += range(min, max).size();
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * @return le plus ancien joueur dont la plage a un minimum d'au plus
+	 * upTo et un maximum d'au moins from, null si aucun
+	 */
+	private Seat oldest(int upTo, int from) {
+		Seat oldest = null;
+		for (int min = getNbPlayers(); min <= upTo; min++) {
+			for (int max = Math.max(min, from); max <= getMaxPlayers(); max++) {
+				TreeSet<Seat> r = range(min, max);
+				if (!r.isEmpty() && (oldest == null || r.first().order < oldest.order)) {
+					oldest = r.first();
+				}
+			}
+		}
+		return oldest;
+	}
+
+	/**
+	 * Fusionne les plages qui acceptent la taille, dans l'ordre de la queue,
+	 * jusqu'à remplir la table.
+	 */
+	private ClientManager[] pick(int nbPlayers) {
+		List<Iterator<Seat>> its = new ArrayList<Iterator<Seat>>();
+		List<Seat> heads = new ArrayList<Seat>();
+		for (int min = getNbPlayers(); min <= nbPlayers; min++) {
+			for (int max = nbPlayers; max <= getMaxPlayers(); max++) {
+				TreeSet<Seat> r = range(min, max);
+				if (!r.isEmpty()) {
+					Iterator<Seat> it = r.iterator();
+					its.add(it);
+					heads.add(it.next());
+				}
+			}
+		}
+		ClientManager[] match = new ClientManager[nbPlayers];
+		for (int i = 0; i < nbPlayers; i++) {
+			int next = -1;
+			for (int j = 0; j < heads.size(); j++) {
+				if (heads.get(j) != null && (next == -1 || heads.get(j).order < heads.get(next).order)) {
+					next = j;
+				}
+			}
+			match[i] = heads.get(next).player;
+			heads.set(next, its.get(next).hasNext() ? its.get(next).next() : null);
+		}
+		return match;
+	}
+
+	/**
+	 * Estimation : les tables sont formées des plus grandes aux plus petites.
+	 * Chacune prend d'abord les joueurs des plages au plus grand minimum, qui
+	 * ne conviennent pas aux tables plus petites. Ne compte que la taille des
+	 * plages, sans parcourir la queue.
+	 */
+	synchronized int waitingTables() {
+		int[] free = new int[ranges.size()];
+		for (int i = 0; i < free.length; i++) {
+			free[i] = ranges.get(i).size();
+		}
+		int tables = 0;
+		for (int nbPlayers = getMaxPlayers(); nbPlayers >= getNbPlayers(); nbPlayers--) {
+			int n = 0;
+			for (int min = getNbPlayers(); min <= nbPlayers; min++) {
+				for (int max = nbPlayers; max <= getMaxPlayers(); max++) {
+					n += free[index(min, max)];
+				}
+			}
+			int taken = n / nbPlayers * nbPlayers;
+			tables += n / nbPlayers;
+			for (int min = nbPlayers; min >= getNbPlayers() && taken > 0; min--) {
+				for (int max = nbPlayers; max <= getMaxPlayers() && taken > 0; max++) {
+					int i = index(min, max);
+					int k = Math.min(free[i], taken);
+					free[i] -= k;
+					taken   -= k;
+				}
+			}
+		}
+		return tables;
+	}
+
+	synchronized List<ClientManager> snapshot(int nbPlayers) {
+		List<ClientManager> waiting = new ArrayList<ClientManager>();
+		for (ClientManager c : snapshot()) {
+			if (seats.get(c).accepts(nbPlayers)) {
+				waiting.add(c);
+			}
+		}
+		return waiting;
+	}
+}
@@ -0,0 +1,86 @@
+/** PinnedThreadMonitor.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Signale les threads virtuels "épinglés" à leur thread porteur, par exemple
+ * lorsqu'ils bloquent à l'intérieur d'un bloc synchronized (celui de PrintWriter).
+ * S'appuie sur l'évènement JFR jdk.VirtualThreadPinned.
+ */
+final class PinnedThreadMonitor {
+
+	private static final String EVENT = "jdk.VirtualThreadPinned";
+
+	/**
+	 * Durée minimale d'épinglage pour qu'un évènement soit signalé.
+	 */
+	private static final Duration THRESHOLD = Duration.ofMillis(ServerConfig.getInt("server.pinned.threshold", 20));
+
+	private static final AtomicLong pinnedEvents = new AtomicLong();
+	private static RecordingStream stream;
+
+	private PinnedThreadMonitor() {}
+
+	/**
+	 * Démarre l'écoute des évènements en arrière-plan.
+	 */
+	static synchronized void start() {
+		if (stream != null) {
+			return;
+		}
+		try {
+			stream = new RecordingStream();
+			stream.enable(EVENT).withThreshold(THRESHOLD).withStackTrace();
+			stream.onEvent(EVENT, PinnedThreadMonitor::report);
+			stream.startAsync();
+		} catch (RuntimeException e) {
+			System.out.println("Surveillance des threads épinglés indisponible : " + e.getMessage());
+			stream = null;
+		}
+	}
+
+	static long getPinnedEvents() {
+		return pinnedEvents.get();
+	}
+
+	private static void report(RecordedEvent event) {
+		pinnedEvents.incrementAndGet();
+		String thread = event.getThread() != null ? event.getThread().getJavaName() : "?";
+		System.out.println("Thread virtuel épinglé (" + event.getDuration().toMillis() + " ms) : " +
+			thread + " dans " + where(event.getStackTrace()));
+	}
+
+	/**
+	 * @return la première frame hors du JDK (java.*, jdk.*), celle qui tient le
+	 * moniteur, ou à défaut la frame du sommet de la pile
+	 */
+	private static String where(RecordedStackTrace stack) {
+		if (stack == null || stack.getFrames().isEmpty()) {
+			return "?";
+		}
+		List<RecordedFrame> frames = stack.getFrames();
+		RecordedFrame at = frames.get(0);
+		for (RecordedFrame frame : frames) {
+			String type = frame.getMethod().getType().getName();
+			if (!type.startsWith("java.") && !type.startsWith("jdk.")) {
+				at = frame;
+				break;
+			}
+		}
+		return at.getMethod().getType().getName() + "." + at.getMethod().getName() + ":" + at.getLineNumber();
+	}
+}
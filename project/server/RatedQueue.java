@@ -0,0 +1,239 @@
+/** RatedQueue.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import project.client.ClientManager;
+
+/**
+ * Queue de deux joueurs appariés selon leur classement Elo.
+ *
+ * Les joueurs en attente sont indexés par classement (arbre trié) : le plus
+ * proche adversaire d'un joueur est l'un de ses deux voisins, trouvé en
+ * O(log n). Deux joueurs sont appariés si leur écart est dans la fenêtre de
+ * l'un d'eux ; la fenêtre d'un joueur s'élargit avec son attente.
+ *
+ * Chaque joueur n'est examiné qu'à son arrivée, puis à l'instant où sa
+ * fenêtre atteindra son plus proche voisin (échéancier trié par date). Une
+ * arrivée plus proche est vue par l'arrivant lui-même, un départ par
+ * l'examen suivant du voisin : la queue n'est jamais parcourue.
+ * Les examens périmés (joueur parti ou examen reprogrammé) restent dans
+ * l'échéancier jusqu'à leur date, sauf s'ils en deviennent la majorité :
+ * l'échéancier est alors purgé.
+ */
+class RatedQueue extends GameQueue {
+
+	/**
+	 * Ecart de classement accepté à l'arrivée.
+	 */
+	private static final double BASE_WINDOW = 100;
+
+	/**
+	 * Elargissement de la fenêtre par seconde d'attente.
+	 */
+	private static final double WIDEN_PER_SECOND = 20;
+
+	/**
+	 * Joueur en attente, avec le classement qu'il avait en entrant dans la queue.
+	 */
+	private static final class Seat implements Comparable<Seat> {
+		private final ClientManager player;
+		private final double rating;
+		private final long since;
+
+		/**
+		 * Prochain examen prévu, null si aucun.
+		 */
+		private Check check;
+
+		private Seat(ClientManager player, long since) {
+			this.player = player;
+			this.rating = player.getRating();
+			this.since  = since;
+		}
+
+		private double window(long now) {
+			return BASE_WINDOW + WIDEN_PER_SECOND * (now - since) / 1000.0;
+		}
+
+		/**
+		 * @return la date (ms) où la fenêtre du joueur atteindra l'écart gap
+		 */
+		private long reaches(double gap) {
+			return since + (long) Math.ceil((gap - BASE_WINDOW) / WIDEN_PER_SECOND * 1000);
+		}
+
+		public int compareTo(Seat o) {
+			int c = Double.compare(rating, o.rating);
+			return c != 0 ? c : Long.compare(player.getId(), o.player.getId());
+		}
+	}
+
+	/**
+	 * Examen prévu d'un joueur. Périmé s'il n'est plus l'examen prévu du
+	 * joueur : le joueur est parti, ou un autre examen a été prévu entre-temps.
+	 */
+	private static final class Check {
+		private final Seat seat;
+		private final long at;
+
+		private Check(Seat seat, long at) {
+			this.seat = seat;
+			this.at   = at;
+		}
+	}
+
+	private final HashMap<ClientManager, Seat> seats;
+	private final TreeSet<Seat> byRating;
+	private final PriorityQueue<Check> checks;
+
+	/**
+	 * Nombre d'examens périmés encore dans l'échéancier.
+	 */
+	private int stale;
+
+	/**
+	 * Table trouvée mais pas encore formée (en attente d'une place libre).
+	 */
+	private Seat[] pending;
+
+	RatedQueue(String gameName) {
+		super(gameName, 2);
+		seats    = new HashMap<ClientManager, Seat>();
+		byRating = new TreeSet<Seat>();
+		checks   = new PriorityQueue<Check>((a, b) -> Long.compare(a.at, b.at));
+	}
+
+	/**
+	 * Un joueur remis en tête garde sa date d'entrée, donc sa fenêtre élargie.
+	 */
+	void added(ClientManager cli, boolean first) {
+		Seat s = new Seat(cli, queuedSince(cli));
+		seats.put(cli, s);
+		byRating.add(s);
+		schedule(s, s.since);
+	}
+
+	void removed(ClientManager cli) {
+		Seat s = seats.remove(cli);
+		if (s == null) {
+			return;
+		}
+		byRating.remove(s);
+		cancel(s);
+		if (pending != null && (pending[0] == s || pending[1] == s)) {
+			// l'autre joueur de la table prévue est examiné de nouveau
+			Seat other = pending[0] == s ? pending[1] : pending[0];
+			pending = null;
+			schedule(other, System.currentTimeMillis());
+		}
+	}
+
+	synchronized boolean hasMatch() {
+		return chooseMatch() != null;
+	}
+
+	/**
+	 * Examine les joueurs dont l'examen est échu, jusqu'à trouver une table.
+	 */
+	ClientManager[] chooseMatch() {
+		if (pending == null) {
+			long now = System.currentTimeMillis();
+			Check c;
+			while (pending == null && (c = checks.peek()) != null && c.at <= now) {
+				checks.poll();
+				if (c.seat.check == c) {
+					c.seat.check = null;
+					check(c.seat, now);
+				} else {
+					stale--;
+				}
+			}
+		}
+		if (pending == null) {
+			return null;
+		}
+		return new ClientManager[] {pending[0].player, pending[1].player};
+	}
+
+	/**
+	 * Apparie le joueur avec son plus proche voisin acceptable, ou prévoit son
+	 * prochain examen.
+	 */
+	private void check(Seat s, long now) {
+		Seat best = null;
+		double bestGap = Double.MAX_VALUE;
+		long next = Long.MAX_VALUE;
+		for (Seat n : new Seat[] {byRating.lower(s), byRating.higher(s)}) {
+			if (n == null) {
+				continue;
+			}
+			double gap = Math.abs(s.rating - n.rating);
+			if (gap <= Math.max(s.window(now), n.window(now))) {
+				if (gap < bestGap) {
+					best = n;
+					bestGap = gap;
+				}
+			} else {
+				next = Math.min(next, Math.min(s.reaches(gap), n.reaches(gap)));
+			}
+		}
+		if (best != null) {
+			pending = new Seat[] {s, best};
+		} else if (next != Long.MAX_VALUE) {
+			schedule(s, Math.max(next, now + 1));
+		}
+	}
+
+	private void schedule(Seat s, long at) {
+		cancel(s);
+		s.check = new Check(s, at);
+		checks.add(s.check);
+	}
+
+	/**
+	 * Périme l'examen prévu du joueur, et purge l'échéancier s'il contient
+	 * plus d'examens périmés que d'examens valides.
+	 */
+	private void cancel(Seat s) {
+		if (s.check == null) {
+			return;
+		}
+		s.check = null;
+		if (++stale > checks.size() / 2) {
+			checks.removeIf(c -> c.seat.check != c);
+			stale = 0;
+		}
+	}
+
+	/**
+	 * @return le nombre d'examens dans l'échéancier, périmés compris
+	 */
+	synchronized int scheduledChecks() {
+		return checks.size();
+	}
+
+	/**
+	 * Une table en attente de place ne dépend plus du temps : la libération
+	 * d'une place relance le matchmaking.
+	 */
+	synchronized long nextMatchTime() {
+		if (pending != null) {
+			return Long.MAX_VALUE;
+		}
+		Check c;
+		while ((c = checks.peek()) != null && c.seat.check != c) {
+			checks.poll();
+			stale--;
+		}
+		return c == null ? Long.MAX_VALUE : c.at;
+	}
+}
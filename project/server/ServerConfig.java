@@ -0,0 +1,166 @@
+/** ServerConfig.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+/**
+ * Paramètres de lancement du serveur, lus depuis les propriétés système.
+ * Exemple : java -Dserver.port=6001 -Dserver.transport=nio project.server.SimpleServer
+ */
+final class ServerConfig {
+
+	/**
+	 * Port d'écoute du serveur.
+	 */
+	static final int PORT = getInt("server.port", 6000);
+
+	/**
+	 * Mode de transport : "classic" (un thread par client) ou "nio" (Selector).
+	 */
+	static final String TRANSPORT = getString("server.transport", "classic");
+
+	/**
+	 * Mode "nio" : nombre de boucles d'entrées/sorties, une par cœur par défaut.
+	 */
+	static final int NIO_WORKERS = getInt("server.nio.workers", Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Mode "nio" : nombre de threads d'acceptation. Au-delà de 1, chacun ouvre
+	 * son socket d'écoute avec SO_REUSEPORT (Linux).
+	 */
+	static final int NIO_ACCEPTORS = getInt("server.nio.acceptors", 1);
+
+	/**
+	 * Type de threads pour les clients et le matchmaking : "platform" ou "virtual".
+	 * Les parties tournent toujours sur le pool de threads classiques des jeux.
+	 */
+	static final String THREADS = getString("server.threads", "platform");
+
+	/**
+	 * Nombre de threads exécutant les parties, toutes tables confondues.
+	 */
+	static final int GAME_THREADS = Math.max(1, getInt("server.games.threads", Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Nombre de threads écrivant sur les sockets des clients (mode "classic")
+	 * et des relais vers les autres nœuds du cluster.
+	 */
+	static final int WRITER_THREADS = Math.max(1, getInt("server.writers.threads", Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Délai (s) laissé à un joueur pour jouer son tour, 0 si illimité.
+	 * Se règle aussi par jeu avec server.games.<jeu>.turn
+	 */
+	static final int TURN_TIMEOUT = getInt("server.turns.timeout", 60);
+
+	/**
+	 * Délai maximal (ms) pendant lequel un message regroupé peut attendre avant d'être envoyé.
+	 */
+	static final int FLUSH_BUDGET = getInt("server.flush.budget", 20);
+
+	/**
+	 * Intervalle minimal (ms) entre deux envois de leur position aux joueurs d'une queue.
+	 */
+	static final int QUEUE_STATUS = getInt("server.queues.status", 1000);
+
+	/**
+	 * Attente (s) au-delà de laquelle le plus ancien joueur d'une queue du
+	 * Black-Jack est prioritaire : plus aucune table n'est formée sans lui.
+	 */
+	static final int QUEUE_AGING = getInt("server.queues.aging", 30);
+
+	/**
+	 * Silence (s) après lequel un client reçoit un PING, 0 : pas de heartbeat.
+	 */
+	static final int HEARTBEAT_INTERVAL = getInt("server.heartbeat.interval", 10);
+
+	/**
+	 * Délai (s) laissé au client pour répondre au PING avant d'être déconnecté.
+	 */
+	static final int HEARTBEAT_TIMEOUT = getInt("server.heartbeat.timeout", 5);
+
+	/**
+	 * Cluster : numéro de ce nœud, -1 (par défaut) pour un serveur seul.
+	 */
+	static final int CLUSTER_NODE = getInt("server.cluster.node", -1);
+
+	/**
+	 * Cluster : "loopback" (coordinateur partagé joint en TCP) ou "local" (en mémoire).
+	 */
+	static final String CLUSTER_COORDINATOR = getString("server.cluster.coordinator", "loopback");
+
+	/**
+	 * Cluster : adresse du coordinateur partagé, hôte:port.
+	 */
+	static final String CLUSTER_HUB = getString("server.cluster.hub", "localhost:7000");
+
+	/**
+	 * Cluster : lance le coordinateur partagé dans ce processus.
+	 */
+	static final boolean CLUSTER_HUB_START = Boolean.getBoolean("server.cluster.hub.start");
+
+	/**
+	 * Cluster : adresse à laquelle les autres nœuds relaient leurs joueurs vers ce nœud.
+	 */
+	static final String CLUSTER_ADDRESS = getString("server.cluster.address", "localhost");
+
+	/**
+	 * Journal de l'argent des joueurs. Vide : l'argent n'est pas conservé à l'arrêt.
+	 */
+	static final String WALLETS_FILE = getString("server.wallets.file", "wallets.log");
+
+	/**
+	 * Intervalle (ms) entre deux écritures groupées du journal de l'argent.
+	 */
+	static final int WALLETS_FLUSH = getInt("server.wallets.flush", 200);
+
+	/**
+	 * Journal du classement Elo des joueurs, écrit comme celui de l'argent.
+	 * Vide : le classement n'est pas conservé à l'arrêt.
+	 */
+	static final String RATINGS_FILE = getString("server.ratings.file", "ratings.log");
+
+	/**
+	 * Durée (s) pendant laquelle la place d'un joueur coupé en pleine partie
+	 * est gardée. 0 : la partie est interrompue tout de suite.
+	 */
+	static final int SESSIONS_TTL = getInt("server.sessions.ttl", 30);
+
+	/**
+	 * Nombre maximal de places gardées à la fois.
+	 */
+	static final int SESSIONS_MAX = getInt("server.sessions.max", 10000);
+
+	/**
+	 * Journal des parties en cours, relu au redémarrage. Vide : pas de journal.
+	 */
+	static final String JOURNAL_FILE = getString("server.journal.file", "games.journal");
+
+	/**
+	 * Intervalle (ms) entre deux écritures groupées du journal des parties.
+	 */
+	static final int JOURNAL_FLUSH = getInt("server.journal.flush", 20);
+
+	private ServerConfig() {}
+
+	static String getString(String key, String def) {
+		return System.getProperty(key, def);
+	}
+
+	static int getInt(String key, int def) {
+		String value = System.getProperty(key);
+		if (value == null) {
+			return def;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			System.out.println("Valeur incorrecte pour " + key + " : " + value + ", " + def + " utilisé");
+			return def;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/** SessionCache.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sessions gardées pendant une durée limitée, indexées par jeton.
+ *
+ * Toutes les entrées ont la même durée de vie : l'ordre d'insertion est donc
+ * aussi l'ordre d'expiration, et le nettoyage périodique ne parcourt que les
+ * entrées expirées en tête. Au-delà de la capacité, les plus anciennes sont
+ * expirées en avance.
+ * Une entrée expirée est passée à onExpire, hors du verrou du cache.
+ */
+public class SessionCache<T> {
+
+	private static final long SWEEP_PERIOD = 1000;
+
+	private static class Entry<T> {
+		private final T value;
+		private final long deadline;
+
+		private Entry(T value, long deadline) {
+			this.value    = value;
+			this.deadline = deadline;
+		}
+	}
+
+	private final LinkedHashMap<String, Entry<T>> entries;
+	private final int capacity;
+	private final long ttl;
+	private final Consumer<T> onExpire;
+
+	/**
+	 * @param capacity nombre maximal de sessions gardées
+	 * @param ttlMillis durée de vie d'une session (ms)
+	 * @param onExpire appelée pour chaque session expirée ou évincée
+	 */
+	public SessionCache(int capacity, long ttlMillis, Consumer<T> onExpire) {
+		this.capacity = Math.max(0, capacity);
+		this.ttl      = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+		this.onExpire = onExpire;
+		entries = new LinkedHashMap<String, Entry<T>>();
+		ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, task -> {
+			Thread t = new Thread(task, "Session sweeper");
+			t.setDaemon(true);
+			return t;
+		});
+		sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_PERIOD, SWEEP_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Garde une session jusqu'à son expiration ou sa reprise avec take().
+	 */
+	public void put(String token, T value) {
+		List<T> expired = new ArrayList<T>();
+		synchronized (this) {
+			entries.remove(token);
+			if (ttl > 0) {
+				entries.put(token, new Entry<T>(value, System.nanoTime() + ttl));
+			} else {
+				expired.add(value);
+			}
+			Iterator<Entry<T>> it = entries.values().iterator();
+			while (entries.size() > capacity && it.hasNext()) {
+				expired.add(it.next().value);
+				it.remove();
+			}
+		}
+		expired.forEach(onExpire);
+	}
+
+	/**
+	 * Retire une session pour la reprendre.
+	 * @return la session, null si le jeton est inconnu ou a expiré
+	 */
+	public T take(String token) {
+		Entry<T> e;
+		synchronized (this) {
+			e = entries.remove(token);
+		}
+		if (e == null) {
+			return null;
+		}
+		if (System.nanoTime() - e.deadline >= 0) {
+			// expirée, mais pas encore nettoyée
+			onExpire.accept(e.value);
+			return null;
+		}
+		return e.value;
+	}
+
+	/**
+	 * Oublie une session sans l'expirer.
+	 */
+	public synchronized boolean remove(String token, T value) {
+		Entry<T> e = entries.get(token);
+		if (e == null || e.value != value) {
+			return false;
+		}
+		entries.remove(token);
+		return true;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private void sweep() {
+		List<T> expired = new ArrayList<T>();
+		long now = System.nanoTime();
+		synchronized (this) {
+			Iterator<Entry<T>> it = entries.values().iterator();
+			while (it.hasNext()) {
+				Entry<T> e = it.next();
+				if (now - e.deadline < 0) {
+					break;
+				}
+				expired.add(e.value);
+				it.remove();
+			}
+		}
+		expired.forEach(onExpire);
+	}
+}
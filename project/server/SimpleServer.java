@@ -12,10 +12,22 @@ import java.lang.management.ManagementFactory;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -23,9 +35,24 @@ import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
 import project.client.ClientManager;
+import project.cluster.CoordinatorServer;
+import project.cluster.LocalCoordinator;
+import project.cluster.LoopbackCoordinator;
+import project.cluster.MatchCoordinator;
+import project.cluster.Node;
+import project.metrics.GameStats;
+import project.metrics.Metrics;
+import project.metrics.QueueStats;
+import project.metrics.ServerStatsMXBean;
+import project.net.FlushScheduler;
+import project.net.Frame;
+import project.net.Heartbeat;
+import project.net.NioReactor;
+import project.net.SocketConnection;
 import project.game.IGame;
 import project.game.Morpion;
 import project.game.BlackJack;
+import project.game.Elo;
 
 public class SimpleServer implements IServer {
 
@@ -34,58 +61,200 @@ public class SimpleServer implements IServer {
 	 */
 	private static SimpleServer instance;
 
-	private static Random random = new Random();
-
 	/**
-	 * Contient l'ensemble des clients connectés au serveur.
+	 * Contient l'ensemble des clients connectés au serveur, indexés par leur id.
 	 */
-	ArrayList<ClientManager> clients;
+	ConcurrentHashMap<Long, ClientManager> clients;
 
 	/**
 	 * Contient les clients n'étant pas actuellement en partie.
-	 * Chaque ArrayList correspond à une queue, et est reliée à une clé correspondant au jeu
+	 * Chaque GameQueue correspond à une queue, et est reliée à une clé correspondant au jeu
+	 */
+	LinkedHashMap<String, GameQueue> queues;
+
+	/**
+	 * Queue de chaque taille de table, par clé de table (ex : "Black-Jack3p"),
+	 * utilisée par les tables formées par le cluster.
+	 */
+	private final HashMap<String, GameQueue> tableQueues;
+
+	/**
+	 * Queues modifiées, en attente de traitement par le thread de matchmaking.
 	 */
-	HashMap<String, ArrayList<ClientManager>> queues;
-	//ArrayList<GerantClient> queue;
+	private final LinkedBlockingQueue<GameQueue> queueEvents;
+
+	/**
+	 * Queue dans laquelle se trouve chaque client en attente, indexée par id du client.
+	 */
+	private final ConcurrentHashMap<Long, GameQueue> queueIndex;
+
+	/**
+	 * Exécute les parties, avec une limite de parties simultanées par type de jeu.
+	 */
+	private final GameScheduler scheduler;
 
 	private ServerSocket ss;
 
+	/**
+	 * Boucle NIO utilisée à la place du thread d'écoute en mode "nio".
+	 */
+	private NioReactor reactor;
+
+	/**
+	 * Type de threads utilisés pour les clients, les jeux et le matchmaking.
+	 */
+	private final ExecutionMode threads;
+
+	/**
+	 * Écrivains partagés par les connexions du mode "classic".
+	 */
+	private final ExecutorService writers;
+
+	/**
+	 * Participation à un cluster, null si le serveur est seul.
+	 */
+	private ClusterNode cluster;
+
+	/**
+	 * Argent et classement des joueurs, conservés par nom.
+	 */
+	private final ValueStore wallets;
+	private final ValueStore ratings;
+
+	/**
+	 * Places des joueurs coupés en pleine partie, par jeton de reprise.
+	 */
+	private final SessionCache<ClientManager> sessions;
+
+	/**
+	 * Journal des parties en cours, pour les reprendre après un arrêt brutal.
+	 */
+	private final GameJournal journal;
+
 	private SimpleServer() throws IOException {
-		clients = new ArrayList<ClientManager>();
-		queues  = new HashMap<String, ArrayList<ClientManager>>();
-		queues.put("Morpion2p", new ArrayList<ClientManager>());
-		queues.put("Black-Jack2p", new ArrayList<ClientManager>());
-		queues.put("Black-Jack3p", new ArrayList<ClientManager>());
-		queues.put("Black-Jack4p", new ArrayList<ClientManager>());
-		queues.put("Black-Jack5p", new ArrayList<ClientManager>());
-		queues.put("Black-Jack6p", new ArrayList<ClientManager>());
-		queues.put("Black-Jack7p", new ArrayList<ClientManager>());
-		ss = new ServerSocket(6000);
+		threads = ExecutionMode.fromConfig(ServerConfig.THREADS);
+		AtomicInteger writerNumber = new AtomicInteger();
+		writers = Executors.newFixedThreadPool(ServerConfig.WRITER_THREADS,
+			task -> threads.newThread(task, "Writer " + writerNumber.incrementAndGet()));
+		scheduler = new GameScheduler(ServerConfig.GAME_THREADS, this::gameSlotReleased);
+		FlushScheduler.setLatencyBudget(ServerConfig.FLUSH_BUDGET);
+		Heartbeat.configure(TimeUnit.SECONDS.toMillis(ServerConfig.HEARTBEAT_INTERVAL),
+			TimeUnit.SECONDS.toMillis(ServerConfig.HEARTBEAT_TIMEOUT));
+		clients = new ConcurrentHashMap<Long, ClientManager>();
+		queueIndex = new ConcurrentHashMap<Long, GameQueue>();
+		queues  = new LinkedHashMap<String, GameQueue>();
+		tableQueues = new HashMap<String, GameQueue>();
+		addQueue(new RatedQueue("Morpion"));
+		addQueue(new PackingQueue("Black-Jack", 2, 7, TimeUnit.SECONDS.toMillis(ServerConfig.QUEUE_AGING)));
+		queueEvents = new LinkedBlockingQueue<GameQueue>();
+		wallets = ServerConfig.WALLETS_FILE.isEmpty() ? ValueStore.inMemory(ClientManager.INITIAL_MONEY)
+			: ValueStore.open(ServerConfig.WALLETS_FILE, ServerConfig.WALLETS_FLUSH, ClientManager.INITIAL_MONEY, "portefeuilles");
+		ratings = ServerConfig.RATINGS_FILE.isEmpty() ? ValueStore.inMemory(Elo.INITIAL)
+			: ValueStore.open(ServerConfig.RATINGS_FILE, ServerConfig.WALLETS_FLUSH, Elo.INITIAL, "classements");
+		sessions = new SessionCache<ClientManager>(ServerConfig.SESSIONS_MAX,
+			ServerConfig.SESSIONS_TTL * 1000L, ClientManager::expireSession);
+		journal = ServerConfig.JOURNAL_FILE.isEmpty() ? GameJournal.disabled()
+			: GameJournal.open(ServerConfig.JOURNAL_FILE, ServerConfig.JOURNAL_FLUSH);
+		if (ServerConfig.TRANSPORT.equals("nio")) {
+			reactor = new NioReactor(ServerConfig.PORT, ServerConfig.NIO_ACCEPTORS, ServerConfig.NIO_WORKERS,
+				conn -> register(new ClientManager(conn, this)));
+		} else {
+			ss = new ServerSocket(ServerConfig.PORT);
+		}
+		if (ServerConfig.CLUSTER_NODE >= 0) {
+			cluster = new ClusterNode(this, createCoordinator(),
+				new Node(ServerConfig.CLUSTER_NODE, ServerConfig.CLUSTER_ADDRESS, ServerConfig.PORT));
+		}
+	}
+
+	/**
+	 * Coordinateur du cluster : en mémoire ("local"), ou partagé par les nœuds
+	 * à travers un CoordinatorServer ("loopback"), éventuellement lancé ici.
+	 */
+	private MatchCoordinator createCoordinator() throws IOException {
+		if (ServerConfig.CLUSTER_COORDINATOR.equals("local")) {
+			return new LocalCoordinator();
+		}
+		String[] hub = ServerConfig.CLUSTER_HUB.split(":");
+		int hubPort = Integer.parseInt(hub[1]);
+		if (ServerConfig.CLUSTER_HUB_START) {
+			new CoordinatorServer(hubPort).start();
+			System.out.println("Coordinateur du cluster en écoute sur le port " + hubPort);
+		}
+		return new LoopbackCoordinator(hub[0], hubPort);
+	}
+
+	private void addQueue(GameQueue queue) {
+		queue.setStats(Metrics.registerQueue(queue.getKey(), queue::size));
+		queues.put(queue.getKey(), queue);
+		for (int nbPlayers = queue.getNbPlayers(); nbPlayers <= queue.getMaxPlayers(); nbPlayers++) {
+			tableQueues.put(queue.tableKey(nbPlayers), queue);
+		}
+		scheduler.register(queue.getGameName());
+	}
+
+	/**
+	 * Une place s'est libérée pour ce jeu : les queues correspondantes
+	 * sont réexaminées par le matchmaking.
+	 */
+	private void gameSlotReleased(String gameName) {
+		for (GameQueue queue : queues.values()) {
+			if (queue.getGameName().equals(gameName)) {
+				queueEvents.offer(queue);
+			}
+		}
 	}
 
 	/**
 	 * Méthode demarrant le serveur.
 	 */
 	private void launch() {
+		recoverGames();
 		listen(); // démarre thread écoute
 		matchmaking(); // démarre thread matchmaking
+		if (cluster != null) {
+			try {
+				cluster.start();
+			} catch (IOException e) {
+				System.out.println("Coordinateur injoignable (" + ServerConfig.CLUSTER_HUB + ") : seules les parties locales sont lancées");
+				cluster = null;
+			}
+		}
 		ServerCommands.initialize(this);
 		home(); // boucle principale de l'administration du serveur
 	}
 
 	/**
-	 * Méthode instanciant le thread d'écoute
+	 * Méthode instanciant le thread d'écoute, ou les boucles NIO selon le mode de transport
 	 */
 	private void listen() {
-		Thread listenThread = new Thread(new Listen(), "Listening thread");
-		listenThread.start();
+		String transport;
+		if (reactor != null) {
+			reactor.start();
+			transport = "nio, " + reactor.getNbAcceptors() + " accepteur(s), " + reactor.getNbWorkers() + " boucles";
+		} else {
+			new Thread(new Listen(), "Listening thread").start();
+			transport = "classic";
+		}
+		System.out.println("Serveur en écoute sur le port " + ServerConfig.PORT +
+			" (transport " + transport + ", threads " + threads.name().toLowerCase() + ")");
+		if (threads == ExecutionMode.VIRTUAL) {
+			PinnedThreadMonitor.start();
+		}
+	}
+
+	/**
+	 * Ajoute un nouveau client à la liste des clients connectés.
+	 */
+	private void register(ClientManager cli) {
+		clients.put(cli.getId(), cli);
 	}
 
 	/**
 	 * Méthode instanciant le thread de matchmaking
 	 */
 	private void matchmaking() {
-		Thread matchmakingThread = new Thread(new Matchmaking(), "Matchmaking thread");
+		Thread matchmakingThread = threads.newThread(new Matchmaking(), "Matchmaking thread");
 		matchmakingThread.start();
 	}
 
@@ -104,57 +273,87 @@ public class SimpleServer implements IServer {
 		}
 	}
 
+	/**
+	 * Copie de la liste des clients connectés, triée par id, pour l'administration.
+	 */
+	List<ClientManager> clientsSnapshot() {
+		ArrayList<ClientManager> snapshot = new ArrayList<ClientManager>(clients.values());
+		snapshot.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+		return snapshot;
+	}
+
 	/**
 	 * Envoie un message aux clients.
 	 * @param msg Le message à envoyer.
 	 * @param clients Les clients à qui envoyer le message.
 	 */
 	public void sendMessage(String msg, ClientManager... clients) {
+		if (clients == null || clients.length == 0) {
+			return;
+		}
+		sendMessage(Frame.of(msg), clients);
+	}
+
+	/**
+	 * Envoie un message déjà encodé aux clients.
+	 * Le message n'est encodé qu'une fois, quel que soit le nombre de destinataires.
+	 * @param frame Le message à envoyer.
+	 * @param clients Les clients à qui envoyer le message.
+	 */
+	public void sendMessage(Frame frame, ClientManager... clients) {
 		if (clients == null) {
 			return;
 		}
 
 		for (ClientManager c : clients) {
 			if (c.isConnected()) {
-				c.receiveMessage(msg);
+				c.receiveMessage(frame);
 			}
 		}
 	}
 
 	/**
-	 * Place le client dans la bonne queue en fonction du jeu voulu
+	 * Regroupe les prochains messages envoyés aux clients, jusqu'à l'appel de flush.
+	 * Permet d'envoyer tous les messages d'un tour en un seul paquet.
+	 * @param clients Les clients concernés.
+	 */
+	public void cork(ClientManager... clients) {
+		for (ClientManager c : clients) {
+			c.cork();
+		}
+	}
+
+	/**
+	 * Envoie les messages regroupés depuis cork.
+	 * @param clients Les clients concernés.
+	 */
+	public void flush(ClientManager... clients) {
+		for (ClientManager c : clients) {
+			c.flush();
+		}
+	}
+
+	/**
+	 * Place le client dans la queue correspondant au jeu voulu
 	 * @param cli le client à placer
-	 * @param game le jeu auquel le client veut jouer, sous forme de String
+	 * @param game la clé de la queue voulue, ex : "Morpion2p" ou "Black-Jack"
 	 */
 	public void getInQueue(ClientManager cli, String game) {
 		if(cli.isInQueue() || cli.isPlaying())
 			return;
 
-		switch(game) {
-			case "1" : // 1 = Morpion
-				queues.get("Morpion2p").add(cli);
-				cli.enterQueue();
-				break;
-			case "2" :
-				// Demande au joueur dans quelle room il veut jouer
-				cli.receiveMessage("Avec combien de joueurs voulez-vous jouer ? (2-7)");
-				int nbPlayers = 0;
-
-				// Sécurité afin de bien déconnecter et de ne pas afficher de message d'exception en cas
-				// de ctrl+c pendant la demande de joueurs
-				try{
-					nbPlayers = cli.askBJPlayers();
-
-					// Affecte le joueur à la bonne room
-					queues.get("Black-Jack"+nbPlayers+"p").add(cli);
-					cli.enterQueue();
-				}catch(NullPointerException e) {disconnectClient(cli); break;}
-
-				break;
-			default :
-				cli.receiveMessage("Votre entrée correspond à aucun jeu disponible");
-				break;
+		GameQueue queue = queues.get(game);
+		if (queue == null) {
+			cli.receiveMessage("Votre entrée correspond à aucun jeu disponible");
+			return;
+		}
+		if (queueIndex.putIfAbsent(cli.getId(), queue) != null) {
+			return;
 		}
+		cli.enterQueue();
+		queue.add(cli);
+		queue.getStats().joined();
+		queueEvents.offer(queue);
 	}
 
 	/**
@@ -163,19 +362,197 @@ public class SimpleServer implements IServer {
 	 * @param cli le client à retirer de la queue
 	 */
 	public void exitQueue(ClientManager cli) {
-		if(cli.isInQueue()) {
-			for (ArrayList<ClientManager> listeClient : queues.values()) {
-				if (listeClient.remove(cli)) {
-					cli.exitQueue();
-					cli.receiveMessage("Vous avez quitté la queue.");
-					break;
-				}
-			}
+		GameQueue queue = queueIndex.remove(cli.getId());
+		if (queue != null && queue.remove(cli)) {
+			queue.getStats().left();
+			cli.exitQueue();
+			cli.receiveMessage("Vous avez quitté la queue.");
+			queueEvents.offer(queue);
 		} else {
 			cli.receiveMessage("Vous n'êtes pas actuellement dans une queue");
 		}
 	}
 
+	/**
+	 * Un joueur relayé par un autre nœud rejoint la table qui l'attend.
+	 */
+	public boolean proxyJoined(ClientManager cli, long matchId, int seat, String secret) {
+		ClusterNode c = cluster;
+		return c != null && c.proxyJoined(cli, matchId, seat, secret);
+	}
+
+	public ValueStore getWallets() {
+		return wallets;
+	}
+
+	public ValueStore getRatings() {
+		return ratings;
+	}
+
+	public SessionCache<ClientManager> getSessions() {
+		return sessions;
+	}
+
+	public void detachClient(ClientManager cli) {
+		clients.remove(cli.getId());
+	}
+
+	/**
+	 * Les joueurs ont été retirés de la queue pour une partie.
+	 */
+	void unindex(GameQueue queue, ClientManager[] players) {
+		long now = System.nanoTime();
+		for (ClientManager p : players) {
+			queueIndex.remove(p.getId(), queue);
+			queue.getStats().matched(now - p.getQueuedAt());
+		}
+	}
+
+	/**
+	 * Des joueurs ont été retirés de la queue hors du matchmaking (table du
+	 * cluster) : les positions des autres sont à renvoyer.
+	 */
+	void queueChanged(GameQueue queue) {
+		queueEvents.offer(queue);
+	}
+
+	/**
+	 * Crée un thread du type configuré (server.threads).
+	 */
+	Thread newThread(Runnable task, String name) {
+		return threads.newThread(task, name);
+	}
+
+	/**
+	 * @return le pool d'écrivains partagé par les connexions et les relais
+	 */
+	Executor getWriters() {
+		return writers;
+	}
+
+	/**
+	 * @return la queue d'une table de la clé donnée, ex : "Black-Jack3p"
+	 */
+	GameQueue tableQueue(String tableKey) {
+		return tableQueues.get(tableKey);
+	}
+
+	/**
+	 * Remet en tête de queue des joueurs retirés pour une partie qui n'a pas eu lieu.
+	 * Les joueurs déconnectés entre-temps sont ignorés.
+	 */
+	void requeue(GameQueue queue, ClientManager[] players) {
+		ArrayList<ClientManager> back = new ArrayList<ClientManager>();
+		for (ClientManager p : players) {
+			if (p.isConnected() && queueIndex.putIfAbsent(p.getId(), queue) == null) {
+				p.returnToQueue();
+				back.add(p);
+			}
+		}
+		queue.addFirst(back.toArray(new ClientManager[0]));
+		queueEvents.offer(queue);
+	}
+
+	/**
+	 * Créé et lance une partie, si le nombre maximal de parties du jeu le permet.
+	 * @return false si la partie n'a pas pu être lancée
+	 */
+	boolean launchGame(String gameName, ClientManager[] players) {
+		if (!scheduler.tryAdmit(gameName)) {
+			scheduler.rejected(gameName);
+			return false;
+		}
+		startGame(gameName, players);
+		return true;
+	}
+
+	/**
+	 * Créé la partie et la lance sur le pool du jeu. La place doit avoir été réservée.
+	 */
+	private void startGame(String gameName, ClientManager[] players) {
+		long seed = ThreadLocalRandom.current().nextLong();
+		IGame game = createGame(gameName, players, seed);
+		if (game == null) {
+			scheduler.cancel(gameName);
+			return;
+		}
+		runGame(gameName, game, players, journal.start(gameName, seed, players), Collections.emptyList());
+		System.out.println("Lancement de " + gameName + game.getInstanceNumber() +
+			" avec clients " + ids(players));
+	}
+
+	/**
+	 * @return les numéros des joueurs d'une table, ex : "3, 7 et 12"
+	 */
+	private static String ids(ClientManager[] players) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < players.length; i++) {
+			if (i > 0) {
+				sb.append(i == players.length - 1 ? " et " : ", ");
+			}
+			sb.append(players[i].getId());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param seed la graine aléatoire de la partie, gardée dans le journal
+	 * @return la partie, null si le jeu est inconnu
+	 */
+	private IGame createGame(String gameName, ClientManager[] players, long seed) {
+		switch(gameName) {
+			case "Morpion":
+				return new Morpion(getInstance(), players, seed);
+			case "Black-Jack" :
+				return new BlackJack(getInstance(), players, seed);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @param replay les lignes à rejouer d'une partie reprise
+	 */
+	private void runGame(String gameName, IGame game, ClientManager[] players, GameJournal.Table journal,
+	                     List<GameJournal.Input> replay) {
+		GameTable table = scheduler.open(gameName, game, players, journal);
+		for(int i = 0; i < players.length; i++)
+			players[i].startPlaying(table);
+
+		// Lancement de la partie sur le pool des jeux
+		table.start(replay);
+	}
+
+	/**
+	 * Relance les parties interrompues par l'arrêt du serveur. Chacune rejoue
+	 * les lignes du journal sans joueur connecté, puis garde les places de ses
+	 * joueurs jusqu'à leur retour avec leur jeton de reprise.
+	 */
+	private void recoverGames() {
+		for (GameJournal.Recovered r : journal.recovered()) {
+			ClientManager[] players = new ClientManager[r.names.length];
+			for (int i = 0; i < players.length; i++) {
+				players[i] = ClientManager.restore(this, r.names[i], r.tokens[i], r.money[i]);
+				register(players[i]);
+			}
+			IGame game = createGame(r.gameName, players, r.seed);
+			if (game == null) {
+				r.table.end();
+				continue;
+			}
+			r.table.whenCaughtUp(() -> {
+				for (ClientManager p : players) {
+					p.endReplay();
+					sessions.put(p.getToken(), p);
+				}
+			});
+			scheduler.admit(r.gameName);
+			runGame(r.gameName, game, players, r.table, r.inputs);
+			System.out.println("Reprise de " + r.gameName + game.getInstanceNumber() +
+				" avec clients " + ids(players));
+		}
+	}
+
 	/**
 	 * Déconnecte un client.
 	 * Cette méthode n'est appelée que par le client lui-même ou le jeu.
@@ -183,7 +560,7 @@ public class SimpleServer implements IServer {
 	 */
 	public void disconnectClient(ClientManager cli)  {
 		cli.kill();
-		clients.remove(cli);
+		clients.remove(cli.getId());
 	}
 
 
@@ -210,9 +587,11 @@ public class SimpleServer implements IServer {
 			try {
 				while (true) {
 					Socket s = ss.accept();
-					ClientManager cli = new ClientManager(s, getInstance());
-					clients.add(cli);
-					Thread t = new Thread(cli, String.format("Client %d \"%s\"",
+					Metrics.accepted();
+					SocketConnection conn = new SocketConnection(s, writers);
+					ClientManager cli = new ClientManager(conn, getInstance());
+					register(cli);
+					Thread t = threads.newThread(conn, String.format("Client %d \"%s\"",
 						cli.getId(), cli.getName()));
 					cli.setThread(t);
 					t.start();
@@ -225,79 +604,120 @@ public class SimpleServer implements IServer {
 
 
 	/**
-	 * Classe privée du thread de matchmaking du serveur
+	 * Classe privée du thread de matchmaking du serveur.
+	 * Le thread dort jusqu'à ce qu'une queue soit modifiée : une partie est lancée
+	 * dès que le dernier joueur nécessaire arrive. Pour une queue classée
+	 * (RatedQueue), il se réveille aussi quand la fenêtre de classement d'un
+	 * joueur en attente atteint un adversaire.
+	 * Les joueurs en attente reçoivent leur position quand elle change, au plus
+	 * une fois par intervalle ServerConfig.QUEUE_STATUS par queue : les
+	 * changements rapprochés sont regroupés en un seul envoi.
 	 */
 	private class Matchmaking implements Runnable {
+
+		/**
+		 * Queues modifiées, avec l'instant (ms) où leur état sera envoyé.
+		 */
+		private final LinkedHashMap<GameQueue, Long> statusDue = new LinkedHashMap<GameQueue, Long>();
+
+		/**
+		 * Queues dont la prochaine table attend une place, déjà comptée comme refusée.
+		 */
+		private final HashSet<GameQueue> blocked = new HashSet<GameQueue>();
+
 		public void run() {
 			while (true) {
-				// Vérification que tous les sockets présent dans l'ArrayList sont connectés, par mesure de sécurité
-				// Efface les sockets "fantômes" de personnes qui se seraient "furieusement" déconnectées
-				for (ClientManager c : clients) {
-					if(c.getSocket().isClosed()) {
-						disconnectClient(c);
-						continue;
+				try {
+					long wakeUp = Math.min(nextStatus(), nextMatchTime());
+					GameQueue queue;
+					if (wakeUp == Long.MAX_VALUE) {
+						queue = queueEvents.take();
+					} else {
+						queue = queueEvents.poll(Math.max(0, wakeUp - System.currentTimeMillis()),
+							TimeUnit.MILLISECONDS);
+					}
+					if (queue != null) {
+						update(queue);
 					}
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+					return;
 				}
-
-				// On affiche au client, à intervales réguliers, dans quelle queue il est
-				for (String jeu : queues.keySet()) {
-					for(ClientManager cli : queues.get(jeu)) {
-						cli.receiveMessage("Tu es dans la queue pour un " + jeu +
-						" - tape \"leave\" pour sortir de la queue.");
+				// Queues classées : des fenêtres de classement se sont élargies
+				long now = System.currentTimeMillis();
+				for (GameQueue queue : queues.values()) {
+					if (queue.nextMatchTime() <= now) {
+						update(queue);
 					}
 				}
+				sendStatus();
+			}
+		}
 
-				// Créé et attribue une instance de jeu aux joueurs attendant dans la queue
-				// si le nombre de joueurs requis est atteint
-				for (String gameKey : queues.keySet()) {
-					ArrayList<ClientManager> gameQueue = queues.get(gameKey);
-					String gameName = "";
-					int nbPlayersRequired = 0;
-
-					// Boucle permettant de récupérer le nom du jeu ainsi que le nombre de joueurs requis
-					// Ex : Black-Jack3p = jeu "Black-Jack" et "3" joueurs
-					for(int i = 0;i < gameKey.length(); i++) {
-						if(Character.isDigit(gameKey.charAt(i))) {
-							nbPlayersRequired = Integer.parseInt(gameKey.charAt(i)+"");
-							break;
-						}
-						gameName += gameKey.charAt(i);
-					}
+		private void update(GameQueue queue) {
+			startMatches(queue);
+			if (cluster != null) {
+				cluster.publish(queue);
+			}
+			statusDue.putIfAbsent(queue, Math.max(System.currentTimeMillis(),
+				queue.getStatusSentAt() + ServerConfig.QUEUE_STATUS));
+		}
 
-					// Tant qu'il reste assez de joueurs dans la queue, on créé une nouvelle instance
-					// de jeu et on fait jouer les joueurs.
-					while(gameQueue.size() >= nbPlayersRequired) {
-						ClientManager[] players = new ClientManager[nbPlayersRequired];
-						IGame game = null;
-						for(int i = 0; i < nbPlayersRequired; i++) {
-							players[i] = gameQueue.remove(random.nextInt(gameQueue.size()));
-						}
-
-						switch(gameName) {
-							case "Morpion":
-								game = new Morpion(getInstance(), players);
-								break;
-							case "Black-Jack" :
-								game = new BlackJack(getInstance(), players);
-								break;
-							default:
-								continue;
-						}
-						for(int i = 0; i < players.length; i++)
-							players[i].startPlaying(game);
-
-						// Lancement du thread associé au jeu
-						Thread tGame = new Thread(game, gameName + game.getInstanceNumber());
-						tGame.start();
-						System.out.println("Lancement de " + tGame.getName() + " avec clients " +
-							players[0].getId() + " et " + players[1].getId());
+		/**
+		 * Créé et attribue une instance de jeu aux joueurs attendant dans la queue
+		 * tant qu'une table peut être formée.
+		 * Si le nombre maximal de parties de ce jeu est atteint, les joueurs restent
+		 * dans la queue jusqu'à la fin d'une partie.
+		 */
+		private void startMatches(GameQueue queue) {
+			ClientManager[] players;
+			while (queue.hasMatch()) {
+				if (!scheduler.tryAdmit(queue.getGameName())) {
+					// la même table est de nouveau tentée à chaque réveil
+					if (blocked.add(queue)) {
+						scheduler.rejected(queue.getGameName());
 					}
+					return;
 				}
-				try {
-					// Le matchmaking s'actualise toutes les 5s
-					Thread.sleep(5000);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+				players = queue.pollMatch();
+				if (players == null) {
+					scheduler.cancel(queue.getGameName());
+					return;
+				}
+				blocked.remove(queue);
+				unindex(queue, players);
+				startGame(queue.getGameName(), players);
+			}
+			blocked.remove(queue);
+		}
+
+		private long nextMatchTime() {
+			long next = Long.MAX_VALUE;
+			for (GameQueue queue : queues.values()) {
+				next = Math.min(next, queue.nextMatchTime());
+			}
+			return next;
+		}
+
+		private long nextStatus() {
+			long next = Long.MAX_VALUE;
+			for (long due : statusDue.values()) {
+				next = Math.min(next, due);
+			}
+			return next;
+		}
+
+		/**
+		 * Envoie l'état des queues arrivées à échéance.
+		 */
+		private void sendStatus() {
+			long now = System.currentTimeMillis();
+			Iterator<Map.Entry<GameQueue, Long>> it = statusDue.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<GameQueue, Long> e = it.next();
+				if (e.getValue() <= now) {
+					it.remove();
+					e.getKey().sendStatus(now);
 				}
 			}
 		}
@@ -332,6 +752,12 @@ public class SimpleServer implements IServer {
 			case "cpu":
 				commandCpu();
 				break;
+			case "games":
+				commandGames();
+				break;
+			case "stats":
+				commandStats();
+				break;
 			case "close":
 			case "q":
 			case "exit":
@@ -353,6 +779,8 @@ public class SimpleServer implements IServer {
 				"clients - Affiche les clients connectés." + nl +
 				"queue - Affiche l'état de la queue." + nl +
 				"cpu - Affiche l'utilisation du CPU." + nl +
+				"games - Affiche les parties en cours, en attente et refusées par type de jeu." + nl +
+				"stats - Affiche les indicateurs du serveur (aussi publiés par JMX)." + nl +
 				"exit - Ferme le serveur." + nl +
 				"help - Affiche ce message."
 			);
@@ -363,6 +791,12 @@ public class SimpleServer implements IServer {
 		 * S'ignore lui-même
 		 */
 		private static void commandThreads() {
+			if (server.threads == ExecutionMode.VIRTUAL) {
+				// Les threads virtuels n'apparaissent pas dans getAllStackTraces()
+				System.out.println("Mode threads virtuels : " + server.clients.size() + " clients connectés, " +
+					PinnedThreadMonitor.getPinnedEvents() + " épinglages détectés");
+				return;
+			}
 			System.out.println("Liste des threads actifs : " + (Thread.activeCount()-3)	);
 			for (Thread t : Thread.getAllStackTraces().keySet()) {
 				String name = t.getName();
@@ -390,16 +824,63 @@ public class SimpleServer implements IServer {
 			}
 		}
 
+		/**
+		 * Méthode affichant, par type de jeu, le nombre de parties en cours,
+		 * de tables complètes en attente d'une place et de refus d'admission
+		 */
+		private static void commandGames() {
+			for (GameScheduler.Bulkhead b : server.scheduler.getBulkheads().values()) {
+				int waiting = 0;
+				for (GameQueue queue : server.queues.values()) {
+					if (queue.getGameName().equals(b.getGameName())) {
+						waiting += queue.waitingTables();
+					}
+				}
+				System.out.println(b.getGameName() + nl +
+					"en cours   : " + b.getActive() + "/" + b.getLimit() + nl +
+					"en attente : " + waiting + nl +
+					"refusées   : " + b.getRejected() + nl +
+					"lancées    : " + b.getStarted() + nl +
+					"tour       : " + (b.getTurnTimeout() > 0 ? b.getTurnTimeout() / 1000 + " s" : "illimité"));
+			}
+		}
+
+		/**
+		 * Méthode affichant les indicateurs publiés par JMX sous le domaine "project" :
+		 * connexions, trafic, temps de réponse, queues et parties
+		 */
+		private static void commandStats() {
+			ServerStatsMXBean s = Metrics.server();
+			System.out.println("Serveur" + nl +
+				"connexions acceptées : " + s.getAccepts() + nl +
+				"connexions actives   : " + s.getActiveConnections() + nl +
+				"octets reçus/envoyés : " + s.getBytesIn() + " / " + s.getBytesOut() + nl +
+				"déconnexions         : " + s.getDisconnects() + nl +
+				"réponse d'un tour    : " + s.getTurnResponse());
+			for (QueueStats q : Metrics.queues()) {
+				System.out.println("Queue " + q.getKey() + nl +
+					"en attente : " + q.getDepth() + " (entrées " + q.getJoined() + ", sorties " +
+					q.getLeft() + ", placés " + q.getMatched() + ")" + nl +
+					"attente    : " + q.getWait());
+			}
+			for (GameStats g : Metrics.games()) {
+				System.out.println(g.getGameName() + nl +
+					"en cours : " + g.getActive() + "/" + g.getLimit() + ", lancées " + g.getStarted() +
+					", finies " + g.getFinished() + ", refusées " + g.getRejected() + nl +
+					"durée    : " + g.getDuration());
+			}
+		}
+
 		private static void commandClients() {
-			for (ClientManager c : server.clients) {
+			for (ClientManager c : server.clientsSnapshot()) {
 				System.out.println(c);
 			}
 		}
 
 		private static void commandQueue() {
-			for (Map.Entry<String, ArrayList<ClientManager>> gameName : server.queues.entrySet()) {
+			for (Map.Entry<String, GameQueue> gameName : server.queues.entrySet()) {
 				System.out.println(gameName.getKey());
-				ArrayList<ClientManager> listClients = gameName.getValue();
+				List<ClientManager> listClients = gameName.getValue().snapshot();
 				if (listClients.isEmpty()) {
 					System.out.println("\tvide");
 				} else {
@@ -410,7 +891,7 @@ public class SimpleServer implements IServer {
 
 		private static void commandExit() {
 			System.out.println("Fermeture du serveur");
-			for (ClientManager cl : server.clients) {
+			for (ClientManager cl : server.clientsSnapshot()) {
 				// Déconnecte les clients
 				cl.receiveMessage("Le serveur va close");
 			}
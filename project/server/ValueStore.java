@@ -0,0 +1,275 @@
+/** ValueStore.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Valeur numérique des joueurs, conservée d'une connexion à l'autre et indexée
+ * par nom. Le serveur en tient deux, chacune dans son fichier : l'argent des
+ * joueurs et leur classement (voir project.game.Elo).
+ *
+ * Les valeurs sont lues et modifiées en mémoire ; les variations (gains et
+ * pertes, points de classement) sont appliquées par add(), de façon atomique :
+ * deux sessions du même joueur ne peuvent pas écraser leurs modifications
+ * l'une l'autre.
+ * Les modifications sont écrites
+ * en différé, par lots, à la fin d'un journal projeté en mémoire (mmap) par
+ * un thread dédié. Le thread du jeu n'attend donc jamais le disque.
+ * Quand le journal contient beaucoup d'anciennes valeurs, il est réécrit avec
+ * une seule entrée par joueur (compactage).
+ *
+ * Format d'une entrée : [0xB1][taille du nom][nom UTF-8][valeur, double][CRC32].
+ * Au démarrage, le journal est relu jusqu'à la première entrée invalide
+ * (écriture interrompue par un arrêt brutal).
+ */
+public class ValueStore {
+
+	private static final byte MARKER = (byte) 0xB1;
+	private static final int HEADER = 2;
+	private static final int TRAILER = 8 + 4;
+	private static final int INITIAL_SIZE = 1 << 20;
+
+	/**
+	 * Compactage quand le journal contient plus de COMPACT_RATIO entrées par
+	 * joueur, et au moins COMPACT_MIN octets.
+	 */
+	private static final int COMPACT_RATIO = 4;
+	private static final int COMPACT_MIN = 1 << 16;
+
+	private final ConcurrentHashMap<String, Double> values;
+
+	/**
+	 * Joueurs dont la valeur n'est pas encore écrite dans le journal.
+	 */
+	private final Set<String> dirty;
+
+	private final Path path;
+	private final double defaultValue;
+
+	/**
+	 * Ce que contient le journal, au pluriel, pour la console : "portefeuilles", "classements"
+	 */
+	private final String label;
+	private FileChannel channel;
+	private MappedByteBuffer map;
+	private int records;
+	private ScheduledThreadPoolExecutor writer;
+
+	private ValueStore(Path path, double defaultValue, String label) {
+		this.path = path;
+		this.defaultValue = defaultValue;
+		this.label = label;
+		values = new ConcurrentHashMap<String, Double>();
+		dirty  = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Valeurs gardées en mémoire seulement, perdues à l'arrêt du serveur.
+	 * @param defaultValue la valeur d'un nouveau joueur
+	 */
+	public static ValueStore inMemory(double defaultValue) {
+		return new ValueStore(null, defaultValue, null);
+	}
+
+	/**
+	 * Ouvre (ou créé) le journal et charge les dernières valeurs.
+	 * @param file le fichier du journal
+	 * @param flushDelay intervalle (ms) entre deux écritures groupées
+	 * @param defaultValue la valeur d'un nouveau joueur
+	 * @param label ce que contient le journal, pour la console, ex : "classements"
+	 */
+	public static ValueStore open(String file, long flushDelay, double defaultValue, String label) throws IOException {
+		ValueStore store = new ValueStore(Paths.get(file), defaultValue, label);
+		store.load();
+		store.writer = new ScheduledThreadPoolExecutor(1, task -> {
+			Thread t = new Thread(task, "Store writer " + file);
+			t.setDaemon(true);
+			return t;
+		});
+		store.writer.scheduleWithFixedDelay(store::flushQuietly, flushDelay, flushDelay, TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(store::close, "Store shutdown " + file));
+		return store;
+	}
+
+	/**
+	 * @return la valeur du joueur, la valeur par défaut du journal pour un nouveau joueur
+	 */
+	public double get(String name) {
+		return values.getOrDefault(name, defaultValue);
+	}
+
+	/**
+	 * Enregistre la nouvelle valeur du joueur. Ne bloque pas : l'écriture sur
+	 * disque est faite plus tard par le thread du journal.
+	 */
+	public void set(String name, double value) {
+		values.put(name, value);
+		if (path != null) {
+			dirty.add(name);
+		}
+	}
+
+	/**
+	 * Ajoute delta (positif ou négatif) à la valeur du joueur, de façon atomique.
+	 * Ne bloque pas, comme set().
+	 * @return la nouvelle valeur
+	 */
+	public double add(String name, double delta) {
+		double value = values.merge(name, defaultValue + delta, (old, d) -> old + delta);
+		if (path != null) {
+			dirty.add(name);
+		}
+		return value;
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	private void load() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, channel.size()));
+		CRC32 crc = new CRC32();
+		while (map.remaining() > HEADER) {
+			int start = map.position();
+			if (map.get() != MARKER) {
+				map.position(start);
+				break;
+			}
+			int length = map.get() & 0xFF;
+			if (map.remaining() < length + TRAILER) {
+				map.position(start);
+				break;
+			}
+			byte[] name = new byte[length];
+			map.get(name);
+			long bits = map.getLong();
+			crc.reset();
+			crc.update(name);
+			crc.update(longBytes(bits));
+			if (map.getInt() != (int) crc.getValue()) {
+				map.position(start);
+				break;
+			}
+			values.put(new String(name, StandardCharsets.UTF_8), Double.longBitsToDouble(bits));
+			records++;
+		}
+		// Les restes d'une entrée incomplète sont effacés pour ne pas être relus
+		int end = map.position();
+		for (int i = end; i < Math.min(map.limit(), end + HEADER + 255 + TRAILER); i++) {
+			map.put(i, (byte) 0);
+		}
+		System.out.println(values.size() + " " + label + " chargés depuis " + path);
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (IOException e) {
+			System.out.println("Ecriture des " + label + " impossible : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Ecrit les valeurs modifiées à la fin du journal, puis force leur écriture
+	 * sur disque en une seule fois.
+	 */
+	synchronized void flush() throws IOException {
+		if (map == null || dirty.isEmpty()) {
+			return;
+		}
+		for (String name : dirty) {
+			// La valeur est lue après le retrait : une modification arrivée
+			// entre-temps est écrite dans ce lot ou au prochain
+			if (dirty.remove(name)) {
+				append(name, values.get(name));
+			}
+		}
+		map.force();
+		if (records > COMPACT_RATIO * values.size() && map.position() > COMPACT_MIN) {
+			compact();
+		}
+	}
+
+	private void append(String name, double value) throws IOException {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, 255);
+		if (map.remaining() < HEADER + length + TRAILER) {
+			// Agrandit le fichier et sa projection
+			int position = map.position();
+			map.force();
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) map.capacity() * 2);
+			map.position(position);
+		}
+		long bits = Double.doubleToLongBits(value);
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, length);
+		crc.update(longBytes(bits));
+		map.put(MARKER);
+		map.put((byte) length);
+		map.put(bytes, 0, length);
+		map.putLong(bits);
+		map.putInt((int) crc.getValue());
+		records++;
+	}
+
+	/**
+	 * Réécrit le journal avec la valeur actuelle de chaque joueur, dans un
+	 * fichier temporaire qui remplace ensuite l'ancien.
+	 */
+	private void compact() throws IOException {
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		Files.deleteIfExists(tmp);
+		FileChannel oldChannel = channel;
+		channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SIZE);
+		records = 0;
+		// Les valeurs modifiées pendant le compactage sont aussi dans dirty :
+		// elles seront écrites de nouveau au prochain lot
+		for (Map.Entry<String, Double> e : values.entrySet()) {
+			append(e.getKey(), e.getValue());
+		}
+		map.force();
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		oldChannel.close();
+	}
+
+	private static byte[] longBytes(long bits) {
+		byte[] b = new byte[8];
+		for (int i = 7; i >= 0; i--) {
+			b[i] = (byte) bits;
+			bits >>>= 8;
+		}
+		return b;
+	}
+
+	/**
+	 * Ecrit les dernières modifications. Appelée à l'arrêt du serveur.
+	 */
+	public void close() {
+		if (writer != null) {
+			writer.shutdown();
+		}
+		flushQuietly();
+	}
+}
@@ -0,0 +1,4 @@
+@echo off
+rem Generateur de charge : runload.bat serveur port nb_clients [morpion^|blackjack] [duree_s] [joueurs_par_table]
+
+java client.LoadGenerator %*
\ No newline at end of file
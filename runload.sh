@@ -0,0 +1,4 @@
+#!/bin/bash
+# Générateur de charge : ./runload.sh serveur port nb_clients [morpion|blackjack] [durée_s] [joueurs_par_table]
+
+java client.LoadGenerator "$@"
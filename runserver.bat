@@ -1,3 +1,3 @@
 @echo off
 javac @comp -encoding utf-8
-java project.server.SimpleServer
+java %* project.server.SimpleServer
@@ -2,4 +2,4 @@
 # Compile et exécute le serveur
 
 javac @comp -encoding utf-8
-java project.server.SimpleServer
+java "$@" project.server.SimpleServer
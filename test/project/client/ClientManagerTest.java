@@ -0,0 +1,120 @@
+/** ClientManagerTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import project.game.Elo;
+import project.net.NioReactor;
+import project.server.GameTable;
+import project.server.IServer;
+import project.server.ValueStore;
+
+/**
+ * Lecture d'un client sur le transport NIO : les lignes passent par le menu
+ * tant que le joueur n'est pas en partie, puis sont confiées à sa table.
+ * Reprise d'un joueur depuis le journal des parties.
+ */
+class ClientManagerTest {
+
+	@Test
+	void linesGoToTheTableOnceTheGameStarts() throws Exception {
+		IServer server = mock(IServer.class);
+		when(server.getWallets()).thenReturn(ValueStore.inMemory(ClientManager.INITIAL_MONEY));
+		when(server.getRatings()).thenReturn(ValueStore.inMemory(Elo.INITIAL));
+		BlockingQueue<ClientManager> clients = new LinkedBlockingQueue<ClientManager>();
+		NioReactor reactor = new NioReactor(0, 1, 1, conn -> clients.add(new ClientManager(conn, server)));
+		reactor.start();
+
+		try (Socket s = new Socket("localhost", reactor.getPort())) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+			PrintWriter out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8);
+			ClientManager cli = clients.poll(1, TimeUnit.SECONDS);
+			assertNotNull(cli);
+			assertEquals("Votre nom ?", in.readLine());
+
+			// menu : le choix du jeu place le joueur en queue
+			out.println("Alice");
+			assertEquals("Bienvenue Alice !", in.readLine());
+			out.println("1");
+			verify(server, timeout(1000)).getInQueue(cli, "Morpion2p");
+
+			// en partie : les lignes sont déposées dans la file de la table
+			GameTable table = mock(GameTable.class);
+			cli.startPlaying(table);
+			out.println("1");
+			out.println("5");
+			verify(table, timeout(1000)).input(cli, "1");
+			verify(table, timeout(1000)).input(cli, "5");
+			verify(server, times(1)).getInQueue(cli, "Morpion2p");
+
+			// fin de partie : retour au menu
+			cli.endPlaying();
+			out.println("1");
+			verify(server, timeout(1000).times(2)).getInQueue(cli, "Morpion2p");
+		}
+	}
+
+	@Test
+	void restoreKeepsTheChangesOfOtherSessions() {
+		IServer server = mock(IServer.class);
+		ValueStore wallets = ValueStore.inMemory(ClientManager.INITIAL_MONEY);
+		when(server.getWallets()).thenReturn(wallets);
+		when(server.getRatings()).thenReturn(ValueStore.inMemory(Elo.INITIAL));
+		// gain d'une autre session après le lancement de la partie interrompue
+		wallets.add("Alice", 500);
+
+		ClientManager cli = ClientManager.restore(server, "Alice", "jeton", 1000);
+		assertEquals(1500, wallets.get("Alice"));
+		cli.endReplay();
+		cli.earnMoney(-100);
+		assertEquals(1400, wallets.get("Alice"));
+	}
+
+	@Test
+	void replayedGainsAndRatingsAreNotAppliedTwice() {
+		IServer server = mock(IServer.class);
+		ValueStore wallets = ValueStore.inMemory(ClientManager.INITIAL_MONEY);
+		ValueStore ratings = ValueStore.inMemory(Elo.INITIAL);
+		when(server.getWallets()).thenReturn(wallets);
+		when(server.getRatings()).thenReturn(ratings);
+		// déjà enregistrés avant l'arrêt du serveur
+		wallets.add("Alice", -100);
+		ratings.add("Alice", 16);
+
+		ClientManager cli = ClientManager.restore(server, "Alice", "jeton", 1000);
+		cli.earnMoney(-100);
+		cli.addRating(16);
+		assertEquals(900, cli.getMoney());
+		assertEquals(900, wallets.get("Alice"));
+		assertEquals(Elo.INITIAL + 16, ratings.get("Alice"));
+
+		// partie rattrapée : les suivants sont conservés
+		cli.endReplay();
+		cli.addRating(-8);
+		assertEquals(Elo.INITIAL + 8, ratings.get("Alice"));
+		assertEquals(Elo.INITIAL + 8, cli.getRating());
+	}
+}
@@ -0,0 +1,64 @@
+/** ProxyLinkTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import project.net.Heartbeat;
+
+/**
+ * Relais d'un joueur vers un faux nœud hôte : poignée de main, PING, lignes
+ * du joueur envoyées par le pool d'écrivains, et fin de partie.
+ */
+class ProxyLinkTest {
+
+	@Test
+	void relaysThePlayerUntilTheEndOfTheGame() throws Exception {
+		ClientManager player = mock(ClientManager.class);
+		when(player.getName()).thenReturn("Alice");
+		when(player.isConnected()).thenReturn(true);
+		ExecutorService writers = Executors.newSingleThreadExecutor();
+		try (ServerSocket host = new ServerSocket(0)) {
+			ProxyLink link = new ProxyLink(player, "localhost", host.getLocalPort(), 7, 1, "secret");
+			link.start(Thread::new, writers);
+			try (Socket s = host.accept()) {
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true);
+				assertEquals(ProxyLink.HANDSHAKE + "7 1 secret Alice", in.readLine());
+				out.println(Heartbeat.PING);
+				assertEquals(Heartbeat.PONG, in.readLine());
+				out.println(ProxyLink.ACCEPTED);
+				out.println("Votre tour");
+				verify(player, timeout(1000)).receiveMessage("Votre tour");
+
+				link.send("hit");
+				assertEquals("hit", in.readLine());
+				out.println(ProxyLink.END + "150.0");
+				verify(player, timeout(1000)).endProxy(150.0);
+			}
+		} finally {
+			writers.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/** HandTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HandTest {
+
+	// index = enseigne * 13 + (valeur - 1)
+	private static final Card ACE  = Card.of(0);
+	private static final Card FIVE = Card.of(4);
+	private static final Card NINE = Card.of(8);
+	private static final Card KING = Card.of(12);
+
+	@Test
+	void aceAndPictureIsABlackJack() {
+		Hand hand = hand(ACE, KING);
+		assertTrue(hand.isBlackJack());
+		assertEquals(21, hand.getTotal());
+	}
+
+	@Test
+	void twentyOneWithThreeCardsIsNotABlackJack() {
+		Hand hand = hand(FIVE, NINE, Card.of(13 + 6));
+		assertEquals(21, hand.getTotal());
+		assertFalse(hand.isBlackJack());
+	}
+
+	@Test
+	void aceCountsElevenOnlyWhileItDoesNotBust() {
+		Hand hand = hand(ACE, FIVE);
+		assertEquals(16, hand.getTotal());
+		assertEquals(6, hand.getHardTotal());
+		hand.add(NINE);
+		assertEquals(15, hand.getTotal());
+		hand.add(ACE);
+		assertEquals(16, hand.getTotal());
+	}
+
+	@Test
+	void longHandGrowsBeyondItsInitialCapacity() {
+		Hand hand = new Hand();
+		for (int i = 0; i < 20; i++) {
+			hand.add(ACE);
+		}
+		assertEquals(20, hand.size());
+		assertEquals(20, hand.getTotal());
+		assertEquals(ACE, hand.get(19));
+	}
+
+	@Test
+	void clearedHandStartsOver() {
+		Hand hand = hand(ACE, KING);
+		hand.clear();
+		assertEquals(0, hand.size());
+		assertEquals(0, hand.getTotal());
+		assertFalse(hand.isBlackJack());
+		hand.add(NINE);
+		hand.add(KING);
+		assertEquals(19, hand.getTotal());
+		assertFalse(hand.isBlackJack());
+	}
+
+	private static Hand hand(Card... cards) {
+		Hand hand = new Hand();
+		for (Card c : cards) {
+			hand.add(c);
+		}
+		return hand;
+	}
+}
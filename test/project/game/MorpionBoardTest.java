@@ -0,0 +1,65 @@
+/** MorpionBoardTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MorpionBoardTest {
+
+	@Test
+	void diagonalWins() {
+		MorpionBoard board = board(0, 4, 1, 8, 2);
+		assertTrue(board.hasWon(0));
+		assertFalse(board.hasWon(1));
+		board = board(0, 2, 1, 4, 8, 6);
+		assertTrue(board.hasWon(1));
+	}
+
+	@Test
+	void fullBoardWithoutWinner() {
+		// O X O / O X X / X O O
+		MorpionBoard board = board(0, 1, 2, 4, 3, 5, 7, 6, 8);
+		assertTrue(board.isFull());
+		assertFalse(board.hasWon(0));
+		assertFalse(board.hasWon(1));
+	}
+
+	@Test
+	void playedCellsAreOccupied() {
+		MorpionBoard board = board(4);
+		assertTrue(board.isOccupied(4));
+		assertFalse(board.isOccupied(0));
+		assertEquals(1 << 4, board.getMask(0));
+		assertEquals(0, board.getMask(1));
+	}
+
+	@Test
+	void sameStateSharesItsRendering() {
+		MorpionBoard a = board(0, 8);
+		MorpionBoard b = board(0, 8);
+		assertSame(a.frame(), b.frame());
+		assertTrue(a.frame().toString().startsWith("+---+---+---+\n| O |"));
+		assertTrue(a.frame().toString().endsWith("|   |   | X | \n+---+---+---+\n"));
+	}
+
+	/**
+	 * Joue les cases données en alternant les joueurs, en commençant par 0.
+	 */
+	private static MorpionBoard board(int... cells) {
+		MorpionBoard board = new MorpionBoard();
+		for (int i = 0; i < cells.length; i++) {
+			board.play(i % 2, cells[i]);
+		}
+		return board;
+	}
+}
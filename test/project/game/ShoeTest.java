@@ -0,0 +1,64 @@
+/** ShoeTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class ShoeTest {
+
+	@Test
+	void shoeHoldsEachCardOncePerDeck() {
+		Shoe shoe = new Shoe(3, new SplittableRandom(1));
+		int[] seen = new int[Card.DECK_SIZE];
+		for (int i = 0; i < 3 * Card.DECK_SIZE; i++) {
+			seen[shoe.draw().getIndex()]++;
+		}
+		int[] expected = new int[Card.DECK_SIZE];
+		Arrays.fill(expected, 3);
+		assertArrayEquals(expected, seen);
+		assertEquals(0, shoe.remaining());
+	}
+
+	@Test
+	void emptyShoeIsShuffledAgain() {
+		Shoe shoe = new Shoe(1, new SplittableRandom(2));
+		for (int i = 0; i < Card.DECK_SIZE; i++) {
+			shoe.draw();
+		}
+		shoe.draw();
+		assertEquals(Card.DECK_SIZE - 1, shoe.remaining());
+	}
+
+	@Test
+	void shuffleOnlyOnceTheCutIsReached() {
+		Shoe shoe = new Shoe(1, new SplittableRandom(3));
+		for (int i = 0; i < 39; i++) {
+			shoe.draw();
+		}
+		shoe.shuffleIfNeeded();
+		assertEquals(13, shoe.remaining());
+		shoe.draw();
+		shoe.shuffleIfNeeded();
+		assertEquals(Card.DECK_SIZE, shoe.remaining());
+	}
+
+	@Test
+	void sameSeedDealsTheSameCards() {
+		Shoe a = new Shoe(2, new SplittableRandom(42));
+		Shoe b = new Shoe(2, new SplittableRandom(42));
+		for (int i = 0; i < 2 * Card.DECK_SIZE; i++) {
+			assertEquals(a.draw(), b.draw());
+		}
+	}
+}
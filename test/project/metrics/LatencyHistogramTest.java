@@ -0,0 +1,54 @@
+/** LatencyHistogramTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+	@Test
+	void emptyHistogramReportsZero() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.percentile(99));
+		assertEquals(0, h.getMeanMillis());
+	}
+
+	@Test
+	void percentilesStayWithinOneSixteenth() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (int ms = 1; ms <= 1000; ms++) {
+			h.record(ms * 1000000L);
+		}
+		assertEquals(1000, h.getCount());
+		assertEquals(500.5, h.getMeanMillis(), 1e-9);
+		assertEquals(1000, h.getMaxMillis());
+		assertEquals(500, h.percentile(50), 500 / 16.0);
+		assertEquals(900, h.percentile(90), 900 / 16.0);
+		assertEquals(990, h.percentile(99), 990 / 16.0);
+	}
+
+	@Test
+	void percentileNeverExceedsTheMaximum() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(1234567);
+		assertEquals(1.234, h.percentile(100));
+	}
+
+	@Test
+	void smallDurationsAreExact() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (int us = 0; us < 10; us++) {
+			h.record(us * 1000L);
+		}
+		assertEquals(0.004, h.percentile(50));
+		assertEquals(0.009, h.percentile(100));
+	}
+}
@@ -0,0 +1,65 @@
+/** HeartbeatTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import project.metrics.DisconnectReason;
+
+class HeartbeatTest {
+
+	private final Connection connection = mock(Connection.class);
+	private final Heartbeat heartbeat = new Heartbeat(connection);
+
+	@BeforeEach
+	void shortDelays() {
+		Heartbeat.configure(200, 200);
+		when(connection.isOpen()).thenReturn(true);
+	}
+
+	@AfterEach
+	void defaultDelays() {
+		heartbeat.stop();
+		Heartbeat.configure(10000, 5000);
+	}
+
+	@Test
+	void silentClientIsPingedThenClosed() {
+		heartbeat.start();
+		verify(connection, timeout(1000)).post(any(Frame.class));
+		verify(connection, timeout(1000)).close(DisconnectReason.TIMEOUT);
+	}
+
+	@Test
+	void answerToThePingKeepsTheConnection() {
+		heartbeat.start();
+		verify(connection, timeout(1000)).post(any(Frame.class));
+		heartbeat.touch();
+		verify(connection, after(300).never()).close(any(DisconnectReason.class));
+	}
+
+	@Test
+	void trafficDelaysThePing() throws InterruptedException {
+		heartbeat.start();
+		for (int i = 0; i < 6; i++) {
+			Thread.sleep(100);
+			heartbeat.touch();
+		}
+		verify(connection, never()).post(any(Frame.class));
+	}
+}
@@ -0,0 +1,82 @@
+/** InboundDecoderTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class InboundDecoderTest {
+
+	private final List<String> lines = new ArrayList<String>();
+	private final InboundDecoder decoder = new InboundDecoder(lines::add);
+
+	@Test
+	void textLinesMaySpanSeveralPackets() {
+		feed("Ali".getBytes(StandardCharsets.UTF_8));
+		feed("ce\r\n2\nThéo\n".getBytes(StandardCharsets.UTF_8));
+		assertEquals(List.of("Alice", "2", "Théo"), lines);
+	}
+
+	@Test
+	void heartbeatAnswersAreNotForwarded() {
+		feed((Heartbeat.PONG + "\nhit\n").getBytes(StandardCharsets.UTF_8));
+		decoder.setBinary(true);
+		feed(new byte[] {0, 1, BinaryProtocol.PONG, 0, 1, BinaryProtocol.STAND});
+		assertEquals(List.of("hit", "stand"), lines);
+	}
+
+	@Test
+	void binaryMessagesBecomeLobbyLines() {
+		decoder.setBinary(true);
+		feed(new byte[] {0, 3, BinaryProtocol.MOVE, 2, 3});
+		feed(new byte[] {0, 3, BinaryProtocol.BET, 0x01, 0x2C});
+		feed(new byte[] {0, 4, BinaryProtocol.JOIN, 2, 3, 5});
+		feed(new byte[] {0, 2, BinaryProtocol.CONTINUE, 0});
+		assertEquals(List.of("2", "3", "300", "2", "3-5", "N"), lines);
+	}
+
+	@Test
+	void binaryMessageSplitInsideItsHeader() {
+		decoder.setBinary(true);
+		byte[] text = "salut".getBytes(StandardCharsets.UTF_8);
+		feed(new byte[] {0});
+		feed(new byte[] {(byte) (text.length + 1), BinaryProtocol.TEXT, text[0]});
+		byte[] rest = new byte[text.length - 1 + 2];
+		System.arraycopy(text, 1, rest, 0, text.length - 1);
+		rest[rest.length - 2] = 0;
+		rest[rest.length - 1] = 1;
+		feed(rest);
+		feed(new byte[] {BinaryProtocol.STAND});
+		assertEquals(List.of("salut", "stand"), lines);
+	}
+
+	@Test
+	void switchToBinaryInsideAPacket() {
+		byte[] packet = {'#', 'b', 'i', 'n', 'a', 'r', 'y', '\n', 0, 1, BinaryProtocol.HIT};
+		for (byte b : packet) {
+			decoder.decode(new byte[] {b}, 0, 1);
+			if (!decoder.isBinary() && "#binary".equals(last())) {
+				decoder.setBinary(true);
+			}
+		}
+		assertEquals(List.of("#binary", "hit"), lines);
+	}
+
+	private void feed(byte[] bytes) {
+		decoder.decode(bytes, 0, bytes.length);
+	}
+
+	private String last() {
+		return lines.isEmpty() ? null : lines.get(lines.size() - 1);
+	}
+}
@@ -0,0 +1,150 @@
+/** NioConnectionTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Transport NIO sur de vrais sockets locaux : découpage des lignes reçues en
+ * plusieurs paquets, et écritures qui attendent que le socket soit inscriptible.
+ */
+class NioConnectionTest {
+
+	private static final BlockingQueue<Connection> accepted = new LinkedBlockingQueue<Connection>();
+	private static final BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+	private static NioReactor reactor;
+
+	private Socket client;
+
+	@BeforeAll
+	static void startReactor() throws IOException {
+		reactor = new NioReactor(0, 1, 1, conn -> {
+			conn.setListener(new ConnectionListener() {
+				public void onOpen() {}
+				public void onLine(String line) { lines.add(line); }
+				public void onClose() {}
+			});
+			accepted.add(conn);
+		});
+		reactor.start();
+	}
+
+	@AfterEach
+	void closeClient() throws IOException {
+		if (client != null) {
+			client.close();
+		}
+		accepted.clear();
+		lines.clear();
+	}
+
+	@Test
+	void linesMaySpanSeveralReads() throws Exception {
+		connect(0);
+		OutputStream out = client.getOutputStream();
+		for (String part : new String[] {"Ali", "ce\r\nBo", "b\nThé", "o\n"}) {
+			out.write(part.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			Thread.sleep(20);
+		}
+		assertEquals("Alice", lines.poll(1, TimeUnit.SECONDS));
+		assertEquals("Bob", lines.poll(1, TimeUnit.SECONDS));
+		assertEquals("Théo", lines.poll(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void writesWaitUntilTheSocketIsWritable() throws Exception {
+		// petit tampon de réception : le socket du serveur est vite plein
+		Connection conn = connect(4096);
+		String payload = "x".repeat(1000);
+		int count = 300;
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			conn.send(i + " " + payload);
+		}
+		// les envois ne bloquent pas, même si le client ne lit pas encore
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+		Thread.sleep(100);
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+		for (int i = 0; i < count; i++) {
+			assertEquals(i + " " + payload, in.readLine());
+		}
+		assertTrue(conn.isOpen());
+	}
+
+	@Test
+	void clientThatStopsReadingIsDisconnected() throws Exception {
+		Connection conn = connect(4096);
+		String payload = "x".repeat(1000);
+		// bien plus que les tampons du système et la limite de la connexion
+		for (int i = 0; i < 32000 && conn.isOpen(); i++) {
+			conn.send(payload);
+		}
+		assertFalse(conn.isOpen());
+	}
+
+	@Test
+	void staleCorkTimerDoesNotFlushTheNextBatch() throws Exception {
+		FlushScheduler.setLatencyBudget(300);
+		try {
+			Connection conn = connect(0);
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+			conn.cork();
+			conn.send("premier");
+			conn.flush();
+			assertEquals("premier", in.readLine());
+
+			// le minuteur du premier cork() expire pendant le second regroupement
+			Thread.sleep(150);
+			conn.cork();
+			conn.send("second");
+			client.setSoTimeout(250);
+			assertThrows(SocketTimeoutException.class, in::readLine);
+			client.setSoTimeout(1000);
+			assertEquals("second", in.readLine());
+		} finally {
+			FlushScheduler.setLatencyBudget(20);
+		}
+	}
+
+	/**
+	 * Ouvre un client et attend que le serveur ait accepté sa connexion.
+	 * @param receiveBuffer la taille du tampon de réception du client, 0 par défaut
+	 */
+	private Connection connect(int receiveBuffer) throws Exception {
+		client = new Socket();
+		if (receiveBuffer > 0) {
+			client.setReceiveBufferSize(receiveBuffer);
+		}
+		client.connect(new InetSocketAddress("localhost", reactor.getPort()));
+		Connection conn = accepted.poll(1, TimeUnit.SECONDS);
+		assertNotNull(conn);
+		return conn;
+	}
+}
@@ -0,0 +1,129 @@
+/** SocketConnectionTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Connexions classiques écrites par un pool d'écrivains partagé.
+ */
+class SocketConnectionTest {
+
+	private final AtomicInteger writerThreads = new AtomicInteger();
+	private final List<Socket> clients = new ArrayList<Socket>();
+	private ServerSocket server;
+	private ExecutorService writers;
+
+	@BeforeEach
+	void open() throws IOException {
+		server = new ServerSocket(0);
+		writers = Executors.newSingleThreadExecutor(task -> {
+			writerThreads.incrementAndGet();
+			return new Thread(task, "Writer");
+		});
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		for (Socket client : clients) {
+			client.close();
+		}
+		server.close();
+		writers.shutdownNow();
+	}
+
+	@Test
+	void connectionsShareTheWriters() throws Exception {
+		List<Connection> conns = new ArrayList<Connection>();
+		for (int i = 0; i < 3; i++) {
+			conns.add(connect());
+		}
+		for (int line = 0; line < 100; line++) {
+			for (Connection conn : conns) {
+				conn.send("ligne " + line);
+			}
+		}
+		for (Socket client : clients) {
+			BufferedReader in = reader(client);
+			for (int line = 0; line < 100; line++) {
+				assertEquals("ligne " + line, in.readLine());
+			}
+		}
+		assertEquals(1, writerThreads.get());
+	}
+
+	@Test
+	void closeSendsThePendingLinesFirst() throws Exception {
+		Connection conn = connect();
+		conn.send("Au revoir");
+		conn.send("Fin");
+		conn.close();
+		BufferedReader in = reader(clients.get(0));
+		assertEquals("Au revoir", in.readLine());
+		assertEquals("Fin", in.readLine());
+		assertNull(in.readLine());
+	}
+
+	@Test
+	void staleCorkTimerDoesNotFlushTheNextBatch() throws Exception {
+		FlushScheduler.setLatencyBudget(300);
+		try {
+			Connection conn = connect();
+			BufferedReader in = reader(clients.get(0));
+			conn.cork();
+			conn.send("premier");
+			conn.flush();
+			assertEquals("premier", in.readLine());
+
+			// le minuteur du premier cork() expire pendant le second regroupement
+			Thread.sleep(150);
+			conn.cork();
+			conn.send("second");
+			clients.get(0).setSoTimeout(250);
+			assertThrows(SocketTimeoutException.class, in::readLine);
+			clients.get(0).setSoTimeout(1000);
+			assertEquals("second", in.readLine());
+		} finally {
+			FlushScheduler.setLatencyBudget(20);
+		}
+	}
+
+	private Connection connect() throws IOException {
+		clients.add(new Socket("localhost", server.getLocalPort()));
+		SocketConnection conn = new SocketConnection(server.accept(), writers);
+		conn.setListener(new ConnectionListener() {
+			public void onOpen() {}
+			public void onLine(String line) {}
+			public void onClose() {}
+		});
+		return conn;
+	}
+
+	private static BufferedReader reader(Socket client) throws IOException {
+		return new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+	}
+}
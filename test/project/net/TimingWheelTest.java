@@ -0,0 +1,70 @@
+/** TimingWheelTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.net;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+	/**
+	 * Tick de 5 ms et 4 cases : un tour de roue dure 20 ms.
+	 */
+	private final TimingWheel wheel = new TimingWheel("Test wheel", 5, 4);
+
+	@Test
+	void taskRunsAfterItsDelay() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicLong ranAt = new AtomicLong();
+		long start = System.nanoTime();
+		wheel.schedule(() -> {
+			ranAt.set(System.nanoTime());
+			done.countDown();
+		}, 30);
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(ranAt.get() - start) >= 30);
+	}
+
+	@Test
+	void delayLongerThanOneTurnWaitsForItsRound() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicLong ranAt = new AtomicLong();
+		long start = System.nanoTime();
+		wheel.schedule(() -> {
+			ranAt.set(System.nanoTime());
+			done.countDown();
+		}, 90);
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(ranAt.get() - start) >= 90);
+	}
+
+	@Test
+	void cancelledTaskNeverRuns() throws InterruptedException {
+		AtomicBoolean ran = new AtomicBoolean();
+		TimingWheel.Timeout t = wheel.schedule(() -> ran.set(true), 20);
+		assertTrue(t.cancel());
+		assertFalse(t.cancel());
+		Thread.sleep(80);
+		assertFalse(ran.get());
+	}
+
+	@Test
+	void expiredTaskCannotBeCancelled() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		TimingWheel.Timeout t = wheel.schedule(done::countDown, 0);
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		assertFalse(t.cancel());
+	}
+}
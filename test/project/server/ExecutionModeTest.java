@@ -0,0 +1,88 @@
+/** ExecutionModeTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+/**
+ * Choix du type de threads. Les tests des threads virtuels ne tournent que
+ * sur Java 21 et plus (gradle test -Pjava21).
+ */
+class ExecutionModeTest {
+
+	@Test
+	void platformThreadsByDefault() throws Exception {
+		assertEquals(ExecutionMode.PLATFORM, ExecutionMode.fromConfig("platform"));
+		Thread t = ExecutionMode.PLATFORM.newThread(() -> {}, "Client 1");
+		assertEquals("Client 1", t.getName());
+		assertEquals(Thread.class, t.getClass());
+	}
+
+	@Test
+	@EnabledForJreRange(max = JRE.JAVA_20)
+	void virtualThreadsFallBackToPlatformBeforeJava21() {
+		assertEquals(ExecutionMode.PLATFORM, ExecutionMode.fromConfig("virtual"));
+	}
+
+	@Test
+	@EnabledForJreRange(min = JRE.JAVA_21)
+	void virtualThreadsOnJava21() throws Exception {
+		assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.fromConfig("virtual"));
+		CountDownLatch ran = new CountDownLatch(1);
+		Thread t = ExecutionMode.VIRTUAL.newThread(ran::countDown, "Client 1");
+		assertEquals("Client 1", t.getName());
+		assertEquals("java.lang.VirtualThread", t.getClass().getName());
+		t.start();
+		assertTrue(ran.await(1, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Java 24 n'épingle plus les threads virtuels dans un bloc synchronized.
+	 */
+	@Test
+	@EnabledForJreRange(min = JRE.JAVA_21, max = JRE.JAVA_23)
+	void pinnedVirtualThreadsAreReported() throws Exception {
+		PrintStream console = System.out;
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(report, true, "UTF-8"));
+		try {
+			PinnedThreadMonitor.start();
+			long before = PinnedThreadMonitor.getPinnedEvents();
+			Object lock = new Object();
+			Thread t = ExecutionMode.VIRTUAL.newThread(() -> {
+				synchronized (lock) {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {}
+				}
+			}, "Client épinglé");
+			t.start();
+			t.join();
+			long deadline = System.currentTimeMillis() + 5000;
+			while (!report.toString("UTF-8").contains("Thread virtuel épinglé")
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertTrue(PinnedThreadMonitor.getPinnedEvents() > before);
+		} finally {
+			System.setOut(console);
+		}
+		// la frame signalée est celle du code qui tient le moniteur, pas celle du JDK
+		assertTrue(report.toString("UTF-8").contains("dans project.server.ExecutionModeTest."));
+	}
+}
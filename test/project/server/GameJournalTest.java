@@ -0,0 +1,139 @@
+/** GameJournalTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import project.client.ClientManager;
+
+class GameJournalTest {
+
+	/**
+	 * Pas d'écriture périodique : les tests appellent flush() eux-mêmes.
+	 */
+	private static final long NO_FLUSH = 3600000;
+
+	@TempDir
+	Path dir;
+
+	private Path path;
+	private ClientManager[] players;
+
+	@BeforeEach
+	void writeJournal() throws IOException {
+		path = dir.resolve("games.journal");
+		players = new ClientManager[] {player("a"), player("b")};
+		GameJournal journal = GameJournal.open(path.toString(), NO_FLUSH);
+		GameJournal.Table table = journal.start("Morpion", 42, players);
+		table.input(0, "2");
+		table.timer(1);
+		table.leave(1);
+		journal.start("Morpion", 7, players).end();
+		journal.flush();
+	}
+
+	@Test
+	void unfinishedTableIsRecoveredWithItsEvents() throws IOException {
+		List<GameJournal.Recovered> recovered = GameJournal.open(path.toString(), NO_FLUSH).recovered();
+		assertEquals(1, recovered.size());
+		GameJournal.Recovered r = recovered.get(0);
+		assertEquals("Morpion", r.gameName);
+		assertEquals(42, r.seed);
+		assertArrayEquals(new String[] {"a", "b"}, r.names);
+		assertArrayEquals(new String[] {"jeton-a", "jeton-b"}, r.tokens);
+		assertArrayEquals(new double[] {1000, 1000}, r.money);
+		assertEvents(r.inputs);
+	}
+
+	@Test
+	void duplicateRecordsAreReplayedOnce() throws IOException {
+		// un renouvellement du fichier peut écrire une entrée deux fois
+		List<byte[]> records = records(Files.readAllBytes(path));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] record : records) {
+			out.write(record);
+			out.write(record);
+		}
+		Files.write(path, out.toByteArray());
+		List<GameJournal.Recovered> recovered = GameJournal.open(path.toString(), NO_FLUSH).recovered();
+		assertEquals(1, recovered.size());
+		assertEvents(recovered.get(0).inputs);
+	}
+
+	@Test
+	void truncatedRecordEndsTheReplay() throws IOException {
+		List<byte[]> records = records(Files.readAllBytes(path));
+		// START, INPUT, TIMER, puis la moitié de LEAVE
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int i = 0; i < 3; i++) {
+			out.write(records.get(i));
+		}
+		out.write(records.get(3), 0, records.get(3).length / 2);
+		Files.write(path, out.toByteArray());
+		List<GameJournal.Input> inputs = GameJournal.open(path.toString(), NO_FLUSH).recovered().get(0).inputs;
+		assertEquals(2, inputs.size());
+		assertEquals("2", inputs.get(0).line);
+		assertEquals(1, inputs.get(1).timer);
+	}
+
+	/**
+	 * Joueur connecté avec un jeton de reprise, qui peut être journalisé.
+	 */
+	private static ClientManager player(String name) {
+		ClientManager p = mock(ClientManager.class);
+		when(p.getName()).thenReturn(name);
+		when(p.getToken()).thenReturn("jeton-" + name);
+		when(p.getMoney()).thenReturn(1000.0);
+		return p;
+	}
+
+	/**
+	 * Ligne de la place 0, échéance de la minuterie 1, départ de la place 1.
+	 */
+	private static void assertEvents(List<GameJournal.Input> inputs) {
+		assertEquals(3, inputs.size());
+		assertEquals(0, inputs.get(0).seat);
+		assertEquals("2", inputs.get(0).line);
+		assertEquals(-1, inputs.get(1).seat);
+		assertNull(inputs.get(1).line);
+		assertEquals(1, inputs.get(1).timer);
+		assertEquals(1, inputs.get(2).seat);
+		assertNull(inputs.get(2).line);
+	}
+
+	/**
+	 * Découpe le journal en entrées : [taille u16][contenu][CRC32].
+	 */
+	private static List<byte[]> records(byte[] file) {
+		List<byte[]> records = new ArrayList<byte[]>();
+		ByteBuffer b = ByteBuffer.wrap(file);
+		while (b.remaining() > 2) {
+			int length = b.getShort(b.position()) & 0xFFFF;
+			byte[] record = new byte[2 + length + 4];
+			b.get(record);
+			records.add(record);
+		}
+		return records;
+	}
+}
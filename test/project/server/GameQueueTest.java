@@ -0,0 +1,105 @@
+/** GameQueueTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import project.client.ClientManager;
+import project.net.Connection;
+
+class GameQueueTest {
+
+	private final ClientManager a = mock(ClientManager.class);
+	private final ClientManager b = mock(ClientManager.class);
+	private final ClientManager c = mock(ClientManager.class);
+
+	@Test
+	void formsTablesInArrivalOrder() {
+		GameQueue queue = new GameQueue("Morpion", 2);
+		queue.add(a);
+		assertFalse(queue.hasMatch());
+		queue.add(b);
+		queue.add(c);
+		assertTrue(queue.hasMatch());
+		assertArrayEquals(new ClientManager[] {a, b}, queue.pollMatch());
+		assertEquals(1, queue.size());
+		assertNull(queue.pollMatch());
+	}
+
+	@Test
+	void playerLeavingKeepsTheOthersInOrder() {
+		GameQueue queue = new GameQueue("Morpion", 2);
+		queue.add(a);
+		queue.add(b);
+		queue.add(c);
+		assertTrue(queue.remove(b));
+		assertFalse(queue.remove(b));
+		assertEquals(List.of(a, c), queue.snapshot());
+		assertArrayEquals(new ClientManager[] {a, c}, queue.pollMatch());
+	}
+
+	@Test
+	void addingTwiceKeepsTheFirstPlace() {
+		GameQueue queue = new GameQueue("Morpion", 2);
+		queue.add(a);
+		queue.add(b);
+		queue.add(a);
+		assertEquals(List.of(a, b), queue.snapshot());
+	}
+
+	@Test
+	void claimedPlayersAreRemovedTogetherOrNotAtAll() {
+		GameQueue queue = new GameQueue("Morpion", 2);
+		queue.add(a);
+		queue.add(b);
+		queue.remove(b);
+		assertFalse(queue.removeAll(new ClientManager[] {a, b}));
+		assertEquals(List.of(a), queue.snapshot());
+		queue.add(b);
+		assertTrue(queue.removeAll(new ClientManager[] {a, b}));
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	void releasedPlayersGoBackAtTheHead() {
+		GameQueue queue = new GameQueue("Morpion", 2);
+		queue.add(c);
+		queue.addFirst(new ClientManager[] {a, b});
+		assertEquals(List.of(a, b, c), queue.snapshot());
+	}
+
+	@Test
+	void waitingTablesCountsCompleteTables() {
+		GameQueue queue = new GameQueue("Black-Jack", 3);
+		for (int i = 0; i < 7; i++) {
+			queue.add(mock(ClientManager.class));
+		}
+		assertEquals(2, queue.waitingTables());
+	}
+
+	@Test
+	void requeuedPlayerKeepsItsEnqueueTime() throws InterruptedException {
+		ClientManager p = new ClientManager(mock(Connection.class), null);
+		p.enterQueue();
+		long since = GameQueue.queuedSince(p);
+		Thread.sleep(50);
+		p.returnToQueue();
+		assertEquals(since, GameQueue.queuedSince(p), 5);
+		p.enterQueue();
+		assertTrue(GameQueue.queuedSince(p) >= since + 45);
+	}
+}
@@ -0,0 +1,119 @@
+/** GameTableTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import project.client.ClientManager;
+import project.game.GameContext;
+import project.game.IGame;
+import project.net.TimingWheel;
+
+/**
+ * Reprise d'une partie depuis le journal : les évènements journalisés sont
+ * rejoués, et seules les minuteries encore en attente sont armées.
+ */
+class GameTableTest {
+
+	private static final long NO_FLUSH = 3600000;
+	private static final long TIMER_DELAY = 50;
+
+	private static final TimingWheel TIMERS = new TimingWheel("Test timers", 10, 64);
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Jeu qui demande une minuterie au début de la partie et note ce qu'il reçoit.
+	 */
+	private static final class RecordingGame implements IGame {
+		private final List<String> events = new CopyOnWriteArrayList<String>();
+		private GameContext context;
+
+		public void start(GameContext context) {
+			this.context = context;
+			context.schedule(TIMER_DELAY, 1);
+		}
+
+		public void onInput(ClientManager player, String line) {
+			events.add(player.getName() + " " + line);
+		}
+
+		public void onTimer(int timer) {
+			events.add("timer " + timer);
+		}
+
+		public void onDisconnect(ClientManager player) {
+			events.add(player.getName() + " left");
+			context.end();
+		}
+	}
+
+	@Test
+	void replayedTimerIsNotFiredAgain() throws Exception {
+		RecordingGame game = replay(journal -> journal.timer(1));
+		assertEquals(List.of("timer 1"), game.events);
+		Thread.sleep(TIMER_DELAY * 4);
+		assertEquals(List.of("timer 1"), game.events);
+	}
+
+	@Test
+	void pendingTimerIsArmedAfterTheReplay() throws Exception {
+		RecordingGame game = replay(journal -> {});
+		assertEquals(List.of(), game.events);
+		Thread.sleep(TIMER_DELAY * 4);
+		assertEquals(List.of("timer 1"), game.events);
+	}
+
+	@Test
+	void replayedDepartureEndsTheGame() throws Exception {
+		RecordingGame game = replay(journal -> journal.leave(1));
+		assertEquals(List.of("b left"), game.events);
+		Thread.sleep(TIMER_DELAY * 4);
+		assertEquals(List.of("b left"), game.events);
+	}
+
+	private static ClientManager player(String name) {
+		ClientManager p = mock(ClientManager.class);
+		when(p.getName()).thenReturn(name);
+		when(p.getToken()).thenReturn("jeton-" + name);
+		return p;
+	}
+
+	private interface Events {
+		void write(GameJournal.Table journal);
+	}
+
+	/**
+	 * Journalise une table et ses évènements, relit le journal puis reprend
+	 * la partie sur une nouvelle table, comme après un redémarrage.
+	 */
+	private RecordingGame replay(Events events) throws IOException {
+		ClientManager[] players = {player("a"), player("b")};
+		String file = dir.resolve("games.journal").toString();
+		GameJournal journal = GameJournal.open(file, NO_FLUSH);
+		events.write(journal.start("Test", 1, players));
+		journal.flush();
+
+		GameJournal.Recovered r = GameJournal.open(file, NO_FLUSH).recovered().get(0);
+		RecordingGame game = new RecordingGame();
+		GameTable table = new GameTable(game, players, r.table, Runnable::run, TIMERS, 0, () -> {});
+		table.start(r.inputs);
+		return game;
+	}
+}
@@ -0,0 +1,115 @@
+/** PackingQueueTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import project.client.ClientManager;
+
+class PackingQueueTest {
+
+	private static final long NO_AGING = 60000;
+
+	private long nextId;
+
+	@Test
+	void formsTheLargestTableOnATie() {
+		PackingQueue queue = new PackingQueue("Black-Jack", 2, 7, NO_AGING);
+		ClientManager a = ranged(2, 4);
+		ClientManager b = ranged(2, 4);
+		ClientManager c = ranged(2, 4);
+		queue.add(a);
+		queue.add(b);
+		queue.add(c);
+		assertArrayEquals(new ClientManager[] {a, b, c}, queue.pollMatch());
+	}
+
+	@Test
+	void onlyPlacesPlayersAtTablesTheyAccept() {
+		PackingQueue queue = new PackingQueue("Black-Jack", 2, 7, NO_AGING);
+		ClientManager a = ranged(3, 3);
+		ClientManager b = ranged(2, 2);
+		ClientManager c = ranged(2, 2);
+		queue.add(a);
+		queue.add(b);
+		assertFalse(queue.hasMatch());
+		queue.add(c);
+		assertArrayEquals(new ClientManager[] {b, c}, queue.pollMatch());
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	void agedPlayerBlocksTablesWithoutThem() throws InterruptedException {
+		PackingQueue queue = new PackingQueue("Black-Jack", 2, 7, 30);
+		queue.add(ranged(3, 3));
+		Thread.sleep(50);
+		queue.add(ranged(2, 2));
+		queue.add(ranged(2, 2));
+		assertFalse(queue.hasMatch());
+	}
+
+	@Test
+	void requeuedPlayerKeepsItsAging() throws InterruptedException {
+		PackingQueue queue = new PackingQueue("Black-Jack", 2, 7, 100);
+		ClientManager a = ranged(3, 3);
+		queue.add(a);
+		assertTrue(queue.removeAll(new ClientManager[] {a}));
+		Thread.sleep(150);
+		queue.addFirst(new ClientManager[] {a});
+		queue.add(ranged(2, 2));
+		queue.add(ranged(2, 2));
+		// a attend depuis plus de 100 ms : aucune table sans lui
+		assertFalse(queue.hasMatch());
+	}
+
+	@Test
+	void waitingTablesFollowsAcceptedSizes() {
+		PackingQueue queue = new PackingQueue("Black-Jack", 2, 7, NO_AGING);
+		queue.add(ranged(3, 3));
+		queue.add(ranged(2, 2));
+		queue.add(ranged(2, 2));
+		queue.add(ranged(3, 3));
+		assertEquals(1, queue.waitingTables());
+		for (int i = 0; i < 5; i++) {
+			queue.add(ranged(2, 3));
+		}
+		// tables de 3 : a, d et quatre joueurs 2-3 ; table de 2 : deux des trois restants
+		assertEquals(3, queue.waitingTables());
+	}
+
+	@Test
+	void waitingTablesKeepFlexiblePlayersForSmallerTables() {
+		PackingQueue queue = new PackingQueue("Black-Jack", 2, 7, NO_AGING);
+		queue.add(ranged(2, 3));
+		queue.add(ranged(2, 3));
+		queue.add(ranged(2, 3));
+		queue.add(ranged(3, 3));
+		queue.add(ranged(2, 2));
+		// la table de 3 prend le joueur 3-3 : il reste un joueur 2-3 pour le 2-2
+		assertEquals(2, queue.waitingTables());
+	}
+
+	/**
+	 * Joueur acceptant les tables de min à max joueurs, entré dans la queue maintenant.
+	 */
+	private ClientManager ranged(int min, int max) {
+		ClientManager p = mock(ClientManager.class);
+		when(p.getId()).thenReturn(nextId++);
+		when(p.getMinPlayers()).thenReturn(min);
+		when(p.getMaxPlayers()).thenReturn(max);
+		when(p.getQueuedAt()).thenReturn(System.nanoTime());
+		return p;
+	}
+}
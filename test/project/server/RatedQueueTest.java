@@ -0,0 +1,116 @@
+/** RatedQueueTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import project.client.ClientManager;
+
+class RatedQueueTest {
+
+	private long nextId;
+
+	@Test
+	void pairsTheClosestRatings() {
+		RatedQueue queue = new RatedQueue("Morpion");
+		ClientManager a = rated(1000);
+		ClientManager far = rated(1500);
+		ClientManager b = rated(1050);
+		queue.add(a);
+		queue.add(far);
+		assertFalse(queue.hasMatch());
+		queue.add(b);
+		assertTrue(queue.hasMatch());
+		assertEquals(Set.of(a, b), Set.of(queue.pollMatch()));
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	void distantPlayersWaitForTheirWindowToWiden() {
+		RatedQueue queue = new RatedQueue("Morpion");
+		queue.add(rated(1000));
+		queue.add(rated(1500));
+		long now = System.currentTimeMillis();
+		assertFalse(queue.hasMatch());
+		// écart de 500 : fenêtre de 100 élargie de 20 par seconde, soit 20 s
+		assertEquals(now + 20000, queue.nextMatchTime(), 100);
+	}
+
+	@Test
+	void leavingPlayerCancelsThePendingTable() {
+		RatedQueue queue = new RatedQueue("Morpion");
+		ClientManager a = rated(1000);
+		ClientManager b = rated(1010);
+		queue.add(a);
+		queue.add(b);
+		assertTrue(queue.hasMatch());
+		queue.remove(b);
+		assertFalse(queue.hasMatch());
+		ClientManager c = rated(990);
+		queue.add(c);
+		assertEquals(Set.of(a, c), Set.of(queue.pollMatch()));
+	}
+
+	@Test
+	void requeuedPlayerKeepsItsWidenedWindow() throws InterruptedException {
+		RatedQueue queue = new RatedQueue("Morpion");
+		ClientManager a = rated(1000);
+		long since = GameQueue.queuedSince(a);
+		queue.add(a);
+		assertTrue(queue.removeAll(new ClientManager[] {a}));
+		Thread.sleep(200);
+		queue.addFirst(new ClientManager[] {a});
+		queue.add(rated(1300));
+		assertFalse(queue.hasMatch());
+		// écart de 300 atteint 10 s après la première entrée de a, pas après son retour
+		assertEquals(since + 10000, queue.nextMatchTime(), 50);
+	}
+
+	@Test
+	void leavingPlayersDoNotPileUpInTheSchedule() {
+		RatedQueue queue = new RatedQueue("Morpion");
+		// joueurs trop éloignés pour être appariés : chacun garde un examen prévu
+		ClientManager[] players = new ClientManager[100];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = rated(1000 * i);
+			queue.add(players[i]);
+		}
+		assertFalse(queue.hasMatch());
+		for (ClientManager p : players) {
+			queue.remove(p);
+		}
+		assertEquals(Long.MAX_VALUE, queue.nextMatchTime());
+		assertTrue(queue.scheduledChecks() <= 1);
+
+		for (int round = 0; round < 1000; round++) {
+			ClientManager p = rated(5000);
+			queue.add(p);
+			queue.remove(p);
+		}
+		assertTrue(queue.scheduledChecks() <= 2);
+	}
+
+	/**
+	 * Joueur classé, entré dans la queue maintenant.
+	 */
+	private ClientManager rated(double rating) {
+		ClientManager p = mock(ClientManager.class);
+		when(p.getId()).thenReturn(nextId++);
+		when(p.getRating()).thenReturn(rating);
+		when(p.getQueuedAt()).thenReturn(System.nanoTime());
+		return p;
+	}
+}
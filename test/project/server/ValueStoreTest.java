@@ -0,0 +1,144 @@
+/** ValueStoreTest.java
+ *  @author Guillaume Coufourier
+ *  @author Théo Crauffon
+ *  @author Steven Hue
+ */
+
+
+package project.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ValueStoreTest {
+
+	/**
+	 * Pas d'écriture périodique : les tests appellent flush() eux-mêmes.
+	 */
+	private static final long NO_FLUSH = 3600000;
+
+	private static final double DEFAULT = 1000;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void newPlayerGetsTheDefaultValue() {
+		ValueStore store = ValueStore.inMemory(1200);
+		assertEquals(1200, store.get("nobody"));
+		assertEquals(1250, store.add("nobody", 50));
+	}
+
+	@Test
+	void concurrentDeltasAreAllApplied() throws InterruptedException {
+		ValueStore store = ValueStore.inMemory(DEFAULT);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					store.add("same", 1);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(DEFAULT + 4000, store.get("same"));
+	}
+
+	@Test
+	void valuesSurviveARestart() throws IOException {
+		String file = dir.resolve("wallets.log").toString();
+		ValueStore store = open(file);
+		store.set("a", 10);
+		store.add("b", -100);
+		store.flush();
+		store.add("a", 5);
+		store.close();
+
+		ValueStore reopened = open(file);
+		assertEquals(15, reopened.get("a"));
+		assertEquals(900, reopened.get("b"));
+		reopened.close();
+	}
+
+	@Test
+	void corruptedRecordStopsTheReplay() throws IOException {
+		Path path = dir.resolve("wallets.log");
+		ValueStore store = open(path.toString());
+		store.set("a", 1);
+		store.flush();
+		store.set("a", 2);
+		store.flush();
+		store.close();
+
+		// dernier octet du CRC de la deuxième entrée : [marqueur][taille]["a"][valeur][CRC]
+		int record = 2 + 1 + 8 + 4;
+		try (RandomAccessFile f = new RandomAccessFile(path.toFile(), "rw")) {
+			f.seek(2 * record - 1);
+			int b = f.read();
+			f.seek(2 * record - 1);
+			f.write(b ^ 0xFF);
+		}
+		ValueStore reopened = open(path.toString());
+		assertEquals(1, reopened.get("a"));
+		reopened.close();
+	}
+
+	@Test
+	void truncatedTailIsIgnoredThenOverwritten() throws IOException {
+		Path path = dir.resolve("wallets.log");
+		ValueStore store = open(path.toString());
+		store.set("a", 1);
+		store.flush();
+		store.set("b", 2);
+		store.flush();
+		store.close();
+
+		// arrêt brutal au milieu de l'écriture de la deuxième entrée
+		int record = 2 + 1 + 8 + 4;
+		try (RandomAccessFile f = new RandomAccessFile(path.toFile(), "rw")) {
+			f.setLength(record + 6);
+		}
+		ValueStore reopened = open(path.toString());
+		assertEquals(1, reopened.get("a"));
+		assertEquals(DEFAULT, reopened.get("b"));
+		reopened.set("c", 3);
+		reopened.flush();
+		reopened.close();
+
+		// la nouvelle entrée remplace les restes de l'entrée interrompue
+		ValueStore again = open(path.toString());
+		assertEquals(1, again.get("a"));
+		assertEquals(3, again.get("c"));
+		assertEquals(2, again.size());
+		again.close();
+	}
+
+	@Test
+	void consoleNamesWhatTheStoreHolds() throws IOException {
+		PrintStream console = System.out;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(out, true, "UTF-8"));
+		try {
+			ValueStore.open(dir.resolve("ratings.log").toString(), NO_FLUSH, 1200, "classements").close();
+		} finally {
+			System.setOut(console);
+		}
+		assertTrue(out.toString("UTF-8").startsWith("0 classements chargés depuis "));
+	}
+
+	private static ValueStore open(String file) throws IOException {
+		return ValueStore.open(file, NO_FLUSH, DEFAULT, "portefeuilles");
+	}
+}